@@ -1,6 +1,7 @@
 package com.pluralsight.dockerproductionaws.audit;
 
 import com.pluralsight.dockerproductionaws.common.MicroserviceVerticle;
+import com.pluralsight.dockerproductionaws.common.events.SequencedConsumer;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigRenderOptions;
@@ -14,10 +15,10 @@ import io.vertx.core.http.HttpServer;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Lock;
 import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.ext.sql.ResultSet;
 import io.vertx.ext.sql.SQLConnection;
-import io.vertx.ext.sql.UpdateResult;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.servicediscovery.types.MessageSource;
@@ -27,13 +28,22 @@ import java.util.stream.Collectors;
 
 /**
  * A verticle storing operations in a database (hsql) and providing access to the operations.
+ * <p>
+ * The portfolio events are consumed by a single audit instance at a time, the holder of a shared lock, as the
+ * sequence of each source is tracked by its consumer: the other instances serve the operations and stand by, and one of
+ * them takes over once the lock is released. The events are only acknowledged once inserted, so that the publishers
+ * send them again when the database fails.
  */
 public class AuditVerticle extends MicroserviceVerticle {
 
     private static final String INSERT_STATEMENT = "INSERT INTO AUDIT (OPERATION) VALUES (?)";
     private static final String SELECT_STATEMENT = "SELECT * FROM AUDIT ORDER BY ID DESC LIMIT 10";
+    private static final String EVENTS_LOCK = "audit.portfolio-events";
+    private static final long EVENTS_LOCK_TIMEOUT = 10000;
     private Config config;
     private JDBCClient jdbc;
+    private Lock eventsLock;
+    private boolean stopped;
 
     /**
      * Starts the verticle asynchronously. The the initialization is completed, it calls
@@ -59,11 +69,10 @@ public class AuditVerticle extends MicroserviceVerticle {
         Future<HttpServer> httpEndpointReady = configureTheHTTPServer();
         httpEndpointReady.setHandler(ar -> {
            if (ar.succeeded()) {
-               MessageConsumer<JsonObject> portfolioConsumer = eventBus.consumer(config.getString("portfolio.address"));
-               portfolioConsumer.handler(message -> {
-                   storeInDatabase(message.body());
-               });
-               future.complete();
+               // Started once this instance consumes the events or stands by
+               Future<Void> attempted = Future.future();
+               attempted.setHandler(v -> future.complete());
+               consumeEvents(eventBus, 1, attempted);
            } else {
                future.fail(ar.cause());
            }
@@ -78,8 +87,46 @@ public class AuditVerticle extends MicroserviceVerticle {
         });
     }
 
+    /**
+     * Consumes the portfolio events once this instance holds the events lock, waiting for it otherwise.
+     *
+     * @param timeout   the time to wait for the lock before trying again (ms)
+     * @param attempted completed once the lock has been acquired or found held
+     */
+    private void consumeEvents(EventBus eventBus, long timeout, Future<Void> attempted) {
+        vertx.sharedData().getLockWithTimeout(EVENTS_LOCK, timeout, lock -> {
+            if (stopped) {
+                if (lock.succeeded()) {
+                    lock.result().release();
+                }
+                return;
+            }
+            if (lock.failed()) {
+                // Another instance consumes the events
+                attempted.tryComplete();
+                consumeEvents(eventBus, EVENTS_LOCK_TIMEOUT, attempted);
+                return;
+            }
+            eventsLock = lock.result();
+            // The portfolio events come in sequenced batches, lost events being reported
+            SequencedConsumer events = new SequencedConsumer(this::storeInDatabase);
+            eventBus.<JsonObject>consumer(config.getString("portfolio.address"), message -> {
+                long lost = events.lost();
+                events.handle(message);
+                if (events.lost() > lost) {
+                    System.err.println("Lost " + (events.lost() - lost) + " portfolio events");
+                }
+            });
+            attempted.tryComplete();
+        });
+    }
+
     @Override
     public void stop(Future<Void> future) throws Exception {
+        stopped = true;
+        if (eventsLock != null) {
+            eventsLock.release();
+        }
         jdbc.close();
         super.stop(future);
     }
@@ -149,13 +196,13 @@ public class AuditVerticle extends MicroserviceVerticle {
     }
 
 
-    private void storeInDatabase(JsonObject operation) {
+    private void storeInDatabase(List<JsonObject> operations, Handler<AsyncResult<Void>> stored) {
         // Storing in the database is also a multi step process,
         // 1. need to retrieve a connection
-        // 2. execute the insertion statement
-        // 3. close the connection
+        // 2. execute the insertion statement, once for the whole batch of operations
+        // 3. close the connection, and report the outcome: the operations are only acknowledged once stored
         Future<SQLConnection> connectionRetrieved = Future.future();
-        Future<UpdateResult> insertionDone = Future.future();
+        Future<List<Integer>> insertionDone = Future.future();
 
         // Step 1 get the connection
         jdbc.getConnection(connectionRetrieved.completer());
@@ -165,10 +212,13 @@ public class AuditVerticle extends MicroserviceVerticle {
                 ar -> {
                     if (ar.failed()) {
                         System.err.println("Failed to connect to database: " + ar.cause());
+                        stored.handle(Future.failedFuture(ar.cause()));
                     } else {
                         SQLConnection connection = ar.result();
-                        connection.updateWithParams(INSERT_STATEMENT,
-                                new JsonArray().add(operation.encode()),
+                        connection.batchWithParams(INSERT_STATEMENT,
+                                operations.stream()
+                                        .map(operation -> new JsonArray().add(operation.encode()))
+                                        .collect(Collectors.toList()),
                                 insertionDone.completer());
                     }
                 }
@@ -177,10 +227,12 @@ public class AuditVerticle extends MicroserviceVerticle {
         // Step 3, when the insertion is done, close the connection.
         insertionDone.setHandler(
                 ar -> {
+                    connectionRetrieved.result().close();
                     if (ar.failed()) {
                         System.err.println("Failed to insert operation in database: " + ar.cause());
+                        stored.handle(Future.failedFuture(ar.cause()));
                     } else {
-                        connectionRetrieved.result().close();
+                        stored.handle(Future.succeededFuture());
                     }
                 }
         );
@@ -108,4 +108,20 @@ public class AuditVerticleTest {
             }
         });
     }
+
+    @Test
+    public void testSequencedTradesAcknowledged(TestContext context) {
+        Async async = context.async();
+        JsonObject envelope = new JsonObject()
+                .put("source", "test")
+                .put("from", 1)
+                .put("events", new JsonArray()
+                        .add(stockTrade("BUY", 3, 3).put("sequence", 1))
+                        .add(stockTrade("SELL", 3, 0).put("sequence", 2)));
+        vertx.eventBus().<JsonObject>send(portfolioAddr, envelope, context.asyncAssertSuccess(reply -> {
+            context.assertEquals(2L, reply.body().getLong("ack"));
+            context.assertFalse(reply.body().getBoolean("gap"));
+            async.complete();
+        }));
+    }
 }
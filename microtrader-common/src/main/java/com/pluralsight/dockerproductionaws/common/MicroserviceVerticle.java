@@ -2,6 +2,7 @@ package com.pluralsight.dockerproductionaws.common;
 
 import io.vertx.core.*;
 import io.vertx.core.impl.ConcurrentHashSet;
+import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceDiscoveryOptions;
@@ -10,7 +11,9 @@ import io.vertx.servicediscovery.types.HttpEndpoint;
 import io.vertx.servicediscovery.types.MessageSource;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -20,6 +23,7 @@ public class MicroserviceVerticle extends AbstractVerticle {
 
     protected ServiceDiscovery discovery;
     protected Set<Record> registeredRecords = new ConcurrentHashSet<>();
+    private final Map<String, ServicePool> pools = new HashMap<>();
 
     @Override
     public void start() {
@@ -38,6 +42,12 @@ public class MicroserviceVerticle extends AbstractVerticle {
         publish(record, completionHandler);
     }
 
+    public void publishMessageSource(String name, String address, Class contentClass, JsonObject metadata,
+                                     Handler<AsyncResult<Void>> completionHandler) {
+        Record record = MessageSource.createRecord(name, address, contentClass, metadata);
+        publish(record, completionHandler);
+    }
+
     public void publishMessageSource(String name, String address, Handler<AsyncResult<Void>>
             completionHandler) {
         Record record = MessageSource.createRecord(name, address);
@@ -50,6 +60,28 @@ public class MicroserviceVerticle extends AbstractVerticle {
         publish(record, completionHandler);
     }
 
+    /**
+     * Gets the pool of the services matching the given filter, calling them in turn.
+     *
+     * @param filter the discovery filter, such as `{"name": "audit"}`
+     * @return the pool, created on the first call and kept up to date until the verticle stops
+     */
+    public ServicePool services(JsonObject filter) {
+        return services(filter, ServicePool.Strategy.ROUND_ROBIN);
+    }
+
+    /**
+     * Gets the pool of the services matching the given filter. Pools must be used from the context of the verticle.
+     *
+     * @param filter   the discovery filter, such as `{"name": "audit"}`
+     * @param strategy how a service is picked for each call
+     * @return the pool, created on the first call and kept up to date until the verticle stops
+     */
+    public ServicePool services(JsonObject filter, ServicePool.Strategy strategy) {
+        return pools.computeIfAbsent(filter.encode() + "/" + strategy,
+                key -> new ServicePool(vertx, discovery, filter, strategy));
+    }
+
     private void publish(Record record, Handler<AsyncResult<Void>> completionHandler) {
         if (discovery == null) {
             try {
@@ -71,6 +103,9 @@ public class MicroserviceVerticle extends AbstractVerticle {
 
     @Override
     public void stop(Future<Void> future) throws Exception {
+        pools.values().forEach(ServicePool::close);
+        pools.clear();
+
         List<Future> futures = new ArrayList<>();
         for (Record record : registeredRecords) {
             Future<Void> unregistrationFuture = Future.future();
@@ -0,0 +1,202 @@
+package com.pluralsight.dockerproductionaws.common;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.ServiceReference;
+import io.vertx.servicediscovery.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The cached references to all the services matching a discovery filter, with client-side load balancing.
+ * <p>
+ * The matching records are looked up once, then the pool follows the discovery announce stream: a matching record
+ * published or coming back `UP` is added, a record going down or unpublished is removed and its reference released.
+ * Calls therefore do not look up the discovery backend, and are spread across the matching services according to the
+ * {@link Strategy}.
+ * <p>
+ * Instances are not thread safe, a pool must be used from the context that created it (see
+ * {@link MicroserviceVerticle#services(JsonObject, Strategy)}).
+ */
+public class ServicePool {
+
+    /**
+     * How a service is picked for each call.
+     */
+    public enum Strategy {
+        /**
+         * Each service in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * The service with the fewest calls in flight, the first one on ties.
+         */
+        LEAST_IN_FLIGHT
+    }
+
+    private final ServiceDiscovery discovery;
+    private final JsonObject filter;
+    private final Strategy strategy;
+    private final MessageConsumer<JsonObject> announces;
+    private final List<Member> members = new ArrayList<>();
+    private List<Runnable> pending = new ArrayList<>();
+    private int next;
+    private boolean closed;
+
+    ServicePool(Vertx vertx, ServiceDiscovery discovery, JsonObject filter, Strategy strategy) {
+        this.discovery = discovery;
+        this.filter = filter;
+        this.strategy = strategy;
+        // Follow the announces first, so that no change is missed while the records are retrieved
+        this.announces = vertx.eventBus().consumer(discovery.options().getAnnounceAddress(),
+                message -> announced(new Record(message.body())));
+        discovery.getRecords(filter, ar -> {
+            // Closed meanwhile, the records are not referenced anymore
+            if (ar.succeeded() && !closed) {
+                for (Record record : ar.result()) {
+                    add(record);
+                }
+            }
+            List<Runnable> calls = pending;
+            pending = null;
+            calls.forEach(Runnable::run);
+        });
+    }
+
+    /**
+     * Calls one of the services of the pool. The call fails right away if no service is available, or if it throws.
+     *
+     * @param call          the call, given the reference of the picked service, and completing the handler it is given
+     *                      when done
+     * @param resultHandler the result handler
+     * @param <R>           the type of result
+     */
+    public <R> void execute(BiConsumer<ServiceReference, Handler<AsyncResult<R>>> call,
+                            Handler<AsyncResult<R>> resultHandler) {
+        if (pending != null) {
+            // Still retrieving the records
+            pending.add(() -> execute(call, resultHandler));
+            return;
+        }
+        Member member = closed ? null : pick();
+        if (member == null) {
+            resultHandler.handle(Future.failedFuture("No service available matching " + filter.encode()));
+            return;
+        }
+        member.inFlight++;
+        // Only the first completion counts, the call may report both a failure and a result
+        Future<R> result = Future.future();
+        result.setHandler(ar -> {
+            member.inFlight--;
+            resultHandler.handle(ar);
+        });
+        try {
+            call.accept(member.reference, ar -> {
+                if (ar.succeeded()) {
+                    result.tryComplete(ar.result());
+                } else {
+                    result.tryFail(ar.cause());
+                }
+            });
+        } catch (RuntimeException ex) {
+            // Releases the slot of the call
+            result.tryFail(ex);
+        }
+    }
+
+    /**
+     * @return the number of services in the pool
+     */
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * Stops following the announces and releases the references. The calls made afterwards fail, as do the ones waiting
+     * for the records to be retrieved.
+     */
+    public void close() {
+        closed = true;
+        announces.unregister();
+        for (Member member : members) {
+            member.reference.release();
+        }
+        members.clear();
+    }
+
+    private Member pick() {
+        if (members.isEmpty()) {
+            return null;
+        }
+        if (strategy == Strategy.ROUND_ROBIN) {
+            next = (next + 1) % members.size();
+            return members.get(next);
+        }
+        Member least = members.get(0);
+        for (int i = 1; i < members.size(); i++) {
+            if (members.get(i).inFlight < least.inFlight) {
+                least = members.get(i);
+            }
+        }
+        return least;
+    }
+
+    private void announced(Record record) {
+        if (!record.match(filter)) {
+            return;
+        }
+        if (record.getStatus() == Status.UP) {
+            add(record);
+        } else {
+            remove(record);
+        }
+    }
+
+    private void add(Record record) {
+        for (Member member : members) {
+            if (same(member.reference.record(), record)) {
+                return;
+            }
+        }
+        members.add(new Member(discovery.getReference(record)));
+    }
+
+    private void remove(Record record) {
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            if (same(member.reference.record(), record)) {
+                members.remove(i);
+                member.reference.release();
+                return;
+            }
+        }
+    }
+
+    /**
+     * The announce of an unpublished record no longer carries its registration, it is then identified by its name and
+     * location.
+     */
+    private static boolean same(Record member, Record record) {
+        if (record.getRegistration() != null) {
+            return record.getRegistration().equals(member.getRegistration());
+        }
+        return member.getName().equals(record.getName()) && member.getLocation().equals(record.getLocation());
+    }
+
+    private static class Member {
+        private final ServiceReference reference;
+        private int inFlight;
+
+        Member(ServiceReference reference) {
+            this.reference = reference;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.pluralsight.dockerproductionaws.common.events;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Receives the envelopes of {@link SequencedPublisher}s and delivers their events in sequence, exactly once per source.
+ * The events of an envelope are delivered together, so that they can be processed as a batch.
+ * <p>
+ * Duplicated events are skipped. An event following a missing one is rejected along with the rest of its envelope, and
+ * the reply reports the gap so that the publisher retransmits from the first missing event. Every envelope is answered
+ * with the cumulative sequence processed for its source: `{"ack": sequence, "gap": boolean}`.
+ * <p>
+ * The handler reports when it is done with a batch, and the events are only acknowledged once it succeeds: when it
+ * fails, the envelope is answered with the previous sequence, so the publisher keeps the events and sends them again.
+ * The envelopes of a source received meanwhile wait, up to {@value #MAX_WAITING}, and are answered in turn.
+ * <p>
+ * A consumer joins a stream at the first envelope it receives from a source, after the last sequence the publisher got
+ * acknowledged, so that a consumer taking over from another one resumes where it stopped. Events the publisher dropped
+ * before they were acknowledged are counted as {@link #lost()}. Messages that are not envelopes are delivered as is, so
+ * unsequenced producers keep working. Instances are not thread safe, a consumer must be registered on a single context.
+ */
+public class SequencedConsumer implements Handler<Message<JsonObject>> {
+
+    /**
+     * The maximum number of envelopes of a source waiting for the handler, the next ones are answered right away with
+     * the sequence processed so far.
+     */
+    public static final int MAX_WAITING = 100;
+
+    private final BiConsumer<List<JsonObject>, Handler<AsyncResult<Void>>> handler;
+    private final Map<String, Source> sources = new HashMap<>();
+    private long gaps;
+    private long lost;
+    private long duplicates;
+    private long failures;
+
+    /**
+     * @param handler the handler of the events, called with the events of an envelope in sequence, and a handler to
+     *                call once they are processed
+     */
+    public SequencedConsumer(BiConsumer<List<JsonObject>, Handler<AsyncResult<Void>>> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handle(Message<JsonObject> message) {
+        JsonObject body = message.body();
+        if (body.getJsonArray("events") == null) {
+            handler.accept(Collections.singletonList(body), done -> {
+            });
+            return;
+        }
+        Source source = sources.computeIfAbsent(body.getString("source"),
+                id -> new Source(body.getLong("acked", body.getLong("from") - 1)));
+        if (!source.busy) {
+            process(source, message);
+            next(source);
+        } else if (source.waiting.size() < MAX_WAITING) {
+            source.waiting.add(message);
+        } else {
+            message.reply(new JsonObject().put("ack", source.delivered).put("gap", false));
+        }
+    }
+
+    private void next(Source source) {
+        while (!source.busy && !source.waiting.isEmpty()) {
+            process(source, source.waiting.poll());
+        }
+    }
+
+    private void process(Source source, Message<JsonObject> message) {
+        JsonObject body = message.body();
+        JsonArray events = body.getJsonArray("events");
+        long from = body.getLong("from");
+        if (from > source.delivered + 1) {
+            // The publisher no longer holds these events
+            lost += from - source.delivered - 1;
+            source.delivered = from - 1;
+        }
+        long last = source.delivered;
+        List<JsonObject> batch = new ArrayList<>(events.size());
+        boolean gap = false;
+        for (int i = 0; i < events.size(); i++) {
+            JsonObject event = events.getJsonObject(i);
+            long sequence = event.getLong("sequence");
+            if (sequence <= last) {
+                duplicates++;
+            } else if (sequence == last + 1) {
+                batch.add(event);
+                last = sequence;
+            } else {
+                gaps++;
+                gap = true;
+                break;
+            }
+        }
+        if (batch.isEmpty()) {
+            message.reply(new JsonObject().put("ack", source.delivered).put("gap", gap));
+            return;
+        }
+        long processed = last;
+        boolean missing = gap;
+        source.busy = true;
+        handler.accept(batch, done -> {
+            source.busy = false;
+            if (done.succeeded()) {
+                source.delivered = processed;
+            } else {
+                failures++;
+            }
+            message.reply(new JsonObject().put("ack", source.delivered).put("gap", missing && done.succeeded()));
+            next(source);
+        });
+    }
+
+    /**
+     * @return the number of envelopes rejected because of a missing event
+     */
+    public long gaps() {
+        return gaps;
+    }
+
+    /**
+     * @return the number of events the publishers dropped before they could be delivered
+     */
+    public long lost() {
+        return lost;
+    }
+
+    /**
+     * @return the number of events received more than once
+     */
+    public long duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return the number of batches the handler failed to process, sent again by their publisher
+     */
+    public long failures() {
+        return failures;
+    }
+
+    private static class Source {
+        private final ArrayDeque<Message<JsonObject>> waiting = new ArrayDeque<>();
+        private long delivered;
+        private boolean busy;
+
+        Source(long delivered) {
+            this.delivered = delivered;
+        }
+    }
+}
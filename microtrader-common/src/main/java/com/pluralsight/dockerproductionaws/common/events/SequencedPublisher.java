@@ -0,0 +1,236 @@
+package com.pluralsight.dockerproductionaws.common.events;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sends a stream of events to an address, numbered and batched, and retransmits them until they are acknowledged.
+ * <p>
+ * Each event gets a `sequence` number, increasing from 1. The events are coalesced into envelopes, sent once
+ * `batchSize` events are pending or `window` ms after the first one:
+ * <pre>
+ *   {"source": "...", "from": first retained sequence, "acked": last acknowledged sequence, "events": [...]}
+ * </pre>
+ * The consumer (see {@link SequencedConsumer}) replies with the cumulative sequence it has processed, and the events up
+ * to it are released. When the consumer reports a gap, or does not acknowledge anything for `retransmit` ms, all the
+ * events not acknowledged are sent again. While the consumer stays silent, only the first envelope is sent again, as a
+ * probe, at intervals doubling up to 32 times `retransmit`; everything follows once it answers. At most `capacity`
+ * events are kept, the oldest being dropped beyond: `from` then tells the consumer they are lost for good.
+ * <p>
+ * The `source` identifies this instance of the stream: the sequence of a new publisher starts over under a new source.
+ * Instances are not thread safe, a publisher must be used from the context that created it.
+ */
+public class SequencedPublisher {
+    private static final int MAX_BACKOFF = 32;
+
+    private final Vertx vertx;
+    private final String address;
+    private final String source = UUID.randomUUID().toString();
+    private final int batchSize;
+    private final long window;
+    private final long retransmit;
+    private final int capacity;
+    private final DeliveryOptions options;
+    private final long retransmitTimer;
+
+    private final ArrayDeque<JsonObject> unacked = new ArrayDeque<>();
+    private List<JsonObject> batch = new ArrayList<>();
+    private long sequence;
+    private long sent;
+    private long acked;
+    private long lastProgress = System.currentTimeMillis();
+    private long lastRetransmit;
+    private int silent;
+    private long delay;
+    private long windowTimer = -1;
+
+    private long envelopes;
+    private long retransmitted;
+    private long dropped;
+
+    /**
+     * @param vertx      the vert.x instance
+     * @param address    the address of the consumer
+     * @param batchSize  the maximum number of events per envelope
+     * @param window     the maximum time an event waits for its envelope to be sent (ms)
+     * @param retransmit the time without acknowledgement after which the events are sent again (ms)
+     * @param capacity   the maximum number of events kept until they are acknowledged
+     */
+    public SequencedPublisher(Vertx vertx, String address, int batchSize, long window, long retransmit, int capacity) {
+        this.vertx = vertx;
+        this.address = address;
+        this.batchSize = batchSize;
+        this.window = window;
+        this.retransmit = retransmit;
+        this.capacity = capacity;
+        this.delay = retransmit;
+        this.options = new DeliveryOptions().setSendTimeout(retransmit);
+        this.retransmitTimer = vertx.setPeriodic(retransmit, timer -> {
+            if (acked < sent && System.currentTimeMillis() - lastProgress >= delay) {
+                if (silent == 0) {
+                    retransmit();
+                } else {
+                    probe();
+                }
+                silent++;
+                delay = Math.min(delay * 2, this.retransmit * MAX_BACKOFF);
+            }
+        });
+    }
+
+    /**
+     * Numbers an event and queues it for sending.
+     *
+     * @param event the event, its `sequence` is set
+     * @return the sequence of the event
+     */
+    public long publish(JsonObject event) {
+        event.put("sequence", ++sequence);
+        unacked.add(event);
+        if (unacked.size() > capacity) {
+            unacked.poll();
+            dropped++;
+        }
+        batch.add(event);
+        if (batch.size() >= batchSize) {
+            flush();
+        } else if (windowTimer == -1) {
+            windowTimer = vertx.setTimer(window, timer -> {
+                windowTimer = -1;
+                flush();
+            });
+        }
+        return sequence;
+    }
+
+    /**
+     * Sends the pending events right away.
+     */
+    public void flush() {
+        if (windowTimer != -1) {
+            vertx.cancelTimer(windowTimer);
+            windowTimer = -1;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<JsonObject> events = batch;
+        batch = new ArrayList<>();
+        sent = sequence;
+        send(events);
+    }
+
+    /**
+     * Stops the retransmissions.
+     */
+    public void close() {
+        vertx.cancelTimer(retransmitTimer);
+        if (windowTimer != -1) {
+            vertx.cancelTimer(windowTimer);
+        }
+    }
+
+    /**
+     * @return the last sequence acknowledged by the consumer
+     */
+    public long acked() {
+        return acked;
+    }
+
+    /**
+     * @return the number of envelopes sent, retransmissions included
+     */
+    public long envelopes() {
+        return envelopes;
+    }
+
+    /**
+     * @return the number of events sent again
+     */
+    public long retransmitted() {
+        return retransmitted;
+    }
+
+    /**
+     * @return the number of events dropped before being acknowledged
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    private void send(List<JsonObject> events) {
+        envelopes++;
+        JsonObject envelope = new JsonObject()
+                .put("source", source)
+                .put("from", unacked.isEmpty() ? sequence + 1 : unacked.peek().getLong("sequence"))
+                .put("acked", acked)
+                .put("events", new JsonArray(events));
+        vertx.eventBus().<JsonObject>send(address, envelope, options, reply -> {
+            if (reply.succeeded()) {
+                JsonObject ack = reply.result().body();
+                // An answer to a probe: the consumer is back, send it everything it is missing
+                boolean resumed = silent > 1;
+                silent = 0;
+                delay = retransmit;
+                acknowledge(ack.getLong("ack", 0L), ack.getBoolean("gap", false) || resumed);
+            }
+        });
+    }
+
+    private void acknowledge(long ack, boolean gap) {
+        if (ack > acked) {
+            acked = ack;
+            lastProgress = System.currentTimeMillis();
+            while (!unacked.isEmpty() && unacked.peek().getLong("sequence") <= ack) {
+                unacked.poll();
+            }
+        }
+        // The consumer missed some events: go back to the first one it did not get, at most once per window
+        if (gap && ack < sent && System.currentTimeMillis() - lastRetransmit >= window) {
+            retransmit();
+        }
+    }
+
+    private void retransmit() {
+        lastRetransmit = System.currentTimeMillis();
+        lastProgress = lastRetransmit;
+        List<JsonObject> events = new ArrayList<>();
+        for (JsonObject event : unacked) {
+            if (event.getLong("sequence") > sent) {
+                break;
+            }
+            events.add(event);
+            if (events.size() == batchSize) {
+                retransmitted += events.size();
+                send(events);
+                events = new ArrayList<>();
+            }
+        }
+        if (!events.isEmpty()) {
+            retransmitted += events.size();
+            send(events);
+        }
+    }
+
+    private void probe() {
+        lastProgress = System.currentTimeMillis();
+        List<JsonObject> events = new ArrayList<>();
+        for (JsonObject event : unacked) {
+            if (event.getLong("sequence") > sent || events.size() == batchSize) {
+                break;
+            }
+            events.add(event);
+        }
+        if (!events.isEmpty()) {
+            retransmitted += events.size();
+            send(events);
+        }
+    }
+}
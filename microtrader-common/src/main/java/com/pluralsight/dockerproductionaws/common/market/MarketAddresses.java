@@ -0,0 +1,31 @@
+package com.pluralsight.dockerproductionaws.common.market;
+
+/**
+ * Naming of the market data event bus addresses. Besides the address carrying the market data of every company, the
+ * market data of each company is also published on its own address, so consumers interested in a few companies do
+ * not receive the whole market.
+ */
+public final class MarketAddresses {
+
+    private MarketAddresses() {
+    }
+
+    /**
+     * @param address the market data address
+     * @param symbol  the company symbol
+     * @return the address carrying the market data of the given company only, such as `market.MCH`
+     */
+    public static String of(String address, String symbol) {
+        return address + "." + symbol;
+    }
+
+    /**
+     * @param address the market data address
+     * @param symbol  the company symbol
+     * @return the address answering the depth snapshots of the order book of the given company, such as
+     * `market.book.MCH`
+     */
+    public static String book(String address, String symbol) {
+        return address + ".book." + symbol;
+    }
+}
@@ -0,0 +1,132 @@
+package com.pluralsight.dockerproductionaws.common.market;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * An immutable market quote.
+ * <p>
+ * Quotes travel on the event bus in a compact binary form (see {@link QuoteCodec}). The JSON representation is only
+ * built by the components that hand quotes over to the outside world (REST API, SockJS bridge...).
+ */
+public final class Quote {
+
+    /**
+     * The exchange of every quote. It is constant, so it is never sent on the wire.
+     */
+    public static final String EXCHANGE = "vert.x stock exchange";
+
+    private final String symbol;
+    private final String name;
+    private final double bid;
+    private final double ask;
+    private final int volume;
+    private final double open;
+    private final int shares;
+    private final int bidSize;
+    private final int askSize;
+
+    public Quote(String symbol, String name, double bid, double ask, int volume, double open, int shares) {
+        this(symbol, name, bid, ask, volume, open, shares, 0, 0);
+    }
+
+    /**
+     * @param bidSize the size available at the best bid, 0 if unknown
+     * @param askSize the size available at the best ask, 0 if unknown
+     */
+    public Quote(String symbol, String name, double bid, double ask, int volume, double open, int shares,
+                 int bidSize, int askSize) {
+        this.symbol = symbol;
+        this.name = name;
+        this.bid = bid;
+        this.ask = ask;
+        this.volume = volume;
+        this.open = open;
+        this.shares = shares;
+        this.bidSize = bidSize;
+        this.askSize = askSize;
+    }
+
+    /**
+     * Creates a {@link Quote} from its JSON representation.
+     *
+     * @param json the json object
+     * @return the quote
+     */
+    public static Quote fromJson(JsonObject json) {
+        return new Quote(
+                json.getString("symbol"),
+                json.getString("name"),
+                json.getDouble("bid", 0.0),
+                json.getDouble("ask", 0.0),
+                json.getInteger("volume", 0),
+                json.getDouble("open", 0.0),
+                json.getInteger("shares", 0),
+                json.getInteger("bidSize", 0),
+                json.getInteger("askSize", 0));
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getBid() {
+        return bid;
+    }
+
+    public double getAsk() {
+        return ask;
+    }
+
+    public int getVolume() {
+        return volume;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+
+    public int getShares() {
+        return shares;
+    }
+
+    /**
+     * @return the size available at the best bid (top of the order book), 0 if unknown
+     */
+    public int getBidSize() {
+        return bidSize;
+    }
+
+    /**
+     * @return the size available at the best ask (top of the order book), 0 if unknown
+     */
+    public int getAskSize() {
+        return askSize;
+    }
+
+    /**
+     * @return a json representation of the market data (quote). The structure is close to
+     * <a href="https://en.wikipedia.org/wiki/Market_data">https://en.wikipedia.org/wiki/Market_data</a>.
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("exchange", EXCHANGE)
+                .put("symbol", symbol)
+                .put("name", name)
+                .put("bid", bid)
+                .put("ask", ask)
+                .put("volume", volume)
+                .put("open", open)
+                .put("shares", shares)
+                .put("bidSize", bidSize)
+                .put("askSize", askSize);
+    }
+
+    @Override
+    public String toString() {
+        return "Quote{" + symbol + " bid=" + bid + " ask=" + ask + " shares=" + shares + "}";
+    }
+}
@@ -0,0 +1,90 @@
+package com.pluralsight.dockerproductionaws.common.market;
+
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Market data consumer handler, passing full {@link Quote}s to the given handler whether the market data is
+ * published as full quotes or in delta mode ({@link QuoteDelta}).
+ * <p>
+ * In delta mode, the last quote of each symbol is rebuilt from the snapshot and the following deltas. When a gap in
+ * the sequence is detected, the symbol is ignored until its next snapshot. Instances are not thread safe, use one per
+ * consumer.
+ */
+public class QuoteAssembler implements Handler<Message<Object>> {
+
+    private final Handler<Quote> handler;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long gaps;
+
+    public QuoteAssembler(Handler<Quote> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handle(Message<Object> message) {
+        Object body = message.body();
+        Quote quote = body instanceof QuoteDelta ? apply((QuoteDelta) body) : (Quote) body;
+        if (quote != null) {
+            handler.handle(quote);
+        }
+    }
+
+    /**
+     * Applies a delta message to the last quote of its symbol.
+     *
+     * @param delta the message
+     * @return the updated quote, {@code null} if the quote cannot be rebuilt (a previous message is missing)
+     */
+    public Quote apply(QuoteDelta delta) {
+        Entry entry = entries.get(delta.getSymbol());
+        if (delta.isSnapshot()) {
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(delta.getSymbol(), entry);
+            }
+            entry.sequence = delta.getSequence();
+            entry.quote = new Quote(delta.getSymbol(), delta.getName(), delta.getBid(), delta.getAsk(),
+                    delta.getVolume(), delta.getOpen(), delta.getShares(), delta.getBidSize(), delta.getAskSize());
+            entry.stale = false;
+            return entry.quote;
+        }
+        if (entry == null || entry.stale) {
+            // Waiting for a snapshot
+            return null;
+        }
+        if (delta.getSequence() != entry.sequence + 1) {
+            gaps++;
+            entry.stale = true;
+            return null;
+        }
+        Quote last = entry.quote;
+        entry.sequence = delta.getSequence();
+        entry.quote = new Quote(last.getSymbol(),
+                delta.has(QuoteDelta.NAME) ? delta.getName() : last.getName(),
+                delta.has(QuoteDelta.BID) ? delta.getBid() : last.getBid(),
+                delta.has(QuoteDelta.ASK) ? delta.getAsk() : last.getAsk(),
+                delta.has(QuoteDelta.VOLUME) ? delta.getVolume() : last.getVolume(),
+                delta.has(QuoteDelta.OPEN) ? delta.getOpen() : last.getOpen(),
+                delta.has(QuoteDelta.SHARES) ? delta.getShares() : last.getShares(),
+                delta.has(QuoteDelta.BID_SIZE) ? delta.getBidSize() : last.getBidSize(),
+                delta.has(QuoteDelta.ASK_SIZE) ? delta.getAskSize() : last.getAskSize());
+        return entry.quote;
+    }
+
+    /**
+     * @return the number of gaps detected in the delta sequences
+     */
+    public long gaps() {
+        return gaps;
+    }
+
+    private static class Entry {
+        private Quote quote;
+        private long sequence;
+        private boolean stale;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pluralsight.dockerproductionaws.common.market;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Event bus codec for {@link Quote}.
+ * <p>
+ * The wire layout is a fixed block of numeric fields followed by the length-prefixed symbol and name:
+ * <pre>
+ *   bid (double) | ask (double) | open (double) | volume (int) | shares (int) | bid size (int) | ask size (int) |
+ *   symbol (short + utf8) | name (short + utf8)
+ * </pre>
+ * Local delivery hands over the same instance, quotes being immutable.
+ */
+public class QuoteCodec implements MessageCodec<Quote, Quote> {
+
+    public static final String NAME = "quote";
+
+    /**
+     * Registers the market data codecs as the default codecs for {@link Quote} and {@link QuoteDelta} on the given
+     * event bus. Does nothing if they have already been registered.
+     *
+     * @param eventBus the event bus
+     */
+    public static void register(EventBus eventBus) {
+        try {
+            eventBus.registerDefaultCodec(Quote.class, new QuoteCodec());
+            eventBus.registerDefaultCodec(QuoteDelta.class, new QuoteDeltaCodec());
+        } catch (IllegalStateException ex) {
+            // Already registered
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, Quote quote) {
+        buffer.appendDouble(quote.getBid())
+                .appendDouble(quote.getAsk())
+                .appendDouble(quote.getOpen())
+                .appendInt(quote.getVolume())
+                .appendInt(quote.getShares())
+                .appendInt(quote.getBidSize())
+                .appendInt(quote.getAskSize());
+        appendString(buffer, quote.getSymbol());
+        appendString(buffer, quote.getName());
+    }
+
+    @Override
+    public Quote decodeFromWire(int pos, Buffer buffer) {
+        double bid = buffer.getDouble(pos);
+        double ask = buffer.getDouble(pos + 8);
+        double open = buffer.getDouble(pos + 16);
+        int volume = buffer.getInt(pos + 24);
+        int shares = buffer.getInt(pos + 28);
+        int bidSize = buffer.getInt(pos + 32);
+        int askSize = buffer.getInt(pos + 36);
+        pos += 40;
+        int symbolLength = buffer.getUnsignedShort(pos);
+        String symbol = buffer.getString(pos + 2, pos + 2 + symbolLength, "UTF-8");
+        pos += 2 + symbolLength;
+        int nameLength = buffer.getUnsignedShort(pos);
+        String name = buffer.getString(pos + 2, pos + 2 + nameLength, "UTF-8");
+        return new Quote(symbol, name, bid, ask, volume, open, shares, bidSize, askSize);
+    }
+
+    @Override
+    public Quote transform(Quote quote) {
+        return quote;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    private static void appendString(Buffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.appendUnsignedShort(bytes.length).appendBytes(bytes);
+    }
+}
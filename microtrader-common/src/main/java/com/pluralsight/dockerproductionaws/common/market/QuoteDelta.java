@@ -0,0 +1,108 @@
+package com.pluralsight.dockerproductionaws.common.market;
+
+/**
+ * A market data message published in delta mode. Only the fields flagged in {@link #getFields()} are meaningful: the
+ * first message of a symbol, and then every few messages, is a snapshot carrying all the fields, the other messages
+ * only carry the fields that changed since the previous message.
+ * <p>
+ * Messages are numbered per symbol, so consumers can detect gaps. Use a {@link QuoteAssembler} to rebuild the full
+ * quotes.
+ */
+public final class QuoteDelta {
+
+    public static final int NAME = 1;
+    public static final int BID = 1 << 1;
+    public static final int ASK = 1 << 2;
+    public static final int VOLUME = 1 << 3;
+    public static final int OPEN = 1 << 4;
+    public static final int SHARES = 1 << 5;
+    public static final int BID_SIZE = 1 << 6;
+    public static final int ASK_SIZE = 1 << 7;
+    public static final int ALL = NAME | BID | ASK | VOLUME | OPEN | SHARES | BID_SIZE | ASK_SIZE;
+
+    private final String symbol;
+    private final long sequence;
+    private final int fields;
+    private final String name;
+    private final double bid;
+    private final double ask;
+    private final int volume;
+    private final double open;
+    private final int shares;
+    private final int bidSize;
+    private final int askSize;
+
+    public QuoteDelta(String symbol, long sequence, int fields, String name, double bid, double ask, int volume,
+                      double open, int shares, int bidSize, int askSize) {
+        this.symbol = symbol;
+        this.sequence = sequence;
+        this.fields = fields;
+        this.name = name;
+        this.bid = bid;
+        this.ask = ask;
+        this.volume = volume;
+        this.open = open;
+        this.shares = shares;
+        this.bidSize = bidSize;
+        this.askSize = askSize;
+    }
+
+    /**
+     * @return whether the message carries all the fields of the quote
+     */
+    public boolean isSnapshot() {
+        return fields == ALL;
+    }
+
+    /**
+     * @param field the field flag
+     * @return whether the message carries the given field
+     */
+    public boolean has(int field) {
+        return (fields & field) != 0;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getFields() {
+        return fields;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getBid() {
+        return bid;
+    }
+
+    public double getAsk() {
+        return ask;
+    }
+
+    public int getVolume() {
+        return volume;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+
+    public int getShares() {
+        return shares;
+    }
+
+    public int getBidSize() {
+        return bidSize;
+    }
+
+    public int getAskSize() {
+        return askSize;
+    }
+}
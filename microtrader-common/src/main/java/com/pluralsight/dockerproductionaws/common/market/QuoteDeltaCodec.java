@@ -0,0 +1,121 @@
+package com.pluralsight.dockerproductionaws.common.market;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Event bus codec for {@link QuoteDelta}.
+ * <p>
+ * The wire layout is the sequence, the field flags and the symbol, followed by the flagged fields only:
+ * <pre>
+ *   sequence (long) | fields (byte) | symbol (short + utf8) | [name (short + utf8)] | [bid] | [ask] | [open] |
+ *   [volume] | [shares] | [bid size] | [ask size]
+ * </pre>
+ */
+public class QuoteDeltaCodec implements MessageCodec<QuoteDelta, QuoteDelta> {
+
+    public static final String NAME = "quote-delta";
+
+    @Override
+    public void encodeToWire(Buffer buffer, QuoteDelta delta) {
+        buffer.appendLong(delta.getSequence()).appendByte((byte) delta.getFields());
+        appendString(buffer, delta.getSymbol());
+        if (delta.has(QuoteDelta.NAME)) {
+            appendString(buffer, delta.getName());
+        }
+        if (delta.has(QuoteDelta.BID)) {
+            buffer.appendDouble(delta.getBid());
+        }
+        if (delta.has(QuoteDelta.ASK)) {
+            buffer.appendDouble(delta.getAsk());
+        }
+        if (delta.has(QuoteDelta.OPEN)) {
+            buffer.appendDouble(delta.getOpen());
+        }
+        if (delta.has(QuoteDelta.VOLUME)) {
+            buffer.appendInt(delta.getVolume());
+        }
+        if (delta.has(QuoteDelta.SHARES)) {
+            buffer.appendInt(delta.getShares());
+        }
+        if (delta.has(QuoteDelta.BID_SIZE)) {
+            buffer.appendInt(delta.getBidSize());
+        }
+        if (delta.has(QuoteDelta.ASK_SIZE)) {
+            buffer.appendInt(delta.getAskSize());
+        }
+    }
+
+    @Override
+    public QuoteDelta decodeFromWire(int pos, Buffer buffer) {
+        long sequence = buffer.getLong(pos);
+        int fields = buffer.getByte(pos + 8) & 0xFF;
+        pos += 9;
+        int length = buffer.getUnsignedShort(pos);
+        String symbol = buffer.getString(pos + 2, pos + 2 + length, "UTF-8");
+        pos += 2 + length;
+        String name = null;
+        double bid = 0;
+        double ask = 0;
+        double open = 0;
+        int volume = 0;
+        int shares = 0;
+        int bidSize = 0;
+        int askSize = 0;
+        if ((fields & QuoteDelta.NAME) != 0) {
+            length = buffer.getUnsignedShort(pos);
+            name = buffer.getString(pos + 2, pos + 2 + length, "UTF-8");
+            pos += 2 + length;
+        }
+        if ((fields & QuoteDelta.BID) != 0) {
+            bid = buffer.getDouble(pos);
+            pos += 8;
+        }
+        if ((fields & QuoteDelta.ASK) != 0) {
+            ask = buffer.getDouble(pos);
+            pos += 8;
+        }
+        if ((fields & QuoteDelta.OPEN) != 0) {
+            open = buffer.getDouble(pos);
+            pos += 8;
+        }
+        if ((fields & QuoteDelta.VOLUME) != 0) {
+            volume = buffer.getInt(pos);
+            pos += 4;
+        }
+        if ((fields & QuoteDelta.SHARES) != 0) {
+            shares = buffer.getInt(pos);
+            pos += 4;
+        }
+        if ((fields & QuoteDelta.BID_SIZE) != 0) {
+            bidSize = buffer.getInt(pos);
+            pos += 4;
+        }
+        if ((fields & QuoteDelta.ASK_SIZE) != 0) {
+            askSize = buffer.getInt(pos);
+        }
+        return new QuoteDelta(symbol, sequence, fields, name, bid, ask, volume, open, shares, bidSize, askSize);
+    }
+
+    @Override
+    public QuoteDelta transform(QuoteDelta delta) {
+        return delta;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    private static void appendString(Buffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.appendUnsignedShort(bytes.length).appendBytes(bytes);
+    }
+}
@@ -0,0 +1,160 @@
+package com.pluralsight.dockerproductionaws.common;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import io.vertx.servicediscovery.ServiceReference;
+import io.vertx.servicediscovery.types.MessageSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class ServicePoolTest {
+    private static final JsonObject FILTER = new JsonObject().put("name", "echo");
+
+    private Vertx vertx;
+    private Context context;
+    private ServiceDiscovery discovery;
+    private List<Record> records = new ArrayList<>();
+
+    @Before
+    public void testSetup(TestContext test) {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        discovery = ServiceDiscovery.create(vertx, new ServiceDiscoveryOptions());
+        for (String endpoint : new String[]{"echo.a", "echo.b"}) {
+            discovery.publish(MessageSource.createRecord("echo", endpoint), test.asyncAssertSuccess(records::add));
+        }
+    }
+
+    @After
+    public void tearDown(TestContext test) {
+        discovery.close();
+        vertx.close(test.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testRoundRobin(TestContext test) {
+        Async async = test.async();
+        context.runOnContext(v -> {
+            ServicePool pool = new ServicePool(vertx, discovery, FILTER, ServicePool.Strategy.ROUND_ROBIN);
+            List<String> endpoints = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(endpoints::add));
+            }
+            pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(last -> {
+                assertThat(pool.size()).isEqualTo(2);
+                assertThat(endpoints).containsOnly("echo.a", "echo.b");
+                assertThat(endpoints.get(0)).isNotEqualTo(endpoints.get(1));
+                assertThat(endpoints.get(2)).isEqualTo(endpoints.get(0));
+                assertThat(endpoints.get(3)).isEqualTo(endpoints.get(1));
+                async.complete();
+            }));
+        });
+    }
+
+    @Test
+    public void testLeastInFlight(TestContext test) {
+        Async async = test.async();
+        context.runOnContext(v -> {
+            ServicePool pool = new ServicePool(vertx, discovery, FILTER, ServicePool.Strategy.LEAST_IN_FLIGHT);
+            List<Handler<AsyncResult<String>>> held = new ArrayList<>();
+            List<String> busy = new ArrayList<>();
+            // The first call does not complete, the next ones go to the other service
+            pool.<String>execute((reference, done) -> {
+                busy.add(reference.record().getLocation().getString("endpoint"));
+                held.add(done);
+            }, ar -> {
+            });
+            pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(first -> {
+                assertThat(first).isNotEqualTo(busy.get(0));
+                pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(second -> {
+                    assertThat(second).isEqualTo(first);
+                    // Once the first call completes, its service is the least busy again
+                    held.get(0).handle(Future.succeededFuture(busy.get(0)));
+                    pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(third -> {
+                        assertThat(third).isEqualTo(busy.get(0));
+                        async.complete();
+                    }));
+                }));
+            }));
+        });
+    }
+
+    @Test
+    public void testFollowsTheAnnounces(TestContext test) {
+        Async async = test.async();
+        context.runOnContext(v -> {
+            ServicePool pool = new ServicePool(vertx, discovery, FILTER, ServicePool.Strategy.ROUND_ROBIN);
+            pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(first -> {
+                assertThat(pool.size()).isEqualTo(2);
+                Record gone = records.get(0);
+                discovery.unpublish(gone.getRegistration(), test.asyncAssertSuccess(unpublished ->
+                        vertx.setPeriodic(10, timer -> {
+                            if (pool.size() != 1) {
+                                return;
+                            }
+                            vertx.cancelTimer(timer);
+                            String remaining = records.get(1).getLocation().getString("endpoint");
+                            pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(a -> {
+                                assertThat(a).isEqualTo(remaining);
+                                pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(b -> {
+                                    assertThat(b).isEqualTo(remaining);
+                                    async.complete();
+                                }));
+                            }));
+                        })));
+            }));
+        });
+    }
+
+    @Test
+    public void testCallsThatThrowReleaseTheirService(TestContext test) {
+        Async async = test.async();
+        context.runOnContext(v -> {
+            ServicePool pool = new ServicePool(vertx, discovery, FILTER, ServicePool.Strategy.LEAST_IN_FLIGHT);
+            List<String> thrown = new ArrayList<>();
+            pool.<String>execute((reference, done) -> {
+                thrown.add(reference.record().getLocation().getString("endpoint"));
+                throw new IllegalStateException("broken proxy");
+            }, test.asyncAssertFailure(failure -> {
+                assertThat(failure).hasMessage("broken proxy");
+                // Not in flight anymore, the service is picked again
+                pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertSuccess(endpoint -> {
+                    assertThat(endpoint).isEqualTo(thrown.get(0));
+                    async.complete();
+                }));
+            }));
+        });
+    }
+
+    @Test
+    public void testNoService(TestContext test) {
+        Async async = test.async();
+        context.runOnContext(v -> {
+            ServicePool pool = new ServicePool(vertx, discovery, new JsonObject().put("name", "missing"),
+                    ServicePool.Strategy.ROUND_ROBIN);
+            pool.<String>execute(ServicePoolTest::endpoint, test.asyncAssertFailure(t -> async.complete()));
+        });
+    }
+
+    private static void endpoint(ServiceReference reference, Handler<AsyncResult<String>> done) {
+        done.handle(Future.succeededFuture(reference.record().getLocation().getString("endpoint")));
+    }
+}
@@ -0,0 +1,153 @@
+package com.pluralsight.dockerproductionaws.common.events;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class SequencedStreamTest {
+    private static final String ADDRESS = "events";
+
+    private Vertx vertx;
+    private Context context;
+    private List<Integer> received = new CopyOnWriteArrayList<>();
+    private SequencedConsumer consumer;
+    private AtomicBoolean failing = new AtomicBoolean();
+
+    @Before
+    public void testSetup() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        consumer = new SequencedConsumer((events, done) -> {
+            if (failing.get()) {
+                done.handle(Future.failedFuture("unavailable"));
+                return;
+            }
+            events.forEach(event -> received.add(event.getInteger("n")));
+            done.handle(Future.succeededFuture());
+        });
+        vertx.eventBus().consumer(ADDRESS, consumer);
+    }
+
+    @After
+    public void tearDown(TestContext test) {
+        vertx.close(test.asyncAssertSuccess());
+    }
+
+    private List<SequencedPublisher> publish(int batchSize, int capacity, int count) {
+        List<SequencedPublisher> publisher = new ArrayList<>();
+        context.runOnContext(v -> {
+            publisher.add(new SequencedPublisher(vertx, ADDRESS, batchSize, 50, 200, capacity));
+            for (int n = 0; n < count; n++) {
+                publisher.get(0).publish(new JsonObject().put("n", n));
+            }
+        });
+        return publisher;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> range = new ArrayList<>();
+        for (int n = from; n < to; n++) {
+            range.add(n);
+        }
+        return range;
+    }
+
+    @Test
+    public void testEventsAreBatched() {
+        List<SequencedPublisher> publisher = publish(4, 1000, 10);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> received.size() == 10);
+        assertThat(received).isEqualTo(range(0, 10));
+        // Two full envelopes, the last one sent at the end of the window
+        assertThat(publisher.get(0).envelopes()).isEqualTo(3);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> publisher.get(0).acked() == 10);
+    }
+
+    @Test
+    public void testLostEnvelopesAreRetransmitted() {
+        AtomicBoolean dropped = new AtomicBoolean();
+        vertx.eventBus().addOutboundInterceptor(delivery -> {
+            if (delivery.message().address().equals(ADDRESS) && dropped.compareAndSet(false, true)) {
+                // Lose the first envelope
+                return;
+            }
+            delivery.next();
+        });
+        List<SequencedPublisher> publisher = publish(4, 1000, 10);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> received.size() == 10);
+        assertThat(received).isEqualTo(range(0, 10));
+        assertThat(consumer.gaps()).isGreaterThan(0);
+        assertThat(publisher.get(0).retransmitted()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testEventsAreOnlyAcknowledgedOnceProcessed() {
+        failing.set(true);
+        List<SequencedPublisher> publisher = publish(4, 1000, 10);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> consumer.failures() > 0);
+        assertThat(publisher.get(0).acked()).isEqualTo(0);
+        failing.set(false);
+        // The publisher still holds the events the handler failed to process, and sends them again
+        await().atMost(5, TimeUnit.SECONDS).until(() -> received.size() == 10);
+        assertThat(received).isEqualTo(range(0, 10));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> publisher.get(0).acked() == 10);
+        assertThat(consumer.lost()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDroppedEventsAreReportedLost() {
+        AtomicBoolean blocked = new AtomicBoolean(true);
+        vertx.eventBus().addOutboundInterceptor(delivery -> {
+            if (!delivery.message().address().equals(ADDRESS) || !blocked.get()) {
+                delivery.next();
+            }
+        });
+        publish(4, 6, 10);
+        // Only the last 6 events are still held when the consumer comes back
+        vertx.setTimer(100, timer -> blocked.set(false));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> received.size() == 6);
+        assertThat(received).isEqualTo(range(4, 10));
+        assertThat(consumer.lost()).isEqualTo(4);
+    }
+
+    @Test
+    public void testRetransmissionsBackOffWhileNothingAnswers() throws InterruptedException {
+        AtomicBoolean blocked = new AtomicBoolean(true);
+        vertx.eventBus().addOutboundInterceptor(delivery -> {
+            if (!delivery.message().address().equals(ADDRESS) || !blocked.get()) {
+                delivery.next();
+            }
+        });
+        List<SequencedPublisher> publisher = publish(4, 1000, 10);
+        Thread.sleep(2000);
+        // The 3 envelopes, sent again once, then single probes at 400, 800 ms... instead of all of them every 200 ms
+        assertThat(publisher.get(0).envelopes()).isLessThanOrEqualTo(9);
+        blocked.set(false);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> received.size() == 10);
+        assertThat(received).isEqualTo(range(0, 10));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> publisher.get(0).acked() == 10);
+    }
+
+    @Test
+    public void testUnsequencedEventsAreDelivered() {
+        vertx.eventBus().send(ADDRESS, new JsonObject().put("n", 42));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> received.size() == 1);
+        assertThat(received).containsExactly(42);
+    }
+}
@@ -1,6 +1,8 @@
 package com.pluralsight.dockerproductionaws.traderdashboard;
 
 import com.pluralsight.dockerproductionaws.common.MicroserviceVerticle;
+import com.pluralsight.dockerproductionaws.common.ServicePool;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import io.vertx.circuitbreaker.CircuitBreaker;
@@ -8,7 +10,6 @@ import io.vertx.circuitbreaker.CircuitBreakerOptions;
 import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClient;
-import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
@@ -19,18 +20,15 @@ import io.vertx.ext.web.handler.sockjs.PermittedOptions;
 import io.vertx.ext.web.handler.sockjs.SockJSHandler;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceDiscoveryOptions;
-import io.vertx.servicediscovery.ServiceReference;
 import io.vertx.servicediscovery.rest.ServiceDiscoveryRestEndpoint;
-import io.vertx.servicediscovery.types.HttpEndpoint;
 
 /**
  * Created by jmenga on 12/09/16.
  */
 public class DashboardVerticle extends MicroserviceVerticle {
     private CircuitBreaker circuit;
-    private HttpClient client;
+    private ServicePool audit;
     private Config config;
-    private String root;
 
     @Override
     public void start(Future<Void> future) {
@@ -40,17 +38,24 @@ public class DashboardVerticle extends MicroserviceVerticle {
         discovery = ServiceDiscovery.create(vertx, new ServiceDiscoveryOptions().setBackendConfiguration(config()));
         Router router = Router.router(vertx);
 
+        // Market data travels in binary form on the event bus, the bridge only gets the JSON form of the companies
+        // the browsers listen to
+        QuoteCodec.register(vertx.eventBus());
+        MarketBridge marketBridge = new MarketBridge(vertx, config.getString("market.address"),
+                config.getString("market.bridge.address"));
+
         // Event bus bridge
         SockJSHandler sockJSHandler = SockJSHandler.create(vertx);
         BridgeOptions options = new BridgeOptions();
         options
-                .addOutboundPermitted(new PermittedOptions().setAddress(config.getString("market.address")))
+                .addOutboundPermitted(new PermittedOptions().setAddressRegex(marketBridge.addressRegex()))
                 .addOutboundPermitted(new PermittedOptions().setAddress(config.getString("portfolio.address")))
                 .addOutboundPermitted(new PermittedOptions().setAddress("service.portfolio"))
+                .addOutboundPermitted(new PermittedOptions().setAddressRegex("portfolio\\.valuation\\..+"))
                 .addInboundPermitted(new PermittedOptions().setAddress("service.portfolio"))
                 .addOutboundPermitted(new PermittedOptions().setAddress("vertx.circuit-breaker"));
 
-        sockJSHandler.bridge(options);
+        sockJSHandler.bridge(options, marketBridge);
         router.route("/eventbus/*").handler(sockJSHandler);
 
         // Discovery endpoint
@@ -68,8 +73,10 @@ public class DashboardVerticle extends MicroserviceVerticle {
                         .setMaxFailures(2)
                         .setFallbackOnFailure(true)
                         .setResetTimeout(2000)
-                        .setTimeout(1000))
-                        .openHandler(v -> retrieveAuditService());
+                        .setTimeout(1000));
+
+        // The audit services, called in turn by the fewest pending requests
+        audit = services(new JsonObject().put("name", "audit"), ServicePool.Strategy.LEAST_IN_FLIGHT);
 
         vertx.createHttpServer()
                 .requestHandler(router::accept)
@@ -77,46 +84,29 @@ public class DashboardVerticle extends MicroserviceVerticle {
                     if (ar.failed()) {
                         future.fail(ar.cause());
                     } else {
-                        retrieveAuditService();
                         future.complete();
                     }
                 });
     }
 
-    private Future<Void> retrieveAuditService() {
-        Future<Void> future = Future.future();
-
-        discovery.getRecord(new JsonObject().put("name", "audit"), ar -> {
-            if (ar.failed()) {
-                future.fail(ar.cause());
-            } else if (ar.result() == null) {
-                future.fail("Could not retrieve audit service");
-            } else {
-                ServiceReference reference = discovery.getReference(ar.result());
-                this.root = reference.record().getLocation().getString("root");
-                this.client = reference.get();
-                future.complete();
-            }
-        });
-
-        return future;
-    }
-
     private void callAuditServiceWithExceptionHandlerWithCircuitBreaker(RoutingContext context) {
         HttpServerResponse resp = context.response()
                 .putHeader("content-type", "application/json")
                 .setStatusCode(200);
 
         circuit.executeWithFallback(
-                future ->
-                        client.get(root, response -> {
-                            response
-                                    .exceptionHandler(future::fail)
-                                    .bodyHandler(future::complete);
-                        })
-                                .exceptionHandler(future::fail)
-                                .setTimeout(5000)
-                                .end(),
+                future -> audit.<Buffer>execute((reference, done) -> {
+                            HttpClient client = reference.get();
+                            String root = reference.record().getLocation().getString("root");
+                            client.get(root, response -> {
+                                response
+                                        .exceptionHandler(t -> done.handle(Future.failedFuture(t)))
+                                        .bodyHandler(body -> done.handle(Future.succeededFuture(body)));
+                            })
+                                    .exceptionHandler(t -> done.handle(Future.failedFuture(t)))
+                                    .setTimeout(5000)
+                                    .end();
+                        }, future.completer()),
                 t -> Buffer.buffer("{\"message\":\"No audit service, or unable to call it\"}")
         )
                 .setHandler(ar -> resp.end(ar.result()));
@@ -0,0 +1,87 @@
+package com.pluralsight.dockerproductionaws.traderdashboard;
+
+import com.pluralsight.dockerproductionaws.common.market.QuoteAssembler;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.ext.bridge.BridgeEventType;
+import io.vertx.ext.web.handler.sockjs.BridgeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Forwards the market data to the browsers, in JSON form, only while they listen to it.
+ * <p>
+ * Browsers register either on the bridge address (the whole market) or on the bridge address of a company, such as
+ * `dashboard.market.MCH`. The dashboard consumes the matching market data address (`market` or `market.MCH`) as long
+ * as at least one browser is registered on the corresponding bridge address.
+ */
+class MarketBridge implements Handler<BridgeEvent> {
+
+    private final Vertx vertx;
+    private final String marketAddress;
+    private final String bridgeAddress;
+    private final Pattern addresses;
+    private final DeliveryOptions delivery = new DeliveryOptions().setLocalOnly(true);
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+
+    MarketBridge(Vertx vertx, String marketAddress, String bridgeAddress) {
+        this.vertx = vertx;
+        this.marketAddress = marketAddress;
+        this.bridgeAddress = bridgeAddress;
+        this.addresses = Pattern.compile(Pattern.quote(bridgeAddress) + "(\\.[^.]+)?");
+    }
+
+    /**
+     * @return the regular expression matching the bridge addresses
+     */
+    String addressRegex() {
+        return addresses.pattern();
+    }
+
+    @Override
+    public void handle(BridgeEvent event) {
+        if (event.type() == BridgeEventType.REGISTER || event.type() == BridgeEventType.UNREGISTER) {
+            String address = event.getRawMessage().getString("address");
+            if (address != null && addresses.matcher(address).matches()) {
+                if (event.type() == BridgeEventType.REGISTER) {
+                    subscribe(address);
+                } else {
+                    unsubscribe(address);
+                }
+            }
+        }
+        event.complete(true);
+    }
+
+    private void subscribe(String address) {
+        Subscription subscription = subscriptions.get(address);
+        if (subscription == null) {
+            String source = marketAddress + address.substring(bridgeAddress.length());
+            subscription = new Subscription(vertx.eventBus().consumer(source, new QuoteAssembler(quote ->
+                    vertx.eventBus().publish(address, quote.toJson(), delivery))));
+            subscriptions.put(address, subscription);
+        }
+        subscription.browsers++;
+    }
+
+    private void unsubscribe(String address) {
+        Subscription subscription = subscriptions.get(address);
+        if (subscription != null && --subscription.browsers == 0) {
+            subscription.consumer.unregister();
+            subscriptions.remove(address);
+        }
+    }
+
+    private static class Subscription {
+        private final MessageConsumer<Object> consumer;
+        private int browsers;
+
+        Subscription(MessageConsumer<Object> consumer) {
+            this.consumer = consumer;
+        }
+    }
+}
@@ -114,6 +114,165 @@
       } else throw new TypeError('function invoked with invalid arguments');
     };
 
+    /**
+
+     @public
+     @param account {string} 
+     @param resultHandler {function} 
+     */
+    this.getAccount = function(account, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 2 && typeof __args[0] === 'string' && typeof __args[1] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"account":__args[0]}, {"action":"getAccount"}, function(err, result) { __args[1](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
+
+    /**
+
+     @public
+     @param account {string} 
+     @param amount {number} 
+     @param quote {Object} 
+     @param resultHandler {function} 
+     */
+    this.buyFor = function(account, amount, quote, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 4 && typeof __args[0] === 'string' && typeof __args[1] ==='number' && (typeof __args[2] === 'object' && __args[2] != null) && typeof __args[3] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"account":__args[0], "amount":__args[1], "quote":__args[2]}, {"action":"buyFor"}, function(err, result) { __args[3](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
+
+    /**
+
+     @public
+     @param account {string} 
+     @param amount {number} 
+     @param quote {Object} 
+     @param resultHandler {function} 
+     */
+    this.sellFor = function(account, amount, quote, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 4 && typeof __args[0] === 'string' && typeof __args[1] ==='number' && (typeof __args[2] === 'object' && __args[2] != null) && typeof __args[3] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"account":__args[0], "amount":__args[1], "quote":__args[2]}, {"action":"sellFor"}, function(err, result) { __args[3](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
+
+    /**
+
+     @public
+     @param account {string} 
+     @param resultHandler {function} 
+     */
+    this.evaluateAccount = function(account, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 2 && typeof __args[0] === 'string' && typeof __args[1] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"account":__args[0]}, {"action":"evaluateAccount"}, function(err, result) { __args[1](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
+
+    /**
+
+     @public
+     @param account {string} 
+     @param resultHandler {function} 
+     */
+    this.getValuation = function(account, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 2 && typeof __args[0] === 'string' && typeof __args[1] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"account":__args[0]}, {"action":"getValuation"}, function(err, result) { __args[1](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
+
+    /**
+
+     @public
+     @param account {string} 
+     @param orders {Array.<Object>} 
+     @param resultHandler {function} 
+     */
+    this.trade = function(account, orders, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 3 && typeof __args[0] === 'string' && typeof __args[1] === 'object' && __args[1] instanceof Array && typeof __args[2] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"account":__args[0], "orders":__args[1]}, {"action":"trade"}, function(err, result) { __args[2](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
+
+    /**
+
+     @public
+     @param orders {Object} 
+     @param resultHandler {function} 
+     */
+    this.tradeAccounts = function(orders, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 2 && (typeof __args[0] === 'object' && __args[0] != null) && typeof __args[1] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"orders":__args[0]}, {"action":"tradeAccounts"}, function(err, result) { __args[1](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
+
+    /**
+
+     @public
+     @param account {string} 
+     @param order {Object} 
+     @param resultHandler {function} 
+     */
+    this.placeOrder = function(account, order, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 3 && typeof __args[0] === 'string' && (typeof __args[1] === 'object' && __args[1] != null) && typeof __args[2] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"account":__args[0], "order":__args[1]}, {"action":"placeOrder"}, function(err, result) { __args[2](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
+
+    /**
+
+     @public
+     @param account {string} 
+     @param id {number} 
+     @param resultHandler {function} 
+     */
+    this.cancelOrder = function(account, id, resultHandler) {
+      var __args = arguments;
+      if (__args.length === 3 && typeof __args[0] === 'string' && typeof __args[1] ==='number' && typeof __args[2] === 'function') {
+        if (closed) {
+          throw new Error('Proxy is closed');
+        }
+        j_eb.send(j_address, {"account":__args[0], "id":__args[1]}, {"action":"cancelOrder"}, function(err, result) { __args[2](err, result &&result.body); });
+        return;
+      } else throw new TypeError('function invoked with invalid arguments');
+    };
   };
 
   /**
@@ -161,6 +161,72 @@ public class PortfolioServiceVertxProxyHandler extends ProxyHandler {
           service.evaluate(createHandler(msg));
           break;
         }
+        case "getAccount": {
+          service.getAccount((java.lang.String)json.getValue("account"), res -> {
+            if (res.failed()) {
+              if (res.cause() instanceof ServiceException) {
+                msg.reply(res.cause());
+              } else {
+                msg.reply(new ServiceException(-1, res.cause().getMessage()));
+              }
+            } else {
+              msg.reply(res.result() == null ? null : res.result().toJson());
+            }
+         });
+          break;
+        }
+        case "buyFor": {
+          service.buyFor((java.lang.String)json.getValue("account"), json.getValue("amount") == null ? null : (json.getLong("amount").intValue()), (io.vertx.core.json.JsonObject)json.getValue("quote"), res -> {
+            if (res.failed()) {
+              if (res.cause() instanceof ServiceException) {
+                msg.reply(res.cause());
+              } else {
+                msg.reply(new ServiceException(-1, res.cause().getMessage()));
+              }
+            } else {
+              msg.reply(res.result() == null ? null : res.result().toJson());
+            }
+         });
+          break;
+        }
+        case "sellFor": {
+          service.sellFor((java.lang.String)json.getValue("account"), json.getValue("amount") == null ? null : (json.getLong("amount").intValue()), (io.vertx.core.json.JsonObject)json.getValue("quote"), res -> {
+            if (res.failed()) {
+              if (res.cause() instanceof ServiceException) {
+                msg.reply(res.cause());
+              } else {
+                msg.reply(new ServiceException(-1, res.cause().getMessage()));
+              }
+            } else {
+              msg.reply(res.result() == null ? null : res.result().toJson());
+            }
+         });
+          break;
+        }
+        case "evaluateAccount": {
+          service.evaluateAccount((java.lang.String)json.getValue("account"), createHandler(msg));
+          break;
+        }
+        case "getValuation": {
+          service.getValuation((java.lang.String)json.getValue("account"), createHandler(msg));
+          break;
+        }
+        case "trade": {
+          service.trade((java.lang.String)json.getValue("account"), json.getJsonArray("orders") == null ? null : json.getJsonArray("orders").stream().map(o -> (JsonObject)o).collect(Collectors.toList()), createHandler(msg));
+          break;
+        }
+        case "tradeAccounts": {
+          service.tradeAccounts((io.vertx.core.json.JsonObject)json.getValue("orders"), createHandler(msg));
+          break;
+        }
+        case "placeOrder": {
+          service.placeOrder((java.lang.String)json.getValue("account"), (io.vertx.core.json.JsonObject)json.getValue("order"), createHandler(msg));
+          break;
+        }
+        case "cancelOrder": {
+          service.cancelOrder((java.lang.String)json.getValue("account"), json.getValue("id") == null ? null : (json.getLong("id").longValue()), createHandler(msg));
+          break;
+        }
         default: {
           throw new IllegalStateException("Invalid action: " + action);
         }
@@ -7,18 +7,42 @@ package com.pluralsight.dockerproductionaws.portfolio;
 import io.vertx.codegen.annotations.DataObject;
 import io.vertx.core.json.JsonObject;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Structure representing a portfolio. It stores the available cash and the owned shares.
+ * <p>
+ * Internally, the companies are identified by an ID interned from their name (see {@link #company(String)}), the owned
+ * shares are stored in parallel arrays of IDs and amounts, sorted by ID and sized by the companies held rather than by
+ * all the companies known to the process, and the cash is stored in fixed point, in units of 1/{@value #CASH_SCALE}.
+ * The trade path uses the primitive accessors, {@link #getShares()} and {@link #getCash()} are views kept for the
+ * converter and the existing callers, and the JSON representation is unchanged.
  */
 @DataObject(generateConverter = true)
 public class Portfolio {
 
-    private Map<String, Integer> shares = new TreeMap<>();
+    /**
+     * The number of cash units per unit of currency.
+     */
+    public static final long CASH_SCALE = 10_000;
+
+    private static final Map<String, Integer> COMPANIES = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+
+    private static final int[] NONE = new int[0];
+
+    private int[] ids = NONE;
+    private int[] amounts = NONE;
+    private int holdings;
 
-    private double cash;
+    private long cash;
 
     /**
      * Creates a new instance of {@link Portfolio}.
@@ -33,7 +57,9 @@ public class Portfolio {
      * @param other the instance to copy
      */
     public Portfolio(Portfolio other) {
-        this.shares = new TreeMap<>(other.shares);
+        this.ids = other.ids.clone();
+        this.amounts = other.amounts.clone();
+        this.holdings = other.holdings;
         this.cash = other.cash;
     }
 
@@ -57,10 +83,10 @@ public class Portfolio {
     }
 
     /**
-     * @return the owned shared
+     * @return the owned shared, a live view sorted by company name
      */
     public Map<String, Integer> getShares() {
-        return shares;
+        return new Shares();
     }
 
     /**
@@ -70,7 +96,10 @@ public class Portfolio {
      * @return the current {@link Portfolio}
      */
     public Portfolio setShares(Map<String, Integer> shares) {
-        this.shares = shares;
+        this.holdings = 0;
+        if (shares != null) {
+            shares.forEach((name, amount) -> setAmount(company(name), amount));
+        }
         return this;
     }
 
@@ -78,7 +107,7 @@ public class Portfolio {
      * @return the available cash.
      */
     public double getCash() {
-        return cash;
+        return (double) cash / CASH_SCALE;
     }
 
     /**
@@ -88,7 +117,7 @@ public class Portfolio {
      * @return the current {@link Portfolio}
      */
     public Portfolio setCash(double cash) {
-        this.cash = cash;
+        this.cash = units(cash);
         return this;
     }
 
@@ -102,10 +131,212 @@ public class Portfolio {
      * @return the number of owned shares, {@literal 0} is none.
      */
     public int getAmount(String name) {
-        Integer current = shares.get(name);
-        if (current == null) {
-            return 0;
+        Integer company = COMPANIES.get(name);
+        return company == null ? 0 : getAmount(company);
+    }
+
+    /**
+     * @param company the ID of the company
+     * @return the number of owned shares, {@literal 0} is none.
+     */
+    public int getAmount(int company) {
+        int index = Arrays.binarySearch(ids, 0, holdings, company);
+        return index >= 0 ? amounts[index] : 0;
+    }
+
+    /**
+     * Sets the number of owned shares of a company, {@literal 0} removes it from the portfolio.
+     *
+     * @param company the ID of the company
+     * @param amount  the number of owned shares
+     */
+    public void setAmount(int company, int amount) {
+        int index = Arrays.binarySearch(ids, 0, holdings, company);
+        if (index >= 0) {
+            if (amount != 0) {
+                amounts[index] = amount;
+            } else {
+                holdings--;
+                System.arraycopy(ids, index + 1, ids, index, holdings - index);
+                System.arraycopy(amounts, index + 1, amounts, index, holdings - index);
+            }
+            return;
+        }
+        if (amount == 0) {
+            return;
+        }
+        index = -index - 1;
+        if (holdings == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, holdings * 2));
+            amounts = Arrays.copyOf(amounts, ids.length);
+        }
+        System.arraycopy(ids, index, ids, index + 1, holdings - index);
+        System.arraycopy(amounts, index, amounts, index + 1, holdings - index);
+        ids[index] = company;
+        amounts[index] = amount;
+        holdings++;
+    }
+
+    /**
+     * @return the number of companies with owned shares
+     */
+    public int holdings() {
+        return holdings;
+    }
+
+    /**
+     * @param holding the index of a holding, from {@literal 0} to {@link #holdings()} excluded, in the order of the IDs
+     * @return the ID of the company of the holding
+     */
+    public int heldCompany(int holding) {
+        return ids[holding];
+    }
+
+    /**
+     * @param holding the index of a holding, from {@literal 0} to {@link #holdings()} excluded, in the order of the IDs
+     * @return the number of owned shares of the holding, never {@literal 0}
+     */
+    public int heldAmount(int holding) {
+        return amounts[holding];
+    }
+
+    /**
+     * @return the available cash, in cash units
+     */
+    public long cashUnits() {
+        return cash;
+    }
+
+    /**
+     * Adds cash, negative to remove it.
+     *
+     * @param units the amount of cash, in cash units
+     */
+    public void deposit(long units) {
+        cash += units;
+    }
+
+    /**
+     * @param amount an amount of currency
+     * @return the amount in cash units, rounded to the closest unit
+     */
+    public static long units(double amount) {
+        return Math.round(amount * CASH_SCALE);
+    }
+
+    /**
+     * Interns the name of a company. IDs are dense, starting at {@literal 0}, and shared by all the portfolios of the
+     * process.
+     *
+     * @param name the name of the company
+     * @return the ID of the company
+     */
+    public static int company(String name) {
+        Integer company = COMPANIES.get(name);
+        if (company != null) {
+            return company;
+        }
+        synchronized (COMPANIES) {
+            company = COMPANIES.get(name);
+            if (company == null) {
+                company = names.length;
+                String[] interned = Arrays.copyOf(names, company + 1);
+                interned[company] = name;
+                names = interned;
+                COMPANIES.put(name, company);
+            }
+            return company;
+        }
+    }
+
+    /**
+     * @param company the ID of a company
+     * @return the name of the company
+     */
+    public static String companyName(int company) {
+        return names[company];
+    }
+
+    /**
+     * The owned shares as a map, in the order of the names of the companies.
+     */
+    private class Shares extends AbstractMap<String, Integer> {
+
+        @Override
+        public Integer get(Object key) {
+            Integer company = COMPANIES.get(key);
+            int amount = company == null ? 0 : getAmount(company);
+            return amount == 0 ? null : amount;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Integer put(String key, Integer value) {
+            int company = company(key);
+            int previous = getAmount(company);
+            setAmount(company, value);
+            return previous == 0 ? null : previous;
+        }
+
+        @Override
+        public Integer remove(Object key) {
+            Integer company = COMPANIES.get(key);
+            int previous = company == null ? 0 : getAmount(company);
+            if (previous == 0) {
+                return null;
+            }
+            setAmount(company, 0);
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<String, Integer>> entrySet() {
+            return new AbstractSet<Entry<String, Integer>>() {
+                @Override
+                public Iterator<Entry<String, Integer>> iterator() {
+                    String[] held = held();
+                    return new Iterator<Entry<String, Integer>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < held.length;
+                        }
+
+                        @Override
+                        public Entry<String, Integer> next() {
+                            if (next == held.length) {
+                                throw new NoSuchElementException();
+                            }
+                            String name = held[next++];
+                            return new SimpleImmutableEntry<>(name, getAmount(name));
+                        }
+
+                        @Override
+                        public void remove() {
+                            Shares.this.remove(held[next - 1]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return held().length;
+                }
+            };
+        }
+
+        private String[] held() {
+            String[] held = new String[holdings];
+            for (int holding = 0; holding < holdings; holding++) {
+                held[holding] = companyName(ids[holding]);
+            }
+            Arrays.sort(held);
+            return held;
         }
-        return current;
     }
 }
@@ -0,0 +1,290 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * The admission control of the calls received by a shard on the portfolio service address.
+ * <p>
+ * At most `maxInFlight` calls are handled at once, a call being in flight until it is answered (or failed). The calls
+ * received beyond are queued, up to `maxQueued` of them, and handled in order as the calls in flight are answered.
+ * Beyond that, the calls are shed: they fail at once with the {@link #OVERLOADED} failure code, so that under overload
+ * the callers are rejected quickly instead of waiting for their timeout. The calls admitted, queued and shed are
+ * counted.
+ * <p>
+ * A call that is still not answered `timeout` ms after its arrival, as its caller has given up by then, or whose
+ * handler throws, releases its slot: a handler that fails to answer cannot hold the shard. A queued call whose
+ * `timeout` has passed is not admitted but fails with {@link #OVERLOADED}, so that the shard does not work for callers
+ * that are gone. The calls in flight are linked in admission order and the queue is in arrival order, so the expired
+ * calls are found at their head, by a sweep every second at most. Instances are not thread safe, each one is owned by
+ * the event loop of its shard.
+ */
+public class PortfolioAdmission implements Handler<Message<Object>> {
+
+    /**
+     * The failure code of the calls shed by the service.
+     */
+    public static final int OVERLOADED = 503;
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long timeout;
+    private final Handler<Message<Object>> handler;
+    private final Queue<Waiting> queue = new ArrayDeque<>();
+    private Call oldest;
+    private Call newest;
+    private int inFlight;
+    private boolean draining;
+
+    private long admitted;
+    private long queued;
+    private long shed;
+    private long expired;
+
+    /**
+     * @param vertx       the vert.x instance
+     * @param maxInFlight the maximum number of calls in flight
+     * @param maxQueued   the maximum number of calls waiting for admission
+     * @param timeout     the time after its arrival after which a call releases its slot, or is no longer admitted (ms)
+     * @param handler     the handler of the admitted calls
+     */
+    PortfolioAdmission(Vertx vertx, int maxInFlight, int maxQueued, long timeout,
+                       Handler<Message<Object>> handler) {
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.timeout = timeout;
+        this.handler = handler;
+        vertx.setPeriodic(Math.max(1, Math.min(timeout, 1000)), timer -> expire());
+    }
+
+    @Override
+    public void handle(Message<Object> message) {
+        long now = System.currentTimeMillis();
+        if (inFlight < maxInFlight && queue.isEmpty()) {
+            admit(message, now);
+        } else if (queue.size() < maxQueued) {
+            queue.add(new Waiting(message, now));
+            queued++;
+        } else {
+            shed++;
+            message.fail(OVERLOADED, "Portfolio service overloaded: " + inFlight + " calls in flight and " +
+                    queue.size() + " queued");
+        }
+    }
+
+    private void admit(Message<Object> message, long arrival) {
+        admitted++;
+        if (message.replyAddress() == null) {
+            // Nothing to wait for
+            handler.handle(message);
+            return;
+        }
+        Call call = new Call(message, arrival + timeout);
+        inFlight++;
+        if (newest == null) {
+            oldest = call;
+        } else {
+            newest.next = call;
+            call.previous = newest;
+        }
+        newest = call;
+        try {
+            handler.handle(call);
+        } catch (RuntimeException ex) {
+            if (!call.answered) {
+                call.fail(500, ex.getMessage());
+            }
+        }
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        while (oldest != null && oldest.deadline <= now) {
+            expired++;
+            oldest.answered();
+        }
+        while (!queue.isEmpty() && queue.peek().arrival + timeout <= now) {
+            drop(queue.poll());
+        }
+    }
+
+    private void drop(Waiting waiting) {
+        expired++;
+        waiting.message.fail(OVERLOADED, "Portfolio service overloaded: the call waited " + timeout +
+                " ms without being admitted");
+    }
+
+    private void release(Call call) {
+        if (call.previous == null) {
+            oldest = call.next;
+        } else {
+            call.previous.next = call.next;
+        }
+        if (call.next == null) {
+            newest = call.previous;
+        } else {
+            call.next.previous = call.previous;
+        }
+        inFlight--;
+        // The calls answered synchronously release their slot while the queue is drained, loop instead of recursing
+        if (draining) {
+            return;
+        }
+        draining = true;
+        try {
+            long now = System.currentTimeMillis();
+            while (inFlight < maxInFlight && !queue.isEmpty()) {
+                Waiting waiting = queue.poll();
+                if (waiting.arrival + timeout <= now) {
+                    drop(waiting);
+                } else {
+                    admit(waiting.message, waiting.arrival);
+                }
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    /**
+     * @return the number of calls admitted, including the ones that were queued first
+     */
+    long admitted() {
+        return admitted;
+    }
+
+    /**
+     * @return the number of calls that waited in the queue
+     */
+    long queued() {
+        return queued;
+    }
+
+    /**
+     * @return the number of calls shed
+     */
+    long shed() {
+        return shed;
+    }
+
+    /**
+     * @return the number of calls that released their slot without being answered in time, or that were not admitted
+     * in time
+     */
+    long expired() {
+        return expired;
+    }
+
+    /**
+     * @return the number of calls in flight
+     */
+    int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of calls waiting for admission
+     */
+    int waiting() {
+        return queue.size();
+    }
+
+    /**
+     * A call waiting for admission.
+     */
+    private static class Waiting {
+        private final Message<Object> message;
+        private final long arrival;
+
+        Waiting(Message<Object> message, long arrival) {
+            this.message = message;
+            this.arrival = arrival;
+        }
+    }
+
+    /**
+     * An admitted call, releasing its slot once answered or expired.
+     */
+    private class Call implements Message<Object> {
+
+        private final Message<Object> message;
+        private final long deadline;
+        private Call previous;
+        private Call next;
+        private boolean answered;
+
+        Call(Message<Object> message, long deadline) {
+            this.message = message;
+            this.deadline = deadline;
+        }
+
+        private void answered() {
+            if (!answered) {
+                answered = true;
+                release(this);
+            }
+        }
+
+        @Override
+        public String address() {
+            return message.address();
+        }
+
+        @Override
+        public MultiMap headers() {
+            return message.headers();
+        }
+
+        @Override
+        public Object body() {
+            return message.body();
+        }
+
+        @Override
+        public String replyAddress() {
+            return message.replyAddress();
+        }
+
+        @Override
+        public boolean isSend() {
+            return message.isSend();
+        }
+
+        @Override
+        public void reply(Object reply) {
+            answered();
+            message.reply(reply);
+        }
+
+        @Override
+        public <R> void reply(Object reply, Handler<AsyncResult<Message<R>>> replyHandler) {
+            answered();
+            message.reply(reply, replyHandler);
+        }
+
+        @Override
+        public void reply(Object reply, DeliveryOptions options) {
+            answered();
+            message.reply(reply, options);
+        }
+
+        @Override
+        public <R> void reply(Object reply, DeliveryOptions options, Handler<AsyncResult<Message<R>>> replyHandler) {
+            answered();
+            message.reply(reply, options, replyHandler);
+        }
+
+        @Override
+        public void fail(int failureCode, String failureMessage) {
+            answered();
+            message.fail(failureCode, failureMessage);
+        }
+    }
+}
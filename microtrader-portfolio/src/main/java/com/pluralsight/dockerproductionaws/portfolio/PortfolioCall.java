@@ -0,0 +1,66 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A call of the portfolio service in binary form, as sent by {@link PortfolioServiceBinaryProxy}: the `action` is the
+ * name of the service method, `getAccount`, `buyFor`, `sellFor` or `tradeAccounts`. The quote of the buys and sells,
+ * and the orders of {@link PortfolioService#tradeAccounts(JsonObject, Handler)}, are carried as the caller gave them.
+ * Calls are immutable: as for any message delivered locally, their quote and orders must not be modified once sent.
+ */
+public class PortfolioCall {
+
+    private final String action;
+    private final String account;
+    private final int amount;
+    private final JsonObject quote;
+    private final JsonObject orders;
+
+    /**
+     * @param action  the name of the service method
+     * @param account the account
+     * @param amount  the amount of shares, 0 if the method has none
+     * @param quote   the quote, {@code null} if the method has none
+     */
+    public PortfolioCall(String action, String account, int amount, JsonObject quote) {
+        this(action, account, amount, quote, null);
+    }
+
+    /**
+     * Creates a `tradeAccounts` call.
+     *
+     * @param orders the orders by account
+     */
+    public PortfolioCall(JsonObject orders) {
+        this("tradeAccounts", null, 0, null, orders);
+    }
+
+    PortfolioCall(String action, String account, int amount, JsonObject quote, JsonObject orders) {
+        this.action = action;
+        this.account = account;
+        this.amount = amount;
+        this.quote = quote;
+        this.orders = orders;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public JsonObject getQuote() {
+        return quote;
+    }
+
+    public JsonObject getOrders() {
+        return orders;
+    }
+}
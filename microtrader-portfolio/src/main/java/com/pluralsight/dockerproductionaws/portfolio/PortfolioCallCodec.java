@@ -0,0 +1,93 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Event bus codec for {@link PortfolioCall}.
+ * <p>
+ * The wire layout is the action and account, the amount, then the quote and the orders in JSON, a length of -1 standing
+ * for a missing value:
+ * <pre>
+ *   action (short + utf8) | account (short + utf8) | amount (int) | quote (int + json) | orders (int + json)
+ * </pre>
+ * Local delivery hands over the same instance, calls being immutable: the quote and orders are neither copied nor
+ * converted.
+ */
+public class PortfolioCallCodec implements MessageCodec<PortfolioCall, PortfolioCall> {
+
+    public static final String NAME = "portfolio-call";
+
+    // The length of a missing account, longer than any account the service accepts
+    private static final int NO_ACCOUNT = 0xFFFF;
+
+    @Override
+    public void encodeToWire(Buffer buffer, PortfolioCall call) {
+        appendString(buffer, call.getAction());
+        if (call.getAccount() == null) {
+            buffer.appendUnsignedShort(NO_ACCOUNT);
+        } else {
+            appendString(buffer, call.getAccount());
+        }
+        buffer.appendInt(call.getAmount());
+        appendJson(buffer, call.getQuote());
+        appendJson(buffer, call.getOrders());
+    }
+
+    @Override
+    public PortfolioCall decodeFromWire(int pos, Buffer buffer) {
+        int actionLength = buffer.getUnsignedShort(pos);
+        String action = buffer.getString(pos + 2, pos + 2 + actionLength, "UTF-8");
+        pos += 2 + actionLength;
+        int accountLength = buffer.getUnsignedShort(pos);
+        String account = null;
+        pos += 2;
+        if (accountLength != NO_ACCOUNT) {
+            account = buffer.getString(pos, pos + accountLength, "UTF-8");
+            pos += accountLength;
+        }
+        int amount = buffer.getInt(pos);
+        pos += 4;
+        int quoteLength = buffer.getInt(pos);
+        JsonObject quote = quoteLength < 0 ? null : new JsonObject(buffer.getBuffer(pos + 4, pos + 4 + quoteLength));
+        pos += 4 + Math.max(quoteLength, 0);
+        int ordersLength = buffer.getInt(pos);
+        JsonObject orders = ordersLength < 0 ? null : new JsonObject(buffer.getBuffer(pos + 4, pos + 4 + ordersLength));
+        return new PortfolioCall(action, account, amount, quote, orders);
+    }
+
+    @Override
+    public PortfolioCall transform(PortfolioCall call) {
+        return call;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    private static void appendString(Buffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NO_ACCOUNT) {
+            throw new IllegalArgumentException("Cannot encode a string of " + bytes.length + " bytes");
+        }
+        buffer.appendUnsignedShort(bytes.length).appendBytes(bytes);
+    }
+
+    private static void appendJson(Buffer buffer, JsonObject value) {
+        if (value == null) {
+            buffer.appendInt(-1);
+            return;
+        }
+        Buffer json = value.toBuffer();
+        buffer.appendInt(json.length()).appendBuffer(json);
+    }
+}
@@ -0,0 +1,74 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+
+import java.util.function.Function;
+
+/**
+ * Serves the calls of a shard: the binary calls (see {@link PortfolioCall}) are dispatched to the service and answered
+ * with a {@link Portfolio}, or the JSON results of `tradeAccounts`, the JSON calls are handed over to the generated
+ * proxy handler.
+ */
+class PortfolioCallHandler implements Handler<Message<Object>> {
+
+    private final PortfolioService service;
+    private final PortfolioServiceVertxProxyHandler json;
+
+    /**
+     * @param service the service
+     * @param json    the generated proxy handler of the service
+     */
+    PortfolioCallHandler(PortfolioService service, PortfolioServiceVertxProxyHandler json) {
+        this.service = service;
+        this.json = json;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void handle(Message<Object> message) {
+        if (!(message.body() instanceof PortfolioCall)) {
+            json.handle((Message<JsonObject>) (Message) message);
+            return;
+        }
+        PortfolioCall call = (PortfolioCall) message.body();
+        // Copied as the account keeps changing once the reply is sent
+        Handler<AsyncResult<Portfolio>> reply = reply(message, portfolio ->
+                portfolio == null ? null : new Portfolio(portfolio));
+        try {
+            switch (call.getAction()) {
+                case "getAccount":
+                    service.getAccount(call.getAccount(), reply);
+                    break;
+                case "buyFor":
+                    service.buyFor(call.getAccount(), call.getAmount(), call.getQuote(), reply);
+                    break;
+                case "sellFor":
+                    service.sellFor(call.getAccount(), call.getAmount(), call.getQuote(), reply);
+                    break;
+                case "tradeAccounts":
+                    service.tradeAccounts(call.getOrders(), reply(message, results -> results));
+                    break;
+                default:
+                    message.reply(new ServiceException(-1, "Invalid action: " + call.getAction()));
+            }
+        } catch (Throwable t) {
+            message.reply(new ServiceException(500, t.getMessage()));
+        }
+    }
+
+    private static <T> Handler<AsyncResult<T>> reply(Message<Object> message, Function<T, ?> body) {
+        return ar -> {
+            if (ar.succeeded()) {
+                message.reply(body.apply(ar.result()));
+            } else if (ar.cause() instanceof ServiceException) {
+                message.reply(ar.cause());
+            } else {
+                message.reply(new ServiceException(-1, ar.cause().getMessage()));
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Event bus codec for {@link Portfolio}, the binary replies of the portfolio service (see
+ * {@link PortfolioServiceBinaryProxy}).
+ * <p>
+ * The wire layout is the cash in cash units followed by the owned shares, the companies being identified by name as
+ * their IDs are local to each process:
+ * <pre>
+ *   cash (long) | count (int) | count * (name (short + utf8) | amount (int))
+ * </pre>
+ * Local delivery hands over the same instance: a portfolio must not be modified once sent, the service replies with a
+ * copy of the account.
+ */
+public class PortfolioCodec implements MessageCodec<Portfolio, Portfolio> {
+
+    public static final String NAME = "portfolio";
+
+    /**
+     * Registers the portfolio service codecs as the default codecs for {@link Portfolio} and {@link PortfolioCall} on
+     * the given event bus. Does nothing if they have already been registered.
+     *
+     * @param eventBus the event bus
+     */
+    public static void register(EventBus eventBus) {
+        try {
+            eventBus.registerDefaultCodec(Portfolio.class, new PortfolioCodec());
+            eventBus.registerDefaultCodec(PortfolioCall.class, new PortfolioCallCodec());
+        } catch (IllegalStateException ex) {
+            // Already registered
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, Portfolio portfolio) {
+        buffer.appendLong(portfolio.cashUnits());
+        buffer.appendInt(portfolio.holdings());
+        for (int holding = 0; holding < portfolio.holdings(); holding++) {
+            byte[] name = Portfolio.companyName(portfolio.heldCompany(holding)).getBytes(StandardCharsets.UTF_8);
+            buffer.appendUnsignedShort(name.length).appendBytes(name).appendInt(portfolio.heldAmount(holding));
+        }
+    }
+
+    @Override
+    public Portfolio decodeFromWire(int pos, Buffer buffer) {
+        Portfolio portfolio = new Portfolio();
+        portfolio.deposit(buffer.getLong(pos));
+        int count = buffer.getInt(pos + 8);
+        pos += 12;
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getUnsignedShort(pos);
+            String name = buffer.getString(pos + 2, pos + 2 + length, "UTF-8");
+            pos += 2 + length;
+            portfolio.setAmount(Portfolio.company(name), buffer.getInt(pos));
+            pos += 4;
+        }
+        return portfolio;
+    }
+
+    @Override
+    public Portfolio transform(Portfolio portfolio) {
+        return portfolio;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
@@ -0,0 +1,118 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes the calls sent to the portfolio service address to the shard owning the account.
+ * <p>
+ * Every shard registers a router on the service address, so the event bus spreads the routing across the shards.
+ * Calls for the accounts of the local shard are handled in place, the other ones are forwarded to the owning shard
+ * and its reply (or failure) is passed back to the caller. The calls are forwarded as they were sent, in JSON or in
+ * binary form (see {@link PortfolioCall}), the parts of a split batch being sent in the form of the batch.
+ * <p>
+ * The batches of several accounts (see {@link PortfolioService#tradeAccounts(JsonObject, Handler)}) are split by owning
+ * shard, and the results of the shards merged into a single reply.
+ */
+class PortfolioRouter implements Handler<Message<Object>> {
+
+    private final EventBus eventBus;
+    private final int shard;
+    private final int shards;
+    private final Handler<Message<Object>> local;
+
+    /**
+     * @param eventBus the event bus
+     * @param shard    the index of the local shard
+     * @param shards   the number of shards
+     * @param local    the service handler of the local shard
+     */
+    PortfolioRouter(EventBus eventBus, int shard, int shards, Handler<Message<Object>> local) {
+        this.eventBus = eventBus;
+        this.shard = shard;
+        this.shards = shards;
+        this.local = local;
+    }
+
+    @Override
+    public void handle(Message<Object> message) {
+        if ("tradeAccounts".equals(message.headers().get("action"))) {
+            split(message);
+            return;
+        }
+        Object body = message.body();
+        String account = body instanceof PortfolioCall ? ((PortfolioCall) body).getAccount() :
+                PortfolioShards.account((JsonObject) body);
+        int owner = PortfolioShards.shard(account, shards);
+        if (owner == shard) {
+            local.handle(message);
+            return;
+        }
+        DeliveryOptions options = new DeliveryOptions().setHeaders(message.headers());
+        eventBus.send(PortfolioShards.address(owner), body, options, reply -> {
+            if (reply.succeeded()) {
+                message.reply(reply.result().body());
+            } else {
+                fail(message, reply.cause());
+            }
+        });
+    }
+
+    private void split(Message<Object> message) {
+        Object body = message.body();
+        boolean binary = body instanceof PortfolioCall;
+        JsonObject orders = binary ? ((PortfolioCall) body).getOrders() : ((JsonObject) body).getJsonObject("orders");
+        Map<Integer, JsonObject> parts = new HashMap<>();
+        if (orders != null) {
+            for (String account : orders.fieldNames()) {
+                parts.computeIfAbsent(PortfolioShards.shard(account, shards), owner -> new JsonObject())
+                        .put(account, orders.getValue(account));
+            }
+        }
+        if (orders == null || parts.size() == 1 && parts.containsKey(shard)) {
+            local.handle(message);
+            return;
+        }
+        DeliveryOptions options = new DeliveryOptions().setHeaders(message.headers());
+        List<Future<Message<JsonObject>>> replies = new ArrayList<>();
+        for (Map.Entry<Integer, JsonObject> part : parts.entrySet()) {
+            Future<Message<JsonObject>> reply = Future.future();
+            replies.add(reply);
+            eventBus.send(PortfolioShards.address(part.getKey()), binary ? new PortfolioCall(part.getValue()) :
+                    new JsonObject().put("orders", part.getValue()), options, reply.completer());
+        }
+        CompositeFuture.all(new ArrayList<>(replies)).setHandler(ar -> {
+            if (ar.failed()) {
+                fail(message, ar.cause());
+                return;
+            }
+            JsonObject results = new JsonObject();
+            for (Future<Message<JsonObject>> reply : replies) {
+                results.mergeIn(reply.result().body().getJsonObject("results"));
+            }
+            message.reply(new JsonObject().put("results", results));
+        });
+    }
+
+    private static void fail(Message<Object> message, Throwable cause) {
+        if (cause instanceof ServiceException) {
+            message.reply(cause);
+        } else if (cause instanceof ReplyException) {
+            message.fail(((ReplyException) cause).failureCode(), cause.getMessage());
+        } else {
+            message.fail(-1, cause.getMessage());
+        }
+    }
+}
@@ -6,8 +6,14 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
 
+import java.util.List;
+
 /**
- * A service managing a portfolio.
+ * A service managing the portfolios of the trading accounts.
+ * <p>
+ * Accounts are identified by a free-form account ID. The methods without account operate on the
+ * {@link #DEFAULT_ACCOUNT}. The accounts are sharded across several service instances: calls sent to {@link #ADDRESS}
+ * are routed to the instance owning the account (see {@link PortfolioShards}).
  * <p>
  * This service is an event bus service (a.k.a service proxies, or async RPC). The client and server are generated at
  * compile time.
@@ -28,6 +34,24 @@ public interface PortfolioService {
      */
     String EVENT_ADDRESS = "portfolio";
 
+    /**
+     * The address prefix on which the valuation of the accounts is pushed as it changes: the valuation of an account
+     * (as returned by {@link #getValuation(String, Handler)}) is published on `portfolio.valuation.account`.
+     */
+    String VALUATION_ADDRESS = "portfolio.valuation";
+
+    /**
+     * The address prefix on which the outcome of the resting orders of the accounts is published once they are
+     * triggered: `{"id": ..., "status": "FILLED"|"REJECTED"|"CANCELLED", "message": "..."}` is published on
+     * `portfolio.order.account`, `CANCELLED` for an order cancelled while it was being executed.
+     */
+    String ORDER_ADDRESS = "portfolio.order";
+
+    /**
+     * The account used by the methods without account.
+     */
+    String DEFAULT_ACCOUNT = "default";
+
     /**
      * Gets the portfolio.
      *
@@ -63,5 +87,98 @@ public interface PortfolioService {
      */
     void evaluate(Handler<AsyncResult<Double>> resultHandler);
 
+    /**
+     * Gets the portfolio of an account, opening the account if needed.
+     *
+     * @param account       the account
+     * @param resultHandler the result handler called when the portfolio has been retrieved
+     */
+    void getAccount(String account, Handler<AsyncResult<Portfolio>> resultHandler);
+
+    /**
+     * Buy `amount` shares of the given shares (quote) for an account.
+     *
+     * @param account       the account
+     * @param amount        the amount
+     * @param quote         the last quote
+     * @param resultHandler the result handler with the updated portfolio of the account
+     */
+    void buyFor(String account, int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler);
+
+    /**
+     * Sell `amount` shares of the given shares (quote) for an account.
+     *
+     * @param account       the account
+     * @param amount        the amount
+     * @param quote         the last quote
+     * @param resultHandler the result handler with the updated portfolio of the account
+     */
+    void sellFor(String account, int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler);
+
+    /**
+     * Evaluates the current value of the portfolio of an account.
+     *
+     * @param account       the account
+     * @param resultHandler the result handler with the valuation
+     */
+    void evaluateAccount(String account, Handler<AsyncResult<Double>> resultHandler);
+
+    /**
+     * Values the portfolio of an account at the last known prices, reporting the age of each price.
+     *
+     * @param account       the account
+     * @param resultHandler the result handler with the `account`, its `cash`, the `value` of its shares, and its
+     *                      `positions`: per company, the `amount` held and the `price`, `value` and `age` (ms) of the
+     *                      last known price
+     */
+    void getValuation(String account, Handler<AsyncResult<JsonObject>> resultHandler);
+
+    /**
+     * Applies a batch of orders to the portfolio of an account, in a single call. The orders are applied in turn, the
+     * order book of each company being retrieved once for the whole batch. A failed order does not prevent the next
+     * ones from being applied.
+     *
+     * @param account       the account
+     * @param orders        the orders: `{"action": "BUY"|"SELL", "amount": n, "quote": {...}}`
+     * @param resultHandler the result handler with the `results` of the orders, in order (`{"succeeded": true}` or
+     *                      `{"succeeded": false, "message": "..."}`), and the resulting `portfolio`
+     */
+    void trade(String account, List<JsonObject> orders, Handler<AsyncResult<JsonObject>> resultHandler);
+
+    /**
+     * Applies a batch of orders of several accounts, in a single call. The batch is split by shard, and the orders of
+     * each account are applied as with {@link #trade(String, List, Handler)}.
+     *
+     * @param orders        the orders of each account: `{"account": [{"action": "BUY"|"SELL", "amount": n,
+     *                      "quote": {...}}, ...], ...}`
+     * @param resultHandler the result handler with the `results` of the orders of each account, in order:
+     *                      `{"results": {"account": [{"succeeded": true}, ...], ...}}`
+     */
+    void tradeAccounts(JsonObject orders, Handler<AsyncResult<JsonObject>> resultHandler);
+
+    /**
+     * Places a resting order, executed against the order book of the company once the market reaches its price. A
+     * `LIMIT` order buys when the ask falls to its price, or sells when the bid rises to it, and is only filled at its
+     * price or better. A `STOP` order buys when the ask rises to its price, or sells when the bid falls to it. A
+     * `TAKE_PROFIT` order sells when the bid rises to its price. Once triggered, the outcome of the order is published
+     * on {@link #ORDER_ADDRESS}.
+     *
+     * @param account       the account
+     * @param order         the order: `{"action": "BUY"|"SELL", "type": "LIMIT"|"STOP"|"TAKE_PROFIT", "amount": n,
+     *                      "price": p, "quote": {...}}`
+     * @param resultHandler the result handler with the resting order and its `id`
+     */
+    void placeOrder(String account, JsonObject order, Handler<AsyncResult<JsonObject>> resultHandler);
+
+    /**
+     * Cancels a resting order.
+     *
+     * @param account       the account
+     * @param id            the ID of the order
+     * @param resultHandler the result handler, with {@code true} if the order was cancelled, {@code false} if it was
+     *                      already executed or cancelled
+     */
+    void cancelOrder(String account, long id, Handler<AsyncResult<Boolean>> resultHandler);
+
 }
 
@@ -0,0 +1,114 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A proxy of the portfolio service sending the account calls in binary form.
+ * <p>
+ * {@link #getPortfolio(Handler)}, {@link #getAccount(String, Handler)}, the buys, the sells and
+ * {@link #tradeAccounts(JsonObject, Handler)} are sent as {@link PortfolioCall}, and the accounts are answered with a
+ * {@link Portfolio}, both encoded by their codecs (see {@link PortfolioCodec}) instead of being converted to and from
+ * JSON. The quotes and orders are handed over as given, without being copied when the shard is local. The other
+ * methods, and the calls without account, go through the generated JSON proxy. The shards serve both forms on the same
+ * addresses, so this proxy is opt-in: the JSON clients, such as the SockJS bridge of the dashboard, are unchanged.
+ */
+public class PortfolioServiceBinaryProxy extends PortfolioServiceVertxEBProxy {
+
+    private final Vertx vertx;
+    private final String address;
+    private final DeliveryOptions options;
+
+    public PortfolioServiceBinaryProxy(Vertx vertx, String address) {
+        this(vertx, address, null);
+    }
+
+    public PortfolioServiceBinaryProxy(Vertx vertx, String address, DeliveryOptions options) {
+        super(vertx, address, options);
+        this.vertx = vertx;
+        this.address = address;
+        this.options = options;
+        PortfolioCodec.register(vertx.eventBus());
+    }
+
+    @Override
+    public void getPortfolio(Handler<AsyncResult<Portfolio>> resultHandler) {
+        getAccount(DEFAULT_ACCOUNT, resultHandler);
+    }
+
+    @Override
+    public void buy(int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler) {
+        buyFor(DEFAULT_ACCOUNT, amount, quote, resultHandler);
+    }
+
+    @Override
+    public void sell(int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler) {
+        sellFor(DEFAULT_ACCOUNT, amount, quote, resultHandler);
+    }
+
+    @Override
+    public void getAccount(String account, Handler<AsyncResult<Portfolio>> resultHandler) {
+        if (account == null) {
+            super.getAccount(null, resultHandler);
+            return;
+        }
+        send(new PortfolioCall("getAccount", account, 0, null), resultHandler);
+    }
+
+    @Override
+    public void buyFor(String account, int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler) {
+        if (account == null) {
+            super.buyFor(null, amount, quote, resultHandler);
+            return;
+        }
+        send(new PortfolioCall("buyFor", account, amount, quote), resultHandler);
+    }
+
+    @Override
+    public void sellFor(String account, int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler) {
+        if (account == null) {
+            super.sellFor(null, amount, quote, resultHandler);
+            return;
+        }
+        send(new PortfolioCall("sellFor", account, amount, quote), resultHandler);
+    }
+
+    @Override
+    public void tradeAccounts(JsonObject orders, Handler<AsyncResult<JsonObject>> resultHandler) {
+        if (orders == null) {
+            super.tradeAccounts(null, resultHandler);
+            return;
+        }
+        vertx.eventBus().<JsonObject>send(address, new PortfolioCall(orders), deliveryOptions("tradeAccounts"), res -> {
+            if (res.failed()) {
+                resultHandler.handle(Future.failedFuture(res.cause()));
+            } else {
+                resultHandler.handle(Future.succeededFuture(res.result().body()));
+            }
+        });
+    }
+
+    private DeliveryOptions deliveryOptions(String action) {
+        DeliveryOptions deliveryOptions = options != null ? new DeliveryOptions(options) : new DeliveryOptions();
+        return deliveryOptions.addHeader("action", action);
+    }
+
+    private void send(PortfolioCall call, Handler<AsyncResult<Portfolio>> resultHandler) {
+        vertx.eventBus().send(address, call, deliveryOptions(call.getAction()), res -> {
+            if (res.failed()) {
+                resultHandler.handle(Future.failedFuture(res.cause()));
+                return;
+            }
+            Object body = res.result().body();
+            if (body == null || body instanceof Portfolio) {
+                resultHandler.handle(Future.succeededFuture((Portfolio) body));
+            } else {
+                resultHandler.handle(Future.succeededFuture(new Portfolio((JsonObject) body)));
+            }
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import com.pluralsight.dockerproductionaws.portfolio.impl.PortfolioJournal;
+import com.pluralsight.dockerproductionaws.portfolio.impl.PortfolioServiceImpl;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.eventbus.DeliveryOptions;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.pluralsight.dockerproductionaws.portfolio.PortfolioService.ADDRESS;
+
+/**
+ * A verticle serving one shard of the portfolio accounts, on its own event loop.
+ * <p>
+ * The shard serves its accounts on its shard address (see {@link PortfolioShards#address(int)}) and routes the calls
+ * received on the service address to the owning shard. The calls are served in JSON, as sent by the generated proxies,
+ * and in binary form, as sent by {@link PortfolioServiceBinaryProxy}.
+ * <p>
+ * The calls received on the service address go through the admission control of the shard (see
+ * {@link PortfolioAdmission}): at most `inflight` calls in flight for up to `timeout` ms each, and `queue` calls
+ * waiting, the calls admitted, queued, shed and expired being reported every `report` ms.
+ * <p>
+ * When a `journal` directory is configured, the accounts of the shard are persisted there (see
+ * {@link PortfolioJournal}). The files are named after the shard and the number of shards, the accounts being routed by
+ * that number: a shard refuses to start next to journals written for another number of shards, as their accounts
+ * would not be found where they are now routed. The shard only starts serving once its accounts are recovered.
+ */
+public class PortfolioShardVerticle extends AbstractVerticle {
+
+    private static final Pattern JOURNAL_FILE = Pattern.compile("portfolio-\\d+-of-(\\d+)\\..+");
+
+    private PortfolioJournal journal;
+
+    @Override
+    public void start(Future<Void> startFuture) throws Exception {
+        int shard = config().getInteger("shard", 0);
+        int shards = config().getInteger("shards", 1);
+        if (shards < 1 || shard < 0 || shard >= shards) {
+            startFuture.fail("Invalid portfolio shard " + shard + " of " + shards + ", there must be at least one " +
+                    "shard and the index must be between 0 and the number of shards - 1");
+            return;
+        }
+
+        String directory = config().getString("journal", "");
+        if (!directory.isEmpty()) {
+            Integer written = writtenShards(Paths.get(directory), shards);
+            if (written != null) {
+                startFuture.fail("The journals in " + directory + " were written for " + written + " shards, not " +
+                        shards + ": restore the number of shards, or re-shard the accounts before changing it");
+                return;
+            }
+            journal = new PortfolioJournal(vertx, Paths.get(directory), "portfolio-" + shard + "-of-" + shards,
+                    config().getInteger("snapshot", 100000));
+        }
+
+        // Create the service object, recovering the accounts of the shard
+        PortfolioServiceImpl service = new PortfolioServiceImpl(vertx, config().getDouble("money", 10000.00), journal);
+        // The accounts in memory are ahead of a journal that cannot be written, stop serving them
+        service.fatalHandler(cause -> {
+            System.err.println("Portfolio shard " + shard + " halted, the journal failed: " + cause);
+            vertx.undeploy(deploymentID());
+        });
+        service.recover(ar -> {
+            if (ar.failed()) {
+                startFuture.fail(ar.cause());
+            } else {
+                serve(service, shard, shards);
+                startFuture.complete();
+            }
+        });
+    }
+
+    private void serve(PortfolioServiceImpl service, int shard, int shards) {
+        // Serve the accounts of the shard, in JSON and in binary form
+        PortfolioCodec.register(vertx.eventBus());
+        PortfolioCallHandler calls = new PortfolioCallHandler(service,
+                new PortfolioServiceVertxProxyHandler(vertx, service));
+        vertx.eventBus().consumer(PortfolioShards.address(shard), calls);
+
+        // Route the calls sent to the service, once admitted
+        PortfolioAdmission admission = new PortfolioAdmission(vertx, config().getInteger("inflight", 1000),
+                config().getInteger("queue", 10000), config().getLong("timeout", DeliveryOptions.DEFAULT_TIMEOUT),
+                new PortfolioRouter(vertx.eventBus(), shard, shards, calls));
+        vertx.eventBus().consumer(ADDRESS, admission);
+        long report = config().getLong("report", 60000L);
+        if (report > 0) {
+            vertx.setPeriodic(report, timer -> System.out.println("Portfolio shard " + shard + ": " +
+                    admission.admitted() + " calls admitted, " + admission.queued() + " queued, " +
+                    admission.shed() + " shed, " + admission.expired() + " expired"));
+        }
+    }
+
+    /**
+     * @return the number of shards another set of journals of the directory was written for, or null if there is none
+     */
+    private static Integer writtenShards(Path directory, int shards) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "portfolio-*")) {
+            for (Path file : files) {
+                Matcher matcher = JOURNAL_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches() && Integer.parseInt(matcher.group(1)) != shards) {
+                    return Integer.parseInt(matcher.group(1));
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
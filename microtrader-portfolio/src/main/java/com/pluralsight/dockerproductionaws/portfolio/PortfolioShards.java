@@ -0,0 +1,44 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The deterministic mapping of the accounts to the portfolio service shards.
+ * <p>
+ * An account always belongs to the same shard for a given number of shards: the shard is derived from the hash code
+ * of the account ID, which is specified by {@link String#hashCode()} and is therefore stable across JVMs.
+ */
+public final class PortfolioShards {
+
+    private PortfolioShards() {
+    }
+
+    /**
+     * @param account the account
+     * @param shards  the number of shards
+     * @return the index of the shard owning the account, between 0 and `shards - 1`
+     */
+    public static int shard(String account, int shards) {
+        int hash = account.hashCode();
+        // Spread the bits, account IDs often only differ by their last characters
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shards);
+    }
+
+    /**
+     * @param shard the index of the shard
+     * @return the event bus address of the shard
+     */
+    public static String address(int shard) {
+        return PortfolioService.ADDRESS + "." + shard;
+    }
+
+    /**
+     * @param body the body of a service call
+     * @return the account the call operates on
+     */
+    public static String account(JsonObject body) {
+        String account = body == null ? null : body.getString("account");
+        return account == null ? PortfolioService.DEFAULT_ACCOUNT : account;
+    }
+}
@@ -2,16 +2,30 @@ package com.pluralsight.dockerproductionaws.portfolio;
 
 import com.pluralsight.dockerproductionaws.common.MicroserviceVerticle;
 import com.pluralsight.dockerproductionaws.portfolio.PortfolioService;
-import com.pluralsight.dockerproductionaws.portfolio.impl.PortfolioServiceImpl;
-import com.pluralsight.dockerproductionaws.trader.CompulsiveTraderVerticle;
+import com.pluralsight.dockerproductionaws.trader.TraderSimulatorVerticle;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.DeploymentOptions;
-import io.vertx.serviceproxy.ProxyHelper;
+import io.vertx.core.Future;
+import io.vertx.core.VertxOptions;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.pluralsight.dockerproductionaws.portfolio.PortfolioService.ADDRESS;
 import static com.pluralsight.dockerproductionaws.portfolio.PortfolioService.EVENT_ADDRESS;
 
 /**
  * A verticle publishing the portfolio service.
+ * <p>
+ * The accounts are sharded across `portfolio.shards` {@link PortfolioShardVerticle}s, each deployed separately so that
+ * it gets its own event loop. When `portfolio.journal` is set, the shards persist their accounts in that directory.
+ * Each shard admits at most `portfolio.admission.inflight` calls at once, queues up to `portfolio.admission.queue`
+ * more, and sheds the rest.
+ * <p>
+ * Once the service is published, `traders.population` simulated traders are spread across `traders.instances`
+ * {@link TraderSimulatorVerticle}s, one per event loop by default.
  */
 public class PortfolioVerticle extends MicroserviceVerticle {
 
@@ -19,12 +33,36 @@ public class PortfolioVerticle extends MicroserviceVerticle {
     public void start() {
         super.start();
 
-        // Create the service object
-        PortfolioServiceImpl service = new PortfolioServiceImpl(vertx, discovery, config().getDouble("money", 10000.00));
-
-        // Register the service proxy on the event bus
-        ProxyHelper.registerService(PortfolioService.class, vertx, service, ADDRESS);
+        // Deploy the shards of the service
+        Config config = ConfigFactory.load();
+        int shards = config.getInt("portfolio.shards");
+        if (shards < 1) {
+            throw new IllegalArgumentException("PORTFOLIO_SHARDS must be at least 1, got " + shards);
+        }
+        List<Future> deployments = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            Future<String> deployment = Future.future();
+            deployments.add(deployment);
+            vertx.deployVerticle(PortfolioShardVerticle.class.getName(), new DeploymentOptions().setConfig(config().copy()
+                    .put("shard", shard)
+                    .put("shards", shards)
+                    .put("journal", config.getString("portfolio.journal"))
+                    .put("snapshot", config.getInt("portfolio.snapshot"))
+                    .put("inflight", config.getInt("portfolio.admission.inflight"))
+                    .put("queue", config.getInt("portfolio.admission.queue"))
+                    .put("timeout", config.getLong("portfolio.admission.timeout"))
+                    .put("report", config.getLong("portfolio.admission.report"))), deployment.completer());
+        }
+        CompositeFuture.all(deployments).setHandler(ar -> {
+            if (ar.failed()) {
+                ar.cause().printStackTrace();
+            } else {
+                publish();
+            }
+        });
+    }
 
+    private void publish() {
         // Publish it in the discovery infrastructure
         publishEventBusService("portfolio", ADDRESS, PortfolioService.class, ar -> {
             if (ar.failed()) {
@@ -42,7 +80,30 @@ public class PortfolioVerticle extends MicroserviceVerticle {
             }
         });
 
-        // Java traders
-        vertx.deployVerticle(CompulsiveTraderVerticle.class.getName(), new DeploymentOptions().setInstances(3));
+        deployTraders();
+    }
+
+    private void deployTraders() {
+        Config config = ConfigFactory.load();
+        int population = config.getInt("traders.population");
+        int instances = Math.min(population, config.getInt("traders.instances") > 0 ?
+                config.getInt("traders.instances") : VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE);
+        for (int instance = 0; instance < instances; instance++) {
+            int first = population * instance / instances;
+            int next = population * (instance + 1) / instances;
+            vertx.deployVerticle(TraderSimulatorVerticle.class.getName(), new DeploymentOptions().setConfig(
+                    config().copy()
+                            .put("population", next - first)
+                            .put("first", first)
+                            .put("market", config.getString("market.address"))
+                            .put("probability", config.getDouble("traders.probability"))
+                            .put("batch", config.getInt("traders.batch"))
+                            .put("window", config.getLong("traders.window"))
+                            .put("binary", config.getBoolean("traders.binary"))
+                            .put("report", config.getLong("traders.report"))
+                            .put("strategies", config.getString("traders.strategies"))
+                            .put("short", config.getInt("traders.indicators.short"))
+                            .put("long", config.getInt("traders.indicators.long"))));
+        }
     }
 }
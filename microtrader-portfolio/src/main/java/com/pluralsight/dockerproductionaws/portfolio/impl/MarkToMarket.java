@@ -0,0 +1,204 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import com.pluralsight.dockerproductionaws.common.market.MarketAddresses;
+import com.pluralsight.dockerproductionaws.common.market.QuoteAssembler;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.pluralsight.dockerproductionaws.portfolio.Portfolio;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The last known price of the companies held by the accounts of a shard, used to value the portfolios in memory.
+ * <p>
+ * A company is tracked from the moment an account holds it: its price is seeded with the price of the trade, then kept
+ * up to date from the market data address of the company. It is dropped, and its consumer unregistered, once no account
+ * holds it anymore. The holdings traded or recovered without the symbol of their company are followed on the address of
+ * the whole market until a quote of the company gives its symbol, or until a trade does. The accounts holding a company
+ * are notified when its price changes. The prices are indexed by the ID of the company
+ * (see {@link Portfolio#company(String)}). Instances are not thread safe, each one is owned by the event loop of its
+ * shard.
+ */
+class MarkToMarket {
+
+    private final EventBus eventBus;
+    private final String marketAddress;
+    private final Handler<Set<String>> repriced;
+    private Price[] prices = new Price[0];
+    private int unresolved;
+    private MessageConsumer<Object> market;
+
+    /**
+     * @param eventBus      the event bus
+     * @param marketAddress the market data address
+     * @param repriced      called with the accounts holding a company when its price changes
+     */
+    MarkToMarket(EventBus eventBus, String marketAddress, Handler<Set<String>> repriced) {
+        this.eventBus = eventBus;
+        this.marketAddress = marketAddress;
+        this.repriced = repriced;
+        QuoteCodec.register(eventBus);
+    }
+
+    /**
+     * Records a change of the holdings of an account.
+     *
+     * @param account the account
+     * @param company the ID of the company
+     * @param quote   the quote of the trade
+     * @param before  the amount held before the trade
+     * @param after   the amount held after the trade
+     */
+    void holding(String account, int company, JsonObject quote, int before, int after) {
+        Price price = price(company);
+        if (price == null) {
+            if (after == 0) {
+                return;
+            }
+            price = track(company, quote);
+        } else if (price.symbol == null && quote != null && quote.getString("symbol") != null) {
+            resolved(price, quote.getString("symbol"));
+        }
+        if (before == 0 && after > 0) {
+            price.holders.add(account);
+        } else if (before > 0 && after == 0 && price.holders.remove(account) && price.holders.isEmpty()) {
+            if (price.consumer != null) {
+                price.consumer.unregister();
+            } else {
+                unresolved(-1);
+            }
+            prices[company] = null;
+        }
+    }
+
+    private Price price(int company) {
+        return company < prices.length ? prices[company] : null;
+    }
+
+    private Price track(int company, JsonObject quote) {
+        Price price = new Price(quote.getDouble("bid"), System.currentTimeMillis());
+        if (company >= prices.length) {
+            prices = Arrays.copyOf(prices, Math.max(company + 1, prices.length * 2));
+        }
+        prices[company] = price;
+        String symbol = quote.getString("symbol");
+        if (symbol != null) {
+            follow(price, symbol);
+        } else {
+            unresolved(1);
+        }
+        return price;
+    }
+
+    private void follow(Price price, String symbol) {
+        price.symbol = symbol;
+        price.consumer = eventBus.consumer(MarketAddresses.of(marketAddress, symbol),
+                new QuoteAssembler(quote -> update(price, quote.getBid())));
+    }
+
+    private void resolved(Price price, String symbol) {
+        follow(price, symbol);
+        unresolved(-1);
+    }
+
+    private void update(Price price, double bid) {
+        price.time = System.currentTimeMillis();
+        if (bid != price.bid) {
+            price.bid = bid;
+            repriced.handle(price.holders);
+        }
+    }
+
+    /**
+     * Counts the prices without symbol, following the whole market while there are some.
+     */
+    private void unresolved(int delta) {
+        unresolved += delta;
+        if (unresolved > 0 && market == null) {
+            market = eventBus.consumer(marketAddress, new QuoteAssembler(quote -> {
+                Price price = quote.getName() == null ? null : price(Portfolio.company(quote.getName()));
+                if (price != null && price.symbol == null && quote.getSymbol() != null) {
+                    resolved(price, quote.getSymbol());
+                    update(price, quote.getBid());
+                }
+            }));
+        } else if (unresolved == 0 && market != null) {
+            market.unregister();
+            market = null;
+        }
+    }
+
+    /**
+     * @param company the ID of the company
+     * @return the last known quote of the company, with its `name`, `symbol` and `bid`, {@code null} if it is not held
+     */
+    JsonObject quote(int company) {
+        Price price = price(company);
+        if (price == null) {
+            return null;
+        }
+        JsonObject quote = new JsonObject().put("name", Portfolio.companyName(company)).put("bid", price.bid);
+        if (price.symbol != null) {
+            quote.put("symbol", price.symbol);
+        }
+        return quote;
+    }
+
+    /**
+     * @param portfolio the portfolio
+     * @return the value of the shares of the portfolio at their last known price
+     */
+    double value(Portfolio portfolio) {
+        double value = 0;
+        for (int holding = 0; holding < portfolio.holdings(); holding++) {
+            int amount = portfolio.heldAmount(holding);
+            Price price = price(portfolio.heldCompany(holding));
+            if (price != null) {
+                value += amount * price.bid;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param portfolio the portfolio
+     * @return the `value` of the shares of the portfolio and their `positions`: per company, the `amount` held, and the
+     * `price`, `value` and `age` (ms) of the last known price
+     */
+    JsonObject valuation(Portfolio portfolio) {
+        long now = System.currentTimeMillis();
+        double value = 0;
+        JsonObject positions = new JsonObject();
+        for (int holding = 0; holding < portfolio.holdings(); holding++) {
+            int company = portfolio.heldCompany(holding);
+            int amount = portfolio.heldAmount(holding);
+            JsonObject position = new JsonObject().put("amount", amount);
+            Price price = price(company);
+            if (price != null) {
+                double positionValue = amount * price.bid;
+                value += positionValue;
+                position.put("price", price.bid).put("value", positionValue).put("age", now - price.time);
+            }
+            positions.put(Portfolio.companyName(company), position);
+        }
+        return new JsonObject().put("value", value).put("positions", positions);
+    }
+
+    private static class Price {
+        private MessageConsumer<Object> consumer;
+        private String symbol;
+        private double bid;
+        private long time;
+        private final Set<String> holders = new HashSet<>();
+
+        Price(double bid, long time) {
+            this.bid = bid;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import com.pluralsight.dockerproductionaws.portfolio.Portfolio;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.function.ToLongBiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The durable state of the accounts of a portfolio shard: a write-ahead journal of the trades, written to
+ * memory-mapped files, and periodic snapshots of all the accounts.
+ * <p>
+ * Each trade appends the resulting state of the traded position to the journal, its cost basis included so that the
+ * exposures checked by {@link PreTradeRisk} survive a restart:
+ * <pre>
+ *   length (int) | cash (long) | amount (int) | basis (long) | bid (double) | account (short + utf8) |
+ *   company (short + utf8) | symbol (short + utf8)
+ * </pre>
+ * Records are written before their length, so a torn record is never read back. As for the tick journal of the quote
+ * generator, the files are mapped in segments, a length of -1 moves to the next segment and a length of 0 ends the
+ * journal.
+ * <p>
+ * The journal files are numbered by generation. Every `snapshotTrades` trades, the journal moves to the next generation
+ * and a snapshot of the accounts is written, after which the journals of the previous generations are deleted. On
+ * startup, the last snapshot is loaded and the journals of its generation and the next ones are replayed.
+ * <p>
+ * Appending only copies the record into the mapped file. Flushing it to disk, serializing and writing the snapshots
+ * happen on a worker thread: the trades waiting for {@link #commit(Handler)} are acknowledged together by the next
+ * flush (group commit). Recovering reads the files, and must be called on a worker thread as well. Instances are not
+ * thread safe, each one is owned by the event loop of its shard once recovered.
+ */
+public class PortfolioJournal implements Closeable {
+
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int NEXT_SEGMENT = -1;
+    // The strings are written with a 16 bits length, in modified UTF-8 in the snapshots: up to twice their UTF-8 size
+    private static final int MAX_STRING = 0xFFFF / 2;
+    private static final int FIXED_LENGTH = 8 + 4 + 8 + 8 + 3 * 2;
+    private static final Pattern JOURNAL = Pattern.compile("(.+)\\.(\\d+)\\.journal");
+
+    private final Vertx vertx;
+    private final Path directory;
+    private final String name;
+    private final int snapshotTrades;
+    private final int segmentSize;
+
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private int trades;
+
+    private List<MappedByteBuffer> unflushed = new ArrayList<>();
+    private List<Handler<AsyncResult<Void>>> commits = new ArrayList<>();
+    private boolean flushing;
+    private boolean snapshotting;
+
+    /**
+     * Creates the journal of a shard. The state must then be loaded with {@link #recover(Map, Map, Map)}.
+     *
+     * @param vertx          the vert.x instance
+     * @param directory      the directory of the journal files, created if needed
+     * @param name           the name of the shard, prefixing its files
+     * @param snapshotTrades the number of trades between two snapshots
+     * @throws IOException if the directory cannot be created
+     */
+    public PortfolioJournal(Vertx vertx, Path directory, String name, int snapshotTrades) throws IOException {
+        this(vertx, directory, name, snapshotTrades, SEGMENT_SIZE);
+    }
+
+    PortfolioJournal(Vertx vertx, Path directory, String name, int snapshotTrades, int segmentSize)
+            throws IOException {
+        this.vertx = vertx;
+        this.directory = Files.createDirectories(directory);
+        this.name = name;
+        this.snapshotTrades = snapshotTrades;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Loads the last snapshot and replays the journals following it, then starts a new journal generation. This call
+     * blocks on the file system.
+     *
+     * @param accounts the accounts, filled with the recovered portfolios
+     * @param quotes   filled with the last known quote (`name`, `symbol` and `bid`) of the companies held, by name
+     * @param bases    filled with the cost basis (units) of the positions, by account and company name
+     * @throws IOException if the files cannot be read, or the new journal created
+     */
+    void recover(Map<String, Portfolio> accounts, Map<String, JsonObject> quotes,
+                 Map<String, Map<String, Long>> bases) throws IOException {
+        long from = 0;
+        Path snapshot = directory.resolve(name + ".snapshot");
+        if (Files.exists(snapshot)) {
+            from = readSnapshot(snapshot, accounts, quotes, bases);
+        }
+        TreeMap<Long, Path> journals = journals();
+        for (Map.Entry<Long, Path> journal : journals.tailMap(from).entrySet()) {
+            replay(journal.getValue(), accounts, quotes, bases);
+        }
+        generation = Math.max(from, journals.isEmpty() ? 0 : journals.lastKey() + 1);
+        open();
+    }
+
+    /**
+     * Appends the state of a position after a trade. It is durable once a following {@link #commit(Handler)}
+     * completes.
+     *
+     * @param account   the account
+     * @param portfolio the portfolio of the account, after the trade
+     * @param company   the ID of the traded company
+     * @param quote     the quote of the trade
+     * @param basis     the cost basis of the position, after the trade (units)
+     * @throws IllegalArgumentException if a string does not fit its 16 bits length, nothing being written then
+     */
+    void append(String account, Portfolio portfolio, int company, JsonObject quote, long basis) {
+        byte[] accountBytes = account.getBytes(StandardCharsets.UTF_8);
+        byte[] companyBytes = Portfolio.companyName(company).getBytes(StandardCharsets.UTF_8);
+        String symbol = quote.getString("symbol");
+        byte[] symbolBytes = symbol == null ? new byte[0] : symbol.getBytes(StandardCharsets.UTF_8);
+        if (Math.max(accountBytes.length, Math.max(companyBytes.length, symbolBytes.length)) > MAX_STRING) {
+            throw new IllegalArgumentException("Cannot journal a string longer than " + MAX_STRING + " bytes");
+        }
+        int length = FIXED_LENGTH + accountBytes.length + companyBytes.length + symbolBytes.length;
+        // Always keep room for the marker following the record
+        if (segment.remaining() < 4 + length + 4) {
+            segment.putInt(NEXT_SEGMENT);
+            unflushed.add(segment);
+            segmentStart += segmentSize;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.putLong(portfolio.cashUnits())
+                .putInt(portfolio.getAmount(company))
+                .putLong(basis)
+                .putDouble(quote.getDouble("bid", 0.0));
+        put(accountBytes);
+        put(companyBytes);
+        put(symbolBytes);
+        segment.putInt(start, length);
+        trades++;
+    }
+
+    /**
+     * @return whether enough trades were appended since the last snapshot to take a new one
+     */
+    boolean snapshotDue() {
+        return trades >= snapshotTrades && !snapshotting;
+    }
+
+    /**
+     * Moves to the next journal generation and writes a snapshot of the accounts on a worker thread. The journals of
+     * the previous generations are deleted once the snapshot is on disk.
+     * <p>
+     * Only a copy of the portfolios and their cost bases is taken on the calling event loop, the snapshot being
+     * serialized from that copy.
+     *
+     * @param accounts the accounts
+     * @param quotes   the last known quote (`name`, `symbol` and `bid`) of a company by ID, {@code null} if unknown
+     * @param bases    the cost basis (units) of the position of an account in a company, by ID
+     */
+    void snapshot(Map<String, Portfolio> accounts, IntFunction<JsonObject> quotes,
+                  ToLongBiFunction<String, Integer> bases) {
+        Map<String, Portfolio> copy = new HashMap<>(accounts.size() * 4 / 3 + 1);
+        Map<String, long[]> costs = new HashMap<>(accounts.size() * 4 / 3 + 1);
+        Map<Integer, JsonObject> known = new HashMap<>();
+        for (Map.Entry<String, Portfolio> account : accounts.entrySet()) {
+            Portfolio portfolio = new Portfolio(account.getValue());
+            long[] cost = new long[portfolio.holdings()];
+            copy.put(account.getKey(), portfolio);
+            costs.put(account.getKey(), cost);
+            for (int holding = 0; holding < portfolio.holdings(); holding++) {
+                int company = portfolio.heldCompany(holding);
+                cost[holding] = bases.applyAsLong(account.getKey(), company);
+                if (!known.containsKey(company)) {
+                    known.put(company, quotes.apply(company));
+                }
+            }
+        }
+        FileChannel previous = channel;
+        unflushed.add(segment);
+        try {
+            generation++;
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long covered = generation;
+        snapshotting = true;
+        vertx.<Void>executeBlocking(future -> {
+            try {
+                byte[] state = serialize(covered, copy, costs, known);
+                previous.close();
+                Path snapshot = directory.resolve(name + ".snapshot");
+                Path temporary = directory.resolve(name + ".snapshot.tmp");
+                try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(state);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    out.force(true);
+                }
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                for (Map.Entry<Long, Path> journal : journals().headMap(covered).entrySet()) {
+                    Files.delete(journal.getValue());
+                }
+                future.complete();
+            } catch (IOException e) {
+                future.fail(e);
+            }
+        }, false, ar -> {
+            snapshotting = false;
+            if (ar.failed()) {
+                ar.cause().printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Calls the handler once the trades appended so far are on disk.
+     *
+     * @param handler the handler
+     */
+    void commit(Handler<AsyncResult<Void>> handler) {
+        commits.add(handler);
+        if (!flushing) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        List<Handler<AsyncResult<Void>>> flushed = commits;
+        List<MappedByteBuffer> segments = unflushed;
+        segments.add(segment);
+        commits = new ArrayList<>();
+        unflushed = new ArrayList<>();
+        flushing = true;
+        vertx.<Void>executeBlocking(future -> {
+            for (MappedByteBuffer buffer : segments) {
+                buffer.force();
+            }
+            future.complete();
+        }, false, ar -> {
+            flushing = false;
+            // The trades appended during the flush are acknowledged together by the next one
+            if (!commits.isEmpty()) {
+                flush();
+            }
+            for (Handler<AsyncResult<Void>> handler : flushed) {
+                handler.handle(ar);
+            }
+        });
+    }
+
+    /**
+     * Flushes the journal to disk and trims the file to its content.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        for (MappedByteBuffer buffer : unflushed) {
+            buffer.force();
+        }
+        segment.force();
+        channel.truncate(segmentStart + segment.position());
+        channel.close();
+        channel = null;
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(directory.resolve(name + "." + generation + ".journal"), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentStart = 0;
+        trades = 0;
+    }
+
+    private void put(byte[] bytes) {
+        segment.putShort((short) bytes.length).put(bytes);
+    }
+
+    private TreeMap<Long, Path> journals() throws IOException {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + ".*.journal")) {
+            for (Path file : files) {
+                Matcher matcher = JOURNAL.matcher(file.getFileName().toString());
+                if (matcher.matches() && matcher.group(1).equals(name)) {
+                    journals.put(Long.parseLong(matcher.group(2)), file);
+                }
+            }
+        }
+        return journals;
+    }
+
+    private void replay(Path journal, Map<String, Portfolio> accounts, Map<String, JsonObject> quotes,
+                        Map<String, Map<String, Long>> bases) throws IOException {
+        byte[] scratch = new byte[0xFFFF];
+        try (FileChannel in = FileChannel.open(journal, StandardOpenOption.READ)) {
+            long size = in.size();
+            long start = 0;
+            while (start < size) {
+                MappedByteBuffer records = in.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(segmentSize, size - start));
+                int length = records.remaining() < 4 ? 0 : records.getInt();
+                while (length > 0) {
+                    long cash = records.getLong();
+                    int amount = records.getInt();
+                    long basis = records.getLong();
+                    double bid = records.getDouble();
+                    String account = string(records, scratch);
+                    String company = string(records, scratch);
+                    String symbol = string(records, scratch);
+                    Portfolio portfolio = accounts.computeIfAbsent(account, a -> new Portfolio());
+                    portfolio.deposit(cash - portfolio.cashUnits());
+                    portfolio.setAmount(Portfolio.company(company), amount);
+                    bases.computeIfAbsent(account, a -> new HashMap<>()).put(company, basis);
+                    quotes.put(company, quote(company, symbol, bid));
+                    length = records.remaining() < 4 ? 0 : records.getInt();
+                }
+                if (length != NEXT_SEGMENT) {
+                    return;
+                }
+                start += segmentSize;
+            }
+        }
+    }
+
+    private static long readSnapshot(Path snapshot, Map<String, Portfolio> accounts, Map<String, JsonObject> quotes,
+                                     Map<String, Map<String, Long>> bases) throws IOException {
+        try (InputStream file = Files.newInputStream(snapshot);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            long generation = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Portfolio portfolio = new Portfolio();
+                String account = in.readUTF();
+                accounts.put(account, portfolio);
+                portfolio.deposit(in.readLong());
+                Map<String, Long> basis = bases.computeIfAbsent(account, a -> new HashMap<>());
+                int holdings = in.readInt();
+                for (int k = 0; k < holdings; k++) {
+                    String company = in.readUTF();
+                    String symbol = in.readUTF();
+                    double bid = in.readDouble();
+                    portfolio.setAmount(Portfolio.company(company), in.readInt());
+                    basis.put(company, in.readLong());
+                    quotes.put(company, quote(company, symbol, bid));
+                }
+            }
+            return generation;
+        }
+    }
+
+    private static byte[] serialize(long generation, Map<String, Portfolio> accounts, Map<String, long[]> costs,
+                                    Map<Integer, JsonObject> quotes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        // The snapshot covers the journals up to the one just started
+        out.writeLong(generation);
+        out.writeInt(accounts.size());
+        for (Map.Entry<String, Portfolio> account : accounts.entrySet()) {
+            Portfolio portfolio = account.getValue();
+            out.writeUTF(account.getKey());
+            out.writeLong(portfolio.cashUnits());
+            long[] cost = costs.get(account.getKey());
+            out.writeInt(portfolio.holdings());
+            for (int holding = 0; holding < portfolio.holdings(); holding++) {
+                int company = portfolio.heldCompany(holding);
+                JsonObject quote = quotes.get(company);
+                out.writeUTF(Portfolio.companyName(company));
+                out.writeUTF(quote == null ? "" : quote.getString("symbol", ""));
+                out.writeDouble(quote == null ? 0 : quote.getDouble("bid", 0.0));
+                out.writeInt(portfolio.heldAmount(holding));
+                out.writeLong(cost[holding]);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static JsonObject quote(String company, String symbol, double bid) {
+        JsonObject quote = new JsonObject().put("name", company).put("bid", bid);
+        if (!symbol.isEmpty()) {
+            quote.put("symbol", symbol);
+        }
+        return quote;
+    }
+
+    private static String string(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getShort() & 0xFFFF;
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
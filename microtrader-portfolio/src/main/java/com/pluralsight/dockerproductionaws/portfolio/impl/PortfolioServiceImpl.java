@@ -1,170 +1,694 @@
 package com.pluralsight.dockerproductionaws.portfolio.impl;
 
+import com.pluralsight.dockerproductionaws.common.events.SequencedPublisher;
+import com.pluralsight.dockerproductionaws.common.market.MarketAddresses;
 import com.pluralsight.dockerproductionaws.portfolio.Portfolio;
 import com.pluralsight.dockerproductionaws.portfolio.PortfolioService;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
 import io.vertx.core.*;
-import io.vertx.core.http.HttpClient;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
-import io.vertx.servicediscovery.ServiceDiscovery;
-import io.vertx.servicediscovery.ServiceReference;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
- * The portfolio service implementation.
+ * The portfolio service implementation, managing the accounts of one shard.
+ * <p>
+ * Accounts are opened on their first use with the initial cash. An instance is owned by a single event loop.
+ * <p>
+ * Buy and sell orders are filled against the order book of the company, as published by the quote generator: the
+ * price is the sum of the price levels consumed by the order, and the order fails if the book does not hold enough
+ * shares.
+ * <p>
+ * Portfolios are valued in memory, at the last price of the companies as received from the market data (see
+ * {@link MarkToMarket}).
+ * <p>
+ * When a {@link PortfolioJournal} is given, the accounts are recovered from it by {@link #recover(Handler)}, and each
+ * trade is journaled and only acknowledged, and sent to the audit, once on disk. A trade that cannot be written leaves
+ * the accounts in memory ahead of the journal: the failure is fatal, the service halts and reports it to its
+ * {@link #fatalHandler(Handler)}.
+ * <p>
+ * The successful trades are sent on {@link #EVENT_ADDRESS} as a sequenced, batched stream (see
+ * {@link SequencedPublisher}), and the valuation of the accounts is pushed as it changes (see {@link ValuationStream}).
+ * <p>
+ * Each order goes through the pre-trade risk checks once its price is known, before it is executed (see
+ * {@link PreTradeRisk}).
+ * <p>
+ * Resting orders wait for the market data to reach their price (see {@link RestingOrders}). They are kept in memory
+ * only, and do not survive a restart of the shard.
  */
 public class PortfolioServiceImpl implements PortfolioService {
 
+    private static final DeliveryOptions BOOK_DELIVERY = new DeliveryOptions().setSendTimeout(2000);
+    private static final int MAX_ACCOUNT_BYTES = 256;
+
     private final Vertx vertx;
-    private final Portfolio portfolio;
-    private final ServiceDiscovery discovery;
-    private String root;
+    private final double initialCash;
+    private final Map<String, Portfolio> accounts = new HashMap<>();
+    private final String marketAddress = ConfigFactory.load().getString("market.address");
+    private final MarkToMarket markToMarket;
+    private final PortfolioJournal journal;
+    private final SequencedPublisher events;
+    private final ValuationStream valuations;
+    private final RestingOrders restingOrders;
+    private final PreTradeRisk risk;
+    private List<JsonObject> uncommitted = new ArrayList<>();
+    private Handler<Throwable> fatalHandler = Throwable::printStackTrace;
+    private Throwable halted;
+
+    public PortfolioServiceImpl(Vertx vertx, double initialCash) {
+        this(vertx, initialCash, null);
+    }
 
-    public PortfolioServiceImpl(Vertx vertx, ServiceDiscovery discovery, double initialCash) {
+    /**
+     * @param vertx       the vert.x instance
+     * @param initialCash the cash of the new accounts
+     * @param journal     the journal the accounts are recovered from and the trades written to, {@code null} to keep
+     *                    the accounts in memory only, the accounts must then be loaded with {@link #recover(Handler)}
+     */
+    public PortfolioServiceImpl(Vertx vertx, double initialCash, PortfolioJournal journal) {
         this.vertx = vertx;
-        this.portfolio = new Portfolio().setCash(initialCash);
-        this.discovery = discovery;
+        this.initialCash = initialCash;
+        this.journal = journal;
+        Config config = ConfigFactory.load();
+        this.valuations = new ValuationStream(vertx, config.getLong("portfolio.valuation.period"), this::valuation);
+        this.markToMarket = new MarkToMarket(vertx.eventBus(), marketAddress, valuations::changed);
+        this.restingOrders = new RestingOrders(vertx.eventBus(), marketAddress, this::execute);
+        this.risk = new PreTradeRisk(
+                config.getDouble("portfolio.risk.order"),
+                config.getInt("portfolio.risk.position"),
+                config.getDouble("portfolio.risk.exposure"),
+                config.getDouble("portfolio.risk.company"),
+                config.getDouble("portfolio.risk.rate"));
+        this.events = new SequencedPublisher(vertx, EVENT_ADDRESS,
+                config.getInt("portfolio.events.batch"),
+                config.getLong("portfolio.events.window"),
+                config.getLong("portfolio.events.retransmit"),
+                config.getInt("portfolio.events.capacity"));
+    }
+
+    /**
+     * Recovers the accounts from the journal, the files being read on a worker thread. The service must not be used
+     * before the handler is called.
+     *
+     * @param handler called once the accounts are recovered, right away without journal
+     */
+    public void recover(Handler<AsyncResult<Void>> handler) {
+        if (journal == null) {
+            handler.handle(Future.succeededFuture());
+            return;
+        }
+        Map<String, Portfolio> recovered = new HashMap<>();
+        Map<String, JsonObject> quotes = new HashMap<>();
+        Map<String, Map<String, Long>> bases = new HashMap<>();
+        vertx.<Void>executeBlocking(future -> {
+            try {
+                journal.recover(recovered, quotes, bases);
+                future.complete();
+            } catch (IOException e) {
+                future.fail(e);
+            }
+        }, ar -> {
+            if (ar.succeeded()) {
+                accounts.putAll(recovered);
+                value(quotes, bases);
+            }
+            handler.handle(ar);
+        });
+    }
+
+    private void value(Map<String, JsonObject> quotes, Map<String, Map<String, Long>> bases) {
+        // Value the recovered holdings from the last known prices, until the market data updates them. The exposures
+        // of the accounts are rebuilt from the journaled cost of the holdings, as they were before the restart
+        for (Map.Entry<String, Portfolio> account : accounts.entrySet()) {
+            Portfolio portfolio = account.getValue();
+            Map<String, Long> basis = bases.getOrDefault(account.getKey(), Collections.emptyMap());
+            for (int holding = 0; holding < portfolio.holdings(); holding++) {
+                int company = portfolio.heldCompany(holding);
+                int amount = portfolio.heldAmount(holding);
+                String name = Portfolio.companyName(company);
+                JsonObject quote = quotes.getOrDefault(name, new JsonObject()
+                        .put("name", name)
+                        .put("bid", 0.0));
+                markToMarket.holding(account.getKey(), company, quote, 0, amount);
+                risk.filled(account.getKey(), company, 0, amount, basis.getOrDefault(name, 0L), true);
+            }
+        }
+    }
+
+    private void journal(String account, Portfolio portfolio, int company, JsonObject quote) {
+        if (journal != null) {
+            journal.append(account, portfolio, company, quote, risk.basis(account, company));
+            if (journal.snapshotDue()) {
+                journal.snapshot(accounts, markToMarket::quote, risk::basis);
+            }
+        }
+    }
+
+    /**
+     * Sets the handler called when the journal fails, after which the service rejects every trade.
+     *
+     * @param handler the handler
+     * @return the current service
+     */
+    public PortfolioServiceImpl fatalHandler(Handler<Throwable> handler) {
+        this.fatalHandler = handler;
+        return this;
+    }
+
+    /**
+     * Reports the result of a trade, and sends its events, once it is durable.
+     */
+    private <T> void reply(AsyncResult<T> result, Handler<AsyncResult<T>> resultHandler) {
+        if (halted != null) {
+            resultHandler.handle(Future.failedFuture("The portfolio shard is halted - " + halted.getMessage()));
+            return;
+        }
+        if (journal == null || result.failed()) {
+            resultHandler.handle(result);
+            return;
+        }
+        List<JsonObject> committed = uncommitted;
+        uncommitted = new ArrayList<>();
+        journal.commit(ar -> {
+            if (ar.failed()) {
+                halt(ar.cause());
+                resultHandler.handle(Future.failedFuture("The portfolio shard is halted - " +
+                        ar.cause().getMessage()));
+                return;
+            }
+            committed.forEach(events::publish);
+            resultHandler.handle(result);
+        });
+    }
+
+    private void halt(Throwable cause) {
+        if (halted == null) {
+            halted = cause;
+            fatalHandler.handle(cause);
+        }
+    }
+
+    /**
+     * @param account the account of a trade
+     * @return why the account cannot trade, {@code null} if it can. The account is journaled, its length is bounded.
+     */
+    private static String invalidAccount(String account) {
+        if (account == null) {
+            return "The account must be specified";
+        }
+        if (account.getBytes(StandardCharsets.UTF_8).length > MAX_ACCOUNT_BYTES) {
+            return "The account must be at most " + MAX_ACCOUNT_BYTES + " bytes long";
+        }
+        return null;
+    }
+
+    private Portfolio account(String account) {
+        return accounts.computeIfAbsent(account, a -> new Portfolio().setCash(initialCash));
     }
 
     @Override
     public void getPortfolio(Handler<AsyncResult<Portfolio>> resultHandler) {
-        resultHandler.handle(Future.succeededFuture(portfolio));
+        getAccount(DEFAULT_ACCOUNT, resultHandler);
     }
 
-    private void sendActionOnTheEventBus(String action, int amount, JsonObject quote, int newAmount) {
-        vertx.eventBus().send(EVENT_ADDRESS, new JsonObject()
+    @Override
+    public void getAccount(String account, Handler<AsyncResult<Portfolio>> resultHandler) {
+        if (account == null) {
+            resultHandler.handle(Future.failedFuture("The account must be specified"));
+            return;
+        }
+        resultHandler.handle(Future.succeededFuture(account(account)));
+    }
+
+    private void sendActionOnTheEventBus(String account, String action, int amount, JsonObject quote, int newAmount) {
+        JsonObject event = new JsonObject()
+                .put("account", account)
                 .put("action", action)
                 .put("quote",quote)
                 .put("date", System.currentTimeMillis())
                 .put("amount", amount)
-                .put("owned", newAmount)
-        );
+                .put("owned", newAmount);
+        if (journal == null) {
+            events.publish(event);
+        } else {
+            // Sent once the trade is on disk
+            uncommitted.add(event);
+        }
     }
 
     @Override
     public void evaluate(Handler<AsyncResult<Double>> resultHandler) {
-        discovery.getRecord(new JsonObject().put("name", "quotes"), ar -> {
-            if (ar.failed()) {
-                resultHandler.handle(Future.failedFuture(ar.cause()));
-            } else {
-                ServiceReference reference = discovery.getReference(ar.result());
-                root = reference.record().getLocation().getString("root");
-                HttpClient httpClient = reference.get();
-                computeEvaluation(httpClient, resultHandler);
-            }
-        });
+        evaluateAccount(DEFAULT_ACCOUNT, resultHandler);
     }
 
-    private void computeEvaluation(HttpClient httpClient, Handler<AsyncResult<Double>> resultHandler) {
-        // We need to call the service for each company we own shares
-        List<Future> results = portfolio.getShares().entrySet().stream()
-                .map(entry -> getValueForCompany(httpClient, entry.getKey(), entry.getValue()))
-                .collect(Collectors.toList());
-
-        // We need to return only when we have all results, for this we create a composite future. The set handler
-        // is called when all the futures has been assigned.
-        CompositeFuture.all(results).setHandler(
-                ar -> {
-                    double sum = results.stream().mapToDouble(fut -> (double) fut.result()).sum();
-                    resultHandler.handle(Future.succeededFuture(sum));
-                });
+    @Override
+    public void evaluateAccount(String account, Handler<AsyncResult<Double>> resultHandler) {
+        if (account == null) {
+            resultHandler.handle(Future.failedFuture("The account must be specified"));
+            return;
+        }
+        resultHandler.handle(Future.succeededFuture(markToMarket.value(account(account))));
     }
 
-    private Future<Double> getValueForCompany(HttpClient client, String company, int numberOfShares) {
-        // Create the future object that will  get the value once the value have been retrieved
-        Future<Double> future = Future.future();
-
-        client
-                .get(root + "/?name=" + encode(company), response -> {
-                    response.exceptionHandler(future::fail);
-                    if (response.statusCode() == 200) {
-                        response.bodyHandler(buffer -> {
-                            double v = numberOfShares * buffer.toJsonObject().getDouble("bid");
-                            future.complete(v);
-                        });
-                    } else {
-                        future.complete(0.0);
-                    }
-                })
-                .exceptionHandler(future::fail)
-                .end();
-
-        return future;
+    @Override
+    public void getValuation(String account, Handler<AsyncResult<JsonObject>> resultHandler) {
+        if (account == null) {
+            resultHandler.handle(Future.failedFuture("The account must be specified"));
+            return;
+        }
+        resultHandler.handle(Future.succeededFuture(valuation(account)));
     }
 
+    private JsonObject valuation(String account) {
+        Portfolio portfolio = account(account);
+        return markToMarket.valuation(portfolio)
+                .put("account", account)
+                .put("cash", portfolio.getCash());
+    }
 
     @Override
     public void buy(int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler) {
+        buyFor(DEFAULT_ACCOUNT, amount, quote, resultHandler);
+    }
+
+    @Override
+    public void buyFor(String account, int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler) {
+        String invalid = invalidAccount(account);
+        if (invalid != null) {
+            resultHandler.handle(Future.failedFuture(invalid));
+            return;
+        }
         if (amount <= 0) {
             resultHandler.handle(Future.failedFuture("Cannot buy " + quote.getString("name") +
                     " - the amount must be " + "greater than 0"));
             return;
         }
 
-        if (quote.getInteger("shares") < amount) {
-            resultHandler.handle(Future.failedFuture("Cannot buy " + amount + " - not enough " +
-                    "stocks on the market (" + quote.getInteger("shares") + ")"));
-            return;
-        }
+        fill(amount, quote, "asks", fill -> reply(buy(account, amount, quote, fill), resultHandler));
+    }
 
-        double price = amount * quote.getDouble("ask");
+    private AsyncResult<Portfolio> buy(String account, int amount, JsonObject quote, AsyncResult<Fill> fill) {
+        if (fill.failed()) {
+            return Future.failedFuture("Cannot buy " + amount + " - " + fill.cause().getMessage());
+        }
+        long price = Portfolio.units(fill.result().price);
         String name = quote.getString("name");
+        int company = Portfolio.company(name);
+        Portfolio portfolio = account(account);
+        int current = portfolio.getAmount(company);
+        String rejected = risk.check(account, company, current, amount, price, true);
+        if (rejected != null) {
+            return Future.failedFuture("Cannot buy " + amount + " of " + name + " - " + rejected);
+        }
         // 1) do we have enough money
-        if (portfolio.getCash() >= price) {
+        if (portfolio.cashUnits() >= price) {
             // Yes, buy it
-            portfolio.setCash(portfolio.getCash() - price);
-            int current = portfolio.getAmount(name);
+            portfolio.deposit(-price);
+            fill.result().take();
             int newAmount = current + amount;
-            portfolio.getShares().put(name, newAmount);
-            sendActionOnTheEventBus("BUY", amount, quote, newAmount);
-            resultHandler.handle(Future.succeededFuture(portfolio));
+            portfolio.setAmount(company, newAmount);
+            risk.filled(account, company, current, amount, price, true);
+            markToMarket.holding(account, company, quote, current, newAmount);
+            journal(account, portfolio, company, quote);
+            valuations.changed(account);
+            sendActionOnTheEventBus(account, "BUY", amount, quote, newAmount);
+            return Future.succeededFuture(portfolio);
         } else {
-            resultHandler.handle(Future.failedFuture("Cannot buy " + amount + " of " + name + " - " +
-                    "not enough money, " + "need " + price + ", has " + portfolio.getCash()));
+            return Future.failedFuture("Cannot buy " + amount + " of " + name + " - " +
+                    "not enough money, " + "need " + fill.result().price + ", has " + portfolio.getCash());
         }
     }
 
 
     @Override
     public void sell(int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler) {
+        sellFor(DEFAULT_ACCOUNT, amount, quote, resultHandler);
+    }
+
+    @Override
+    public void sellFor(String account, int amount, JsonObject quote, Handler<AsyncResult<Portfolio>> resultHandler) {
+        String invalid = invalidAccount(account);
+        if (invalid != null) {
+            resultHandler.handle(Future.failedFuture(invalid));
+            return;
+        }
         if (amount <= 0) {
             resultHandler.handle(Future.failedFuture("Cannot sell " + quote.getString("name") +
                     " - the amount must be " + "greater than 0"));
             return;
         }
 
-        double price = amount * quote.getDouble("bid");
         String name = quote.getString("name");
-        int current = portfolio.getAmount(name);
-        // 1) do we have enough stocks
+        if (account(account).getAmount(name) < amount) {
+            resultHandler.handle(Future.failedFuture("Cannot sell " + amount + " of " + name + " - " +
+                    "not enough stocks " + "in portfolio"));
+            return;
+        }
+
+        fill(amount, quote, "bids", fill -> reply(sell(account, amount, quote, fill), resultHandler));
+    }
+
+    private AsyncResult<Portfolio> sell(String account, int amount, JsonObject quote, AsyncResult<Fill> fill) {
+        if (fill.failed()) {
+            return Future.failedFuture("Cannot sell " + amount + " - " + fill.cause().getMessage());
+        }
+        long price = Portfolio.units(fill.result().price);
+        String name = quote.getString("name");
+        int company = Portfolio.company(name);
+        Portfolio portfolio = account(account);
+        int current = portfolio.getAmount(company);
+        String rejected = risk.check(account, company, current, amount, price, false);
+        if (rejected != null) {
+            return Future.failedFuture("Cannot sell " + amount + " of " + name + " - " + rejected);
+        }
+        // 1) do we still have enough stocks
         if (current >= amount) {
             // Yes, sell it
             int newAmount = current - amount;
-            if (newAmount == 0) {
-                portfolio.getShares().remove(name);
-            } else {
-                portfolio.getShares().put(name, newAmount);
-            }
-            portfolio.setCash(portfolio.getCash() + price);
-            sendActionOnTheEventBus("SELL", amount, quote, newAmount);
-            resultHandler.handle(Future.succeededFuture(portfolio));
+            portfolio.setAmount(company, newAmount);
+            portfolio.deposit(price);
+            fill.result().take();
+            risk.filled(account, company, current, amount, price, false);
+            markToMarket.holding(account, company, quote, current, newAmount);
+            journal(account, portfolio, company, quote);
+            valuations.changed(account);
+            sendActionOnTheEventBus(account, "SELL", amount, quote, newAmount);
+            return Future.succeededFuture(portfolio);
         } else {
+            return Future.failedFuture("Cannot sell " + amount + " of " + name + " - " +
+                    "not enough stocks " + "in portfolio");
+        }
+    }
+
+    @Override
+    public void trade(String account, List<JsonObject> orders, Handler<AsyncResult<JsonObject>> resultHandler) {
+        String invalid = invalidAccount(account);
+        if (invalid != null) {
+            resultHandler.handle(Future.failedFuture(invalid));
+            return;
+        }
+        if (orders == null) {
+            resultHandler.handle(Future.failedFuture("The orders must be specified"));
+            return;
+        }
+
+        books(orders, books -> reply(Future.succeededFuture(new JsonObject()
+                .put("results", apply(account, orders, books))
+                .put("portfolio", account(account).toJson())), resultHandler));
+    }
+
+    @Override
+    public void tradeAccounts(JsonObject orders, Handler<AsyncResult<JsonObject>> resultHandler) {
+        if (orders == null) {
+            resultHandler.handle(Future.failedFuture("The orders must be specified"));
+            return;
+        }
+
+        Map<String, List<JsonObject>> batches = new LinkedHashMap<>();
+        List<JsonObject> all = new ArrayList<>();
+        for (String account : orders.fieldNames()) {
+            String invalid = invalidAccount(account);
+            if (invalid != null) {
+                resultHandler.handle(Future.failedFuture(invalid));
+                return;
+            }
+            List<JsonObject> batch = new ArrayList<>();
+            orders.getJsonArray(account).forEach(order -> batch.add((JsonObject) order));
+            batches.put(account, batch);
+            all.addAll(batch);
+        }
+        books(all, books -> {
+            JsonObject results = new JsonObject();
+            batches.forEach((account, batch) -> results.put(account, apply(account, batch, books)));
+            reply(Future.succeededFuture(new JsonObject().put("results", results)), resultHandler);
+        });
+    }
+
+    /**
+     * Retrieves the order book of each company of a batch once, the orders of the batch then consume its liquidity.
+     *
+     * @param orders  the orders of the batch
+     * @param handler the handler called with the order books by symbol, once they have all been retrieved
+     */
+    private void books(List<JsonObject> orders, Handler<Map<String, Future<JsonObject>>> handler) {
+        Map<String, Future<JsonObject>> books = new HashMap<>();
+        for (JsonObject order : orders) {
+            Object quote = order.getValue("quote");
+            Object symbol = quote instanceof JsonObject ? ((JsonObject) quote).getValue("symbol") : null;
+            if (symbol instanceof String && !books.containsKey(symbol)) {
+                Future<JsonObject> book = Future.future();
+                books.put((String) symbol, book);
+                book((String) symbol, book::complete);
+            }
+        }
+        CompositeFuture.all(new ArrayList<>(books.values())).setHandler(ar -> handler.handle(books));
+    }
+
+    /**
+     * Applies the orders of an account in turn. A malformed order fails on its own, without failing the batch.
+     *
+     * @return the results of the orders, in order
+     */
+    private JsonArray apply(String account, List<JsonObject> orders, Map<String, Future<JsonObject>> books) {
+        JsonArray results = new JsonArray();
+        for (JsonObject order : orders) {
+            AsyncResult<Portfolio> result;
+            try {
+                result = order(account, order, books);
+            } catch (ClassCastException | NullPointerException e) {
+                result = Future.failedFuture("Invalid order - " + e.getMessage());
+            }
+            results.add(result.succeeded() ? new JsonObject().put("succeeded", true) : new JsonObject()
+                    .put("succeeded", false)
+                    .put("message", result.cause().getMessage()));
+        }
+        return results;
+    }
+
+    private AsyncResult<Portfolio> order(String account, JsonObject order, Map<String, Future<JsonObject>> books) {
+        if (!(order.getValue("action") instanceof String) || !(order.getValue("amount") instanceof Number) ||
+                !(order.getValue("quote") instanceof JsonObject)) {
+            return Future.failedFuture("Invalid order - the action, amount and quote must be specified");
+        }
+        String action = order.getString("action");
+        int amount = order.getInteger("amount", 0);
+        JsonObject quote = order.getJsonObject("quote");
+        if (quote == null) {
+            return Future.failedFuture("The quote must be specified");
+        }
+        Future<JsonObject> book = books.get(quote.getString("symbol"));
+        JsonObject levels = book == null ? null : book.result();
+        String name = quote.getString("name");
+        if ("BUY".equals(action)) {
+            if (amount <= 0) {
+                return Future.failedFuture("Cannot buy " + name + " - the amount must be " + "greater than 0");
+            }
+            return buy(account, amount, quote, fill(amount, quote, "asks", levels));
+        }
+        if ("SELL".equals(action)) {
+            if (amount <= 0) {
+                return Future.failedFuture("Cannot sell " + name + " - the amount must be " + "greater than 0");
+            }
+            if (account(account).getAmount(name) < amount) {
+                return Future.failedFuture("Cannot sell " + amount + " of " + name + " - " +
+                        "not enough stocks " + "in portfolio");
+            }
+            return sell(account, amount, quote, fill(amount, quote, "bids", levels));
+        }
+        return Future.failedFuture("Unknown action: " + action);
+    }
+
+    @Override
+    public void placeOrder(String account, JsonObject order, Handler<AsyncResult<JsonObject>> resultHandler) {
+        String invalid = invalidAccount(account);
+        if (invalid != null) {
+            resultHandler.handle(Future.failedFuture(invalid));
+            return;
+        }
+        if (order == null) {
+            resultHandler.handle(Future.failedFuture("The order must be specified"));
+            return;
+        }
+        String action = order.getString("action");
+        String type = order.getString("type");
+        int amount = order.getInteger("amount", 0);
+        double price = order.getDouble("price", 0.0);
+        JsonObject quote = order.getJsonObject("quote");
+        if (!"BUY".equals(action) && !"SELL".equals(action)) {
+            resultHandler.handle(Future.failedFuture("Unknown action: " + action));
+            return;
+        }
+        if (!"LIMIT".equals(type) && !"STOP".equals(type) && !("TAKE_PROFIT".equals(type) && "SELL".equals(action))) {
+            resultHandler.handle(Future.failedFuture("Unknown order type: " + type + " for " + action));
+            return;
+        }
+        if (quote == null || quote.getString("name") == null || quote.getString("symbol") == null) {
+            resultHandler.handle(Future.failedFuture("The quote must be specified"));
+            return;
+        }
+        String name = quote.getString("name");
+        if (amount <= 0 || price <= 0) {
+            resultHandler.handle(Future.failedFuture("Cannot place an order on " + name + " - the amount and price " +
+                    "must be greater than 0"));
+            return;
+        }
+        if ("SELL".equals(action) && account(account).getAmount(name) < amount) {
             resultHandler.handle(Future.failedFuture("Cannot sell " + amount + " of " + name + " - " +
                     "not enough stocks " + "in portfolio"));
+            return;
         }
+        resultHandler.handle(Future.succeededFuture(restingOrders.place(account, "BUY".equals(action), type, amount,
+                price, quote).toJson()));
+    }
 
+    @Override
+    public void cancelOrder(String account, long id, Handler<AsyncResult<Boolean>> resultHandler) {
+        if (account == null) {
+            resultHandler.handle(Future.failedFuture("The account must be specified"));
+            return;
+        }
+        resultHandler.handle(Future.succeededFuture(restingOrders.cancel(account, id)));
     }
 
-    private static String encode(String value) {
-        try {
-            return URLEncoder.encode(value, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException("Unsupported encoding");
+    /**
+     * Executes a triggered order against the order book of the company. A limit order whose fill would be worse than
+     * its price is placed again, an order cancelled in the meantime is dropped.
+     */
+    private void execute(RestingOrders.Order order, JsonObject quote) {
+        fill(order.amount, quote, order.buy ? "asks" : "bids", fill -> {
+            if (order.cancelled()) {
+                restingOrders.resolved(order);
+                publish(order, new JsonObject().put("status", "CANCELLED"));
+                return;
+            }
+            if (fill.succeeded() && "LIMIT".equals(order.type)) {
+                long price = Portfolio.units(fill.result().price);
+                long limit = order.amount * order.trigger;
+                if (order.buy ? price > limit : price < limit) {
+                    restingOrders.rest(order);
+                    return;
+                }
+            }
+            restingOrders.resolved(order);
+            AsyncResult<Portfolio> result = order.buy ? buy(order.account, order.amount, quote, fill) :
+                    sell(order.account, order.amount, quote, fill);
+            reply(result, ar -> publish(order, ar.succeeded() ? new JsonObject().put("status", "FILLED") :
+                    new JsonObject().put("status", "REJECTED").put("message", ar.cause().getMessage())));
+        });
+    }
+
+    private void publish(RestingOrders.Order order, JsonObject outcome) {
+        vertx.eventBus().publish(ORDER_ADDRESS + "." + order.account, outcome.put("id", order.id));
+    }
+
+    /**
+     * Computes the price of `amount` shares against the liquidity of the order book of the company. When the order
+     * book cannot be retrieved, the price is computed from the quote itself.
+     *
+     * @param amount        the amount
+     * @param quote         the last quote
+     * @param side          `asks` to buy, `bids` to sell
+     * @param resultHandler the result handler with the fill, failed if there is not enough liquidity
+     */
+    private void fill(int amount, JsonObject quote, String side, Handler<AsyncResult<Fill>> resultHandler) {
+        book(quote.getString("symbol"), book -> resultHandler.handle(fill(amount, quote, side, book)));
+    }
+
+    /**
+     * Requests the order book of a company.
+     *
+     * @param symbol  the symbol of the company
+     * @param handler the handler called with the depth of the book, {@code null} if it cannot be retrieved
+     */
+    private void book(String symbol, Handler<JsonObject> handler) {
+        String address = MarketAddresses.book(marketAddress, symbol);
+        vertx.eventBus().<JsonObject>send(address, null, BOOK_DELIVERY, reply ->
+                handler.handle(reply.succeeded() ? reply.result().body() : null));
+    }
+
+    /**
+     * Walks the price levels of the given side of the book from the best one. The book is left untouched: the
+     * liquidity is only taken once the trade is applied (see {@link Fill#take()}), so that the next orders filled
+     * against the same book only see what remains.
+     *
+     * @param amount the amount
+     * @param quote  the last quote, used when there is no book
+     * @param side   `asks` to buy, `bids` to sell
+     * @param book   the depth of the book, {@code null} if it could not be retrieved
+     * @return the fill, failed if there is not enough liquidity
+     */
+    private static AsyncResult<Fill> fill(int amount, JsonObject quote, String side, JsonObject book) {
+        if (book == null) {
+            return fillFromQuote(amount, quote, side);
+        }
+        JsonArray levels = book.getJsonArray(side);
+        int remaining = amount;
+        double price = 0;
+        for (int k = 0; k < levels.size() && remaining > 0; k++) {
+            JsonObject level = levels.getJsonObject(k);
+            int size = Math.min(remaining, level.getInteger("size"));
+            price += size * level.getDouble("price");
+            remaining -= size;
+        }
+        if (remaining > 0) {
+            return Future.failedFuture("not enough liquidity in the order book (" + (amount - remaining) + ")");
+        }
+        return Future.succeededFuture(new Fill(price, amount, levels));
+    }
+
+    private static AsyncResult<Fill> fillFromQuote(int amount, JsonObject quote, String side) {
+        if ("bids".equals(side)) {
+            return Future.succeededFuture(new Fill(amount * quote.getDouble("bid"), amount, null));
         }
+        if (quote.getInteger("shares") < amount) {
+            return Future.failedFuture("not enough stocks on the market (" + quote.getInteger("shares") + ")");
+        }
+        return Future.succeededFuture(new Fill(amount * quote.getDouble("ask"), amount, null));
     }
 
+    /**
+     * The price of an order against a side of the book, and the liquidity it takes.
+     */
+    private static class Fill {
+        private final double price;
+        private final int amount;
+        private final JsonArray levels;
+
+        /**
+         * @param price  the total price
+         * @param amount the amount
+         * @param levels the price levels the order is filled against, {@code null} when priced from the quote
+         */
+        Fill(double price, int amount, JsonArray levels) {
+            this.price = price;
+            this.amount = amount;
+            this.levels = levels;
+        }
 
+        /**
+         * Removes the liquidity taken by the order from the book, once the trade is applied.
+         */
+        void take() {
+            if (levels == null) {
+                return;
+            }
+            int remaining = amount;
+            for (int k = 0; k < levels.size() && remaining > 0; k++) {
+                JsonObject level = levels.getJsonObject(k);
+                int size = Math.min(remaining, level.getInteger("size"));
+                level.put("size", level.getInteger("size") - size);
+                remaining -= size;
+            }
+        }
+    }
 }
@@ -0,0 +1,168 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import com.pluralsight.dockerproductionaws.portfolio.Portfolio;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The pre-trade risk checks of the accounts of a shard, applied to each order once its price is known and before it
+ * is executed.
+ * <p>
+ * An order is rejected when:
+ * <ul>
+ * <li>the account sends more orders than its rate allows (a token bucket refilled at `maxRate` orders per second)</li>
+ * <li>its notional exceeds `maxOrder`</li>
+ * <li>it is a buy, and it would take the position of the account over `maxPosition` shares, the exposure of the
+ * account over `maxExposure`, or the exposure of the shard on the company over `maxCompany`</li>
+ * </ul>
+ * The exposure is the cost of the shares held: a buy adds its notional, and a sell removes the cost of the shares sold
+ * in proportion to the position. The exposures are kept as running counters, in cash units (see
+ * {@link Portfolio#units(double)}) indexed by company ID, and updated on each fill: every check is constant time,
+ * whatever the number of accounts and positions. Instances are not thread safe, each one is owned by the event loop of
+ * its shard.
+ */
+class PreTradeRisk {
+
+    private final long maxOrder;
+    private final int maxPosition;
+    private final long maxExposure;
+    private final long maxCompany;
+    private final double maxRate;
+    private final Map<String, Account> accounts = new HashMap<>();
+    private long[] companies = new long[0];
+
+    /**
+     * @param maxOrder    the maximum notional of an order
+     * @param maxPosition the maximum amount of shares of a company held by an account
+     * @param maxExposure the maximum exposure of an account
+     * @param maxCompany  the maximum exposure of the shard on a company
+     * @param maxRate     the maximum number of orders per second of an account
+     */
+    PreTradeRisk(double maxOrder, int maxPosition, double maxExposure, double maxCompany, double maxRate) {
+        this.maxOrder = Portfolio.units(maxOrder);
+        this.maxPosition = maxPosition;
+        this.maxExposure = Portfolio.units(maxExposure);
+        this.maxCompany = Portfolio.units(maxCompany);
+        this.maxRate = maxRate;
+    }
+
+    private Account account(String account) {
+        return accounts.computeIfAbsent(account, a -> new Account(maxRate));
+    }
+
+    private long company(int company) {
+        return company < companies.length ? companies[company] : 0;
+    }
+
+    /**
+     * Checks an order, counting it against the rate of the account.
+     *
+     * @param account the account
+     * @param company the ID of the company
+     * @param held    the amount of shares of the company held by the account
+     * @param amount  the amount of the order
+     * @param price   the notional of the order (units)
+     * @param buy     {@code true} for a buy, {@code false} for a sell
+     * @return the reason why the order is rejected, {@code null} if it is accepted
+     */
+    String check(String account, int company, int held, int amount, long price, boolean buy) {
+        Account risk = account(account);
+        long now = System.currentTimeMillis();
+        risk.tokens = Math.min(maxRate, risk.tokens + (now - risk.refilled) * maxRate / 1000);
+        risk.refilled = now;
+        if (risk.tokens < 1) {
+            return "order rate limit exceeded (" + maxRate + " orders/s)";
+        }
+        risk.tokens--;
+        if (price > maxOrder) {
+            return "order notional of " + value(price) + " over the limit of " + value(maxOrder);
+        }
+        if (!buy) {
+            return null;
+        }
+        if ((long) held + amount > maxPosition) {
+            return "position of " + ((long) held + amount) + " over the limit of " + maxPosition;
+        }
+        if (risk.exposure + price > maxExposure) {
+            return "account exposure of " + value(risk.exposure + price) + " over the limit of " + value(maxExposure);
+        }
+        if (company(company) + price > maxCompany) {
+            return "exposure on the company of " + value(company(company) + price) + " over the limit of " +
+                    value(maxCompany);
+        }
+        return null;
+    }
+
+    /**
+     * Records a fill.
+     *
+     * @param account the account
+     * @param company the ID of the company
+     * @param held    the amount of shares of the company held by the account before the fill
+     * @param amount  the amount filled
+     * @param price   the notional of the fill (units)
+     * @param buy     {@code true} for a buy, {@code false} for a sell
+     */
+    void filled(String account, int company, int held, int amount, long price, boolean buy) {
+        Account risk = account(account);
+        long basis = risk.basis(company);
+        long change = buy ? price : -(held == 0 ? basis : (long) ((double) basis * amount / held));
+        if (company >= risk.basis.length) {
+            risk.basis = Arrays.copyOf(risk.basis, Math.max(company + 1, risk.basis.length * 2));
+        }
+        if (company >= companies.length) {
+            companies = Arrays.copyOf(companies, Math.max(company + 1, companies.length * 2));
+        }
+        risk.basis[company] += change;
+        risk.exposure += change;
+        companies[company] += change;
+    }
+
+    /**
+     * @param account the account
+     * @param company the ID of the company
+     * @return the cost of the shares of the company held by the account (units)
+     */
+    long basis(String account, int company) {
+        Account risk = accounts.get(account);
+        return risk == null ? 0 : risk.basis(company);
+    }
+
+    /**
+     * @param account the account
+     * @return the exposure of the account
+     */
+    double exposure(String account) {
+        Account risk = accounts.get(account);
+        return risk == null ? 0 : value(risk.exposure);
+    }
+
+    /**
+     * @param company the ID of the company
+     * @return the exposure of the shard on the company
+     */
+    double companyExposure(int company) {
+        return value(company(company));
+    }
+
+    private static double value(long units) {
+        return (double) units / Portfolio.CASH_SCALE;
+    }
+
+    private static class Account {
+        private long[] basis = new long[0];
+        private long exposure;
+        private double tokens;
+        private long refilled = System.currentTimeMillis();
+
+        Account(double tokens) {
+            this.tokens = tokens;
+        }
+
+        long basis(int company) {
+            return company < basis.length ? basis[company] : 0;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import com.pluralsight.dockerproductionaws.common.market.MarketAddresses;
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteAssembler;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.pluralsight.dockerproductionaws.portfolio.Portfolio;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The resting orders of the accounts of a shard, triggered by the market data.
+ * <p>
+ * A resting order waits for the price of its company to reach its trigger price:
+ * <ul>
+ * <li>`LIMIT`: a buy order triggers when the ask falls to its price, a sell order when the bid rises to it</li>
+ * <li>`STOP`: a buy order triggers when the ask rises to its price, a sell order (stop-loss) when the bid falls to
+ * it</li>
+ * <li>`TAKE_PROFIT`: a sell order triggers when the bid rises to its price</li>
+ * </ul>
+ * The orders of a company are indexed by trigger price (see {@link TriggerIndex}), so that a tick only visits the
+ * orders it triggers. A company is tracked from the market data address while it has resting orders, or orders
+ * being executed. The triggered orders are removed from the index and handed over with the quote that triggered them,
+ * and stay known until they are {@link #resolved(Order) resolved}: an order cancelled while it is being executed is
+ * dropped instead of being filled or placed again.
+ * <p>
+ * A triggered order placed again (see {@link #rest(Order)}) is parked until the price of its side changes, so that a
+ * limit order that the book cannot fill does not trigger again on every tick at the same price. Instances are not
+ * thread safe, each one is owned by the event loop of its shard.
+ */
+class RestingOrders {
+
+    private final EventBus eventBus;
+    private final String marketAddress;
+    private final BiConsumer<Order, JsonObject> triggered;
+    private final Map<Long, Order> ids = new HashMap<>();
+    private final Map<String, Book> books = new HashMap<>();
+    private Order[] slots = new Order[16];
+    private int[] free = new int[16];
+    private int freeCount;
+    private int used;
+    private long sequence;
+
+    /**
+     * @param eventBus      the event bus
+     * @param marketAddress the market data address
+     * @param triggered     called with each triggered order and the quote that triggered it
+     */
+    RestingOrders(EventBus eventBus, String marketAddress, BiConsumer<Order, JsonObject> triggered) {
+        this.eventBus = eventBus;
+        this.marketAddress = marketAddress;
+        this.triggered = triggered;
+        QuoteCodec.register(eventBus);
+    }
+
+    /**
+     * Places a resting order.
+     *
+     * @param account the account
+     * @param buy     {@code true} to buy, {@code false} to sell
+     * @param type    `LIMIT`, `STOP` or `TAKE_PROFIT`
+     * @param amount  the amount
+     * @param price   the trigger price
+     * @param quote   the quote of the company, with its `name` and `symbol`
+     * @return the order
+     */
+    Order place(String account, boolean buy, String type, int amount, double price, JsonObject quote) {
+        Order order = new Order(++sequence, account, buy, type, amount, Portfolio.units(price),
+                new JsonObject().put("name", quote.getString("name")).put("symbol", quote.getString("symbol")));
+        ids.put(order.id, order);
+        arm(order);
+        return order;
+    }
+
+    /**
+     * Places again a triggered order that could not be executed at its price, keeping its ID. It triggers again once
+     * the price of its side has changed.
+     *
+     * @param order the order
+     */
+    void rest(Order order) {
+        order.triggered = false;
+        Book book = books.get(order.symbol());
+        book.executing--;
+        book.parked(order.buy).add(order);
+    }
+
+    /**
+     * Forgets a triggered order, once it has been executed, rejected or dropped.
+     *
+     * @param order the order
+     */
+    void resolved(Order order) {
+        ids.remove(order.id);
+        Book book = books.get(order.symbol());
+        book.executing--;
+        untrack(book, order.symbol());
+    }
+
+    /**
+     * Cancels a resting order. An order being executed is cancelled too: it is dropped once its fill is known (see
+     * {@link Order#cancelled()}).
+     *
+     * @param account the account of the order
+     * @param id      the ID of the order
+     * @return {@code true} if the order was cancelled, {@code false} if it is unknown, belongs to another account or
+     * has already been executed or cancelled
+     */
+    boolean cancel(String account, long id) {
+        Order order = ids.get(id);
+        if (order == null || !order.account.equals(account) || order.cancelled) {
+            return false;
+        }
+        if (order.triggered) {
+            order.cancelled = true;
+            return true;
+        }
+        ids.remove(id);
+        Book book = books.get(order.symbol());
+        if (order.index != null) {
+            order.index.remove(order.trigger, order.slot);
+            unslot(order);
+        } else {
+            book.parked(order.buy).remove(order);
+        }
+        untrack(book, order.symbol());
+        return true;
+    }
+
+    /**
+     * @return the number of orders resting or being executed
+     */
+    int size() {
+        return ids.size();
+    }
+
+    private void arm(Order order) {
+        order.slot = slot(order);
+        Book book = books.computeIfAbsent(order.symbol(), this::track);
+        order.index = book.index(order);
+        order.index.add(order.trigger, order.slot);
+    }
+
+    private int slot(Order order) {
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (used == slots.length) {
+                slots = Arrays.copyOf(slots, used * 2);
+                free = Arrays.copyOf(free, used * 2);
+            }
+            slot = used++;
+        }
+        slots[slot] = order;
+        return slot;
+    }
+
+    private void unslot(Order order) {
+        slots[order.slot] = null;
+        free[freeCount++] = order.slot;
+        order.index = null;
+    }
+
+    private Book track(String symbol) {
+        Book book = new Book();
+        book.consumer = eventBus.consumer(MarketAddresses.of(marketAddress, symbol), new QuoteAssembler(quote ->
+                trigger(book, symbol, quote)));
+        return book;
+    }
+
+    private void untrack(Book book, String symbol) {
+        if (book.size() == 0) {
+            book.consumer.unregister();
+            books.remove(symbol);
+        }
+    }
+
+    private void trigger(Book book, String symbol, Quote quote) {
+        if (book.size() == 0) {
+            return;
+        }
+        long ask = Portfolio.units(quote.getAsk());
+        long bid = Portfolio.units(quote.getBid());
+        // The parked orders only trigger again once the price of their side has moved
+        if (ask != book.ask) {
+            book.ask = ask;
+            arm(book.parkedBuys);
+        }
+        if (bid != book.bid) {
+            book.bid = bid;
+            arm(book.parkedSells);
+        }
+        JsonObject json = quote.toJson();
+        book.buyLimits.trigger(ask, slot -> handOver(slot, json));
+        book.buyStops.trigger(ask, slot -> handOver(slot, json));
+        book.sellLimits.trigger(bid, slot -> handOver(slot, json));
+        book.sellStops.trigger(bid, slot -> handOver(slot, json));
+        untrack(book, symbol);
+    }
+
+    private void arm(List<Order> parked) {
+        if (parked.isEmpty()) {
+            return;
+        }
+        List<Order> orders = new ArrayList<>(parked);
+        parked.clear();
+        orders.forEach(this::arm);
+    }
+
+    private void handOver(int slot, JsonObject quote) {
+        Order order = slots[slot];
+        unslot(order);
+        order.triggered = true;
+        books.get(order.symbol()).executing++;
+        triggered.accept(order, quote);
+    }
+
+    /**
+     * A resting order.
+     */
+    static class Order {
+        final long id;
+        final String account;
+        final boolean buy;
+        final String type;
+        final int amount;
+        final long trigger;
+        final JsonObject quote;
+        private int slot;
+        private TriggerIndex index;
+        private boolean triggered;
+        private boolean cancelled;
+
+        Order(long id, String account, boolean buy, String type, int amount, long trigger, JsonObject quote) {
+            this.id = id;
+            this.account = account;
+            this.buy = buy;
+            this.type = type;
+            this.amount = amount;
+            this.trigger = trigger;
+            this.quote = quote;
+        }
+
+        /**
+         * @return whether the order was cancelled while it was being executed
+         */
+        boolean cancelled() {
+            return cancelled;
+        }
+
+        String symbol() {
+            return quote.getString("symbol");
+        }
+
+        /**
+         * @return the trigger price
+         */
+        double price() {
+            return (double) trigger / Portfolio.CASH_SCALE;
+        }
+
+        JsonObject toJson() {
+            return new JsonObject()
+                    .put("id", id)
+                    .put("account", account)
+                    .put("action", buy ? "BUY" : "SELL")
+                    .put("type", type)
+                    .put("amount", amount)
+                    .put("price", price())
+                    .put("quote", quote.copy());
+        }
+    }
+
+    /**
+     * The resting orders of a company, by side and direction, the parked ones by side with the last prices, and the
+     * number of orders being executed.
+     */
+    private static class Book {
+        private final TriggerIndex buyLimits = new TriggerIndex(false);
+        private final TriggerIndex buyStops = new TriggerIndex(true);
+        private final TriggerIndex sellLimits = new TriggerIndex(true);
+        private final TriggerIndex sellStops = new TriggerIndex(false);
+        private final List<Order> parkedBuys = new ArrayList<>();
+        private final List<Order> parkedSells = new ArrayList<>();
+        private long ask;
+        private long bid;
+        private int executing;
+        private MessageConsumer<Object> consumer;
+
+        List<Order> parked(boolean buy) {
+            return buy ? parkedBuys : parkedSells;
+        }
+
+        TriggerIndex index(Order order) {
+            if (order.buy) {
+                return "STOP".equals(order.type) ? buyStops : buyLimits;
+            }
+            return "STOP".equals(order.type) ? sellStops : sellLimits;
+        }
+
+        int size() {
+            return buyLimits.size() + buyStops.size() + sellLimits.size() + sellStops.size() + parkedBuys.size() +
+                    parkedSells.size() + executing;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The resting orders of one side of a company that trigger in the same direction, sorted by trigger price.
+ * <p>
+ * The trigger prices (in cash units, see {@link com.pluralsight.dockerproductionaws.portfolio.Portfolio#units(double)})
+ * and the slots of the orders are held in parallel primitive arrays, sorted so that the next order to trigger is the
+ * last one. A price move therefore only visits the orders it crosses, and removes them by shrinking the arrays: the
+ * cost of a tick does not depend on the number of orders left resting. Orders with the same trigger price trigger in
+ * the order they were added. Instances are not thread safe.
+ */
+class TriggerIndex {
+
+    private final boolean rising;
+    private long[] keys = new long[16];
+    private int[] slots = new int[16];
+    private int size;
+
+    /**
+     * @param rising {@code true} if the orders trigger when the price rises to their trigger price, {@code false} if
+     *               they trigger when it falls to it
+     */
+    TriggerIndex(boolean rising) {
+        this.rising = rising;
+    }
+
+    /**
+     * The key of a price: the orders are sorted by ascending key, and trigger once the key of the price is at most
+     * theirs.
+     */
+    private long key(long price) {
+        return rising ? -price : price;
+    }
+
+    /**
+     * @param key the key
+     * @return the index of the first order whose key is not lower than `key`
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds an order.
+     *
+     * @param trigger the trigger price of the order (units)
+     * @param slot    the slot of the order
+     */
+    void add(long trigger, int slot) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        long key = key(trigger);
+        // Ahead of the orders with the same trigger price, which trigger from the end
+        int index = lowerBound(key);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(slots, index, slots, index + 1, size - index);
+        keys[index] = key;
+        slots[index] = slot;
+        size++;
+    }
+
+    /**
+     * Removes an order.
+     *
+     * @param trigger the trigger price of the order (units)
+     * @param slot    the slot of the order
+     * @return {@code true} if the order was found
+     */
+    boolean remove(long trigger, int slot) {
+        long key = key(trigger);
+        for (int index = lowerBound(key); index < size && keys[index] == key; index++) {
+            if (slots[index] == slot) {
+                System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+                System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the orders triggered by a price, the first ones to trigger first.
+     *
+     * @param price    the price (units)
+     * @param consumer called with the slot of each triggered order
+     * @return the number of orders triggered
+     */
+    int trigger(long price, IntConsumer consumer) {
+        long key = key(price);
+        int triggered = 0;
+        while (size > 0 && keys[size - 1] >= key) {
+            size--;
+            triggered++;
+            consumer.accept(slots[size]);
+        }
+        return triggered;
+    }
+
+    /**
+     * @return the number of orders
+     */
+    int size() {
+        return size;
+    }
+}
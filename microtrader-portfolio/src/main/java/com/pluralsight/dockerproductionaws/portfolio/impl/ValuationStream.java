@@ -0,0 +1,96 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import com.pluralsight.dockerproductionaws.portfolio.PortfolioService;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Pushes the valuation of the accounts of a shard as it changes, on the {@link PortfolioService#VALUATION_ADDRESS} of
+ * each account.
+ * <p>
+ * The accounts repriced by the market data or trading are marked as changed. At most once every `period` ms, the
+ * valuation of the changed accounts is computed, and published if its value or cash differs from the last one
+ * published. The cost therefore depends neither on the rate of the ticks nor on the number of observers. Instances are
+ * not thread safe, each one is owned by the event loop of its shard.
+ */
+class ValuationStream {
+
+    private final Vertx vertx;
+    private final long period;
+    private final Function<String, JsonObject> valuation;
+    private final Map<String, double[]> published = new HashMap<>();
+    private Set<String> changed = new HashSet<>();
+    private long timer = -1;
+
+    /**
+     * @param vertx     the vert.x instance
+     * @param period    the minimum time between two publications (ms)
+     * @param valuation computes the valuation of an account, with its `value` and `cash`
+     */
+    ValuationStream(Vertx vertx, long period, Function<String, JsonObject> valuation) {
+        this.vertx = vertx;
+        this.period = period;
+        this.valuation = valuation;
+    }
+
+    /**
+     * @param account the account
+     * @return the address the valuation of the account is published on
+     */
+    static String address(String account) {
+        return PortfolioService.VALUATION_ADDRESS + "." + account;
+    }
+
+    /**
+     * Marks an account as changed.
+     *
+     * @param account the account
+     */
+    void changed(String account) {
+        changed.add(account);
+        schedule();
+    }
+
+    /**
+     * Marks accounts as changed.
+     *
+     * @param accounts the accounts
+     */
+    void changed(Collection<String> accounts) {
+        if (!accounts.isEmpty()) {
+            changed.addAll(accounts);
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (timer == -1) {
+            timer = vertx.setTimer(period, t -> {
+                timer = -1;
+                publish();
+            });
+        }
+    }
+
+    private void publish() {
+        Set<String> accounts = changed;
+        changed = new HashSet<>();
+        for (String account : accounts) {
+            JsonObject current = valuation.apply(account);
+            double value = current.getDouble("value");
+            double cash = current.getDouble("cash");
+            double[] last = published.get(account);
+            if (last == null || last[0] != value || last[1] != cash) {
+                published.put(account, new double[]{value, cash});
+                vertx.eventBus().publish(address(account), current);
+            }
+        }
+    }
+}
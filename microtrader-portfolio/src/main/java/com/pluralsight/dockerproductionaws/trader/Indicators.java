@@ -0,0 +1,149 @@
+package com.pluralsight.dockerproductionaws.trader;
+
+/**
+ * The indicators of a company, updated in constant time on each of its quotes.
+ * <p>
+ * The indicators are computed from the mid price of the quotes: the simple and exponential moving averages over a
+ * short and a long window, the variance of the price over the long window, and the volume weighted average price
+ * over the long window. They are meant to be shared by all the strategies trading the company (see
+ * {@link TradingStrategy}), so that each quote is processed once whatever the number of traders. Instances are not
+ * thread safe.
+ */
+public class Indicators {
+
+    private final RollingWindow shortPrices;
+    private final RollingWindow longPrices;
+    private final RollingWindow notionals;
+    private final RollingWindow volumes;
+    private final double shortAlpha;
+    private final double longAlpha;
+    private double shortEma;
+    private double longEma;
+    private double last;
+    private int crossover;
+    private long ticks;
+
+    /**
+     * @param shortWindow the number of quotes of the short window
+     * @param longWindow  the number of quotes of the long window
+     */
+    public Indicators(int shortWindow, int longWindow) {
+        if (shortWindow >= longWindow) {
+            throw new IllegalArgumentException("The short window must be shorter than the long window");
+        }
+        this.shortPrices = new RollingWindow(shortWindow);
+        this.longPrices = new RollingWindow(longWindow);
+        this.notionals = new RollingWindow(longWindow);
+        this.volumes = new RollingWindow(longWindow);
+        this.shortAlpha = 2.0 / (shortWindow + 1);
+        this.longAlpha = 2.0 / (longWindow + 1);
+    }
+
+    /**
+     * Updates the indicators with a quote.
+     *
+     * @param price  the price
+     * @param volume the volume traded
+     */
+    public void update(double price, double volume) {
+        boolean above = shortEma > longEma;
+        if (ticks == 0) {
+            shortEma = price;
+            longEma = price;
+        } else {
+            shortEma += shortAlpha * (price - shortEma);
+            longEma += longAlpha * (price - longEma);
+        }
+        crossover = ticks == 0 || above == shortEma > longEma || shortEma == longEma ? 0 : above ? -1 : 1;
+        last = price;
+        ticks++;
+        shortPrices.add(price);
+        longPrices.add(price);
+        notionals.add(price * volume);
+        volumes.add(volume);
+    }
+
+    /**
+     * @return {@code true} once the long window is full
+     */
+    public boolean ready() {
+        return longPrices.full();
+    }
+
+    /**
+     * @return the number of quotes received
+     */
+    public long ticks() {
+        return ticks;
+    }
+
+    /**
+     * @return the last price
+     */
+    public double last() {
+        return last;
+    }
+
+    /**
+     * @return the oldest price of the long window
+     */
+    public double oldest() {
+        return longPrices.oldest();
+    }
+
+    /**
+     * @return the simple moving average over the short window
+     */
+    public double shortAverage() {
+        return shortPrices.mean();
+    }
+
+    /**
+     * @return the simple moving average over the long window
+     */
+    public double longAverage() {
+        return longPrices.mean();
+    }
+
+    /**
+     * @return the exponential moving average over the short window
+     */
+    public double shortEma() {
+        return shortEma;
+    }
+
+    /**
+     * @return the exponential moving average over the long window
+     */
+    public double longEma() {
+        return longEma;
+    }
+
+    /**
+     * @return 1 if the short EMA crossed above the long EMA on the last quote, -1 if it crossed below, 0 otherwise
+     */
+    public int crossover() {
+        return crossover;
+    }
+
+    /**
+     * @return the variance of the price over the long window
+     */
+    public double variance() {
+        return longPrices.variance();
+    }
+
+    /**
+     * @return the standard deviation of the price over the long window
+     */
+    public double deviation() {
+        return Math.sqrt(longPrices.variance());
+    }
+
+    /**
+     * @return the volume weighted average price over the long window, the last price if nothing was traded
+     */
+    public double vwap() {
+        return volumes.sum() > 0 ? notionals.sum() / volumes.sum() : last;
+    }
+}
@@ -0,0 +1,108 @@
+package com.pluralsight.dockerproductionaws.trader;
+
+/**
+ * The last `size` values of a series, held in a primitive ring buffer, with their running sum and sum of squares.
+ * <p>
+ * Adding a value evicts the oldest one once the window is full, and updates the sums in constant time. The sums are
+ * computed again from the buffer each time it wraps around, so that the rounding errors do not accumulate. Instances
+ * are not thread safe.
+ */
+public class RollingWindow {
+
+    private final double[] values;
+    private int next;
+    private int count;
+    private double sum;
+    private double squares;
+
+    /**
+     * @param size the number of values in the window
+     */
+    public RollingWindow(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The window must hold at least one value");
+        }
+        this.values = new double[size];
+    }
+
+    /**
+     * Adds a value, evicting the oldest one if the window is full.
+     *
+     * @param value the value
+     */
+    public void add(double value) {
+        if (count == values.length) {
+            double evicted = values[next];
+            sum -= evicted;
+            squares -= evicted * evicted;
+        } else {
+            count++;
+        }
+        values[next] = value;
+        sum += value;
+        squares += value * value;
+        if (++next == values.length) {
+            next = 0;
+            resum();
+        }
+    }
+
+    private void resum() {
+        sum = 0;
+        squares = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+            squares += values[i] * values[i];
+        }
+    }
+
+    /**
+     * @return {@code true} once the window holds `size` values
+     */
+    public boolean full() {
+        return count == values.length;
+    }
+
+    /**
+     * @return the number of values in the window
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the oldest value of the window, 0 if it is empty
+     */
+    public double oldest() {
+        if (count == 0) {
+            return 0;
+        }
+        return values[count == values.length ? next : 0];
+    }
+
+    /**
+     * @return the sum of the values
+     */
+    public double sum() {
+        return sum;
+    }
+
+    /**
+     * @return the mean of the values, 0 if the window is empty
+     */
+    public double mean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @return the population variance of the values, 0 if the window is empty
+     */
+    public double variance() {
+        if (count == 0) {
+            return 0;
+        }
+        double mean = sum / count;
+        // Rounding may make it slightly negative for constant series
+        return Math.max(0, squares / count - mean * mean);
+    }
+}
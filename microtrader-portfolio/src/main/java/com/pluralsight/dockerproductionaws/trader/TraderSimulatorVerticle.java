@@ -0,0 +1,210 @@
+package com.pluralsight.dockerproductionaws.trader;
+
+import com.pluralsight.dockerproductionaws.common.MicroserviceVerticle;
+import com.pluralsight.dockerproductionaws.common.ServicePool;
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteAssembler;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.pluralsight.dockerproductionaws.portfolio.Portfolio;
+import com.pluralsight.dockerproductionaws.portfolio.PortfolioService;
+import com.pluralsight.dockerproductionaws.portfolio.PortfolioServiceBinaryProxy;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceReference;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A population of simulated traders, generating the trading load of many accounts from a single verticle.
+ * <p>
+ * The verticle simulates `population` traders, numbered from `first`: trader `n` trades on the account `trader-n`.
+ * Each one follows a company and, on each of its quotes, may buy or sell a fixed number of shares with the probability
+ * `probability`, as decided by its {@link TradingStrategy}. The strategies are picked in turn from `strategies`, and
+ * decide from the {@link Indicators} of the company (over `short` and `long` quotes), computed once per quote for all
+ * its traders. The traders are held in arrays indexed by trader, and grouped by company so that a quote only visits
+ * the traders of its company. The position of each trader is kept from the results of its orders. The orders are sent
+ * to the portfolio service in batches of up to `batch` orders, at most `window` ms after the first one (see
+ * {@link PortfolioService#tradeAccounts(JsonObject, Handler)}), in binary form if `binary` is set (see
+ * {@link PortfolioServiceBinaryProxy}).
+ * <p>
+ * Nothing is logged per trade: the orders sent, filled, rejected and failed are counted, and reported every `report`
+ * ms along with the gaps detected in the market data deltas.
+ */
+public class TraderSimulatorVerticle extends MicroserviceVerticle {
+
+    private int first;
+    private double probability;
+    private int batchSize;
+    private long window;
+    private boolean binary;
+
+    private final Random random = new Random();
+    private int[] shares;
+    private int[] positions;
+    private String[] accounts;
+    private TradingStrategy[] strategies;
+    private int[][] traders;
+    private Indicators[] indicators;
+    private ServicePool portfolios;
+    private final Map<String, PortfolioService> binaryProxies = new HashMap<>();
+
+    private JsonObject batch = new JsonObject();
+    private int pending;
+    private long windowTimer = -1;
+
+    private long sent;
+    private long filled;
+    private long rejected;
+    private long failed;
+
+    @Override
+    public void start() {
+        super.start();
+
+        int population = config().getInteger("population", 3);
+        first = config().getInteger("first", 0);
+        probability = config().getDouble("probability", 1.0);
+        batchSize = config().getInteger("batch", 100);
+        window = config().getLong("window", 100L);
+        binary = config().getBoolean("binary", false);
+        long report = config().getLong("report", 60000L);
+        String[] names = config().getString("strategies", "random").split(",");
+        int shortWindow = config().getInteger("short", 5);
+        int longWindow = config().getInteger("long", 20);
+
+        // Pick the company, number of shares and strategy of each trader, and group the traders by company
+        shares = new int[population];
+        positions = new int[population];
+        accounts = new String[population];
+        strategies = new TradingStrategy[population];
+        int[] companies = new int[population];
+        int[] counts = new int[0];
+        for (int trader = 0; trader < population; trader++) {
+            shares[trader] = TraderUtils.pickANumber();
+            accounts[trader] = "trader-" + (first + trader);
+            strategies[trader] = TradingStrategies.create(names[trader % names.length].trim(), random);
+            companies[trader] = Portfolio.company(TraderUtils.pickACompany());
+            if (companies[trader] >= counts.length) {
+                counts = Arrays.copyOf(counts, companies[trader] + 1);
+            }
+            counts[companies[trader]]++;
+        }
+        traders = new int[counts.length][];
+        indicators = new Indicators[counts.length];
+        for (int company = 0; company < counts.length; company++) {
+            traders[company] = new int[counts[company]];
+            indicators[company] = new Indicators(shortWindow, longWindow);
+            counts[company] = 0;
+        }
+        for (int trader = 0; trader < population; trader++) {
+            traders[companies[trader]][counts[companies[trader]]++] = trader;
+        }
+
+        QuoteCodec.register(vertx.eventBus());
+        portfolios = services(new JsonObject().put("name", "portfolio"));
+        QuoteAssembler market = new QuoteAssembler(this::trade);
+        vertx.eventBus().consumer(config().getString("market", "market"), market);
+        if (report > 0) {
+            vertx.setPeriodic(report, timer -> System.out.println("Traders " + first + "-" + (first + population - 1) +
+                    ": " + sent + " orders sent, " + filled + " filled, " + rejected + " rejected, " + failed +
+                    " failed, " + market.gaps() + " market data gaps"));
+        }
+        System.out.println("Simulating " + population + " traders from trader-" + first);
+    }
+
+    private void trade(Quote quote) {
+        int company = Portfolio.company(quote.getName());
+        if (company >= traders.length || traders[company].length == 0) {
+            return;
+        }
+        // Updated once for all the traders of the company
+        Indicators market = indicators[company];
+        market.update((quote.getBid() + quote.getAsk()) / 2, quote.getVolume());
+        JsonObject json = null;
+        for (int trader : traders[company]) {
+            if (random.nextDouble() >= probability) {
+                continue;
+            }
+            TradingStrategy.Action action = strategies[trader].decide(market, positions[trader]);
+            if (action == TradingStrategy.Action.HOLD) {
+                continue;
+            }
+            if (json == null) {
+                // The orders of a quote share its JSON form
+                json = quote.toJson();
+            }
+            order(trader, action.name(), json);
+        }
+    }
+
+    private void order(int trader, String action, JsonObject quote) {
+        JsonArray orders = batch.getJsonArray(accounts[trader]);
+        if (orders == null) {
+            orders = new JsonArray();
+            batch.put(accounts[trader], orders);
+        }
+        orders.add(new JsonObject().put("action", action).put("amount", shares[trader]).put("quote", quote));
+        sent++;
+        if (++pending >= batchSize) {
+            flush();
+        } else if (windowTimer == -1) {
+            windowTimer = vertx.setTimer(window, timer -> {
+                windowTimer = -1;
+                flush();
+            });
+        }
+    }
+
+    private void flush() {
+        if (windowTimer != -1) {
+            vertx.cancelTimer(windowTimer);
+            windowTimer = -1;
+        }
+        if (pending == 0) {
+            return;
+        }
+        JsonObject orders = batch;
+        int count = pending;
+        batch = new JsonObject();
+        pending = 0;
+        portfolios.<JsonObject>execute((reference, done) -> {
+            PortfolioService portfolio = binary ? binaryProxy(reference) : reference.get();
+            portfolio.tradeAccounts(orders, done);
+        }, ar -> {
+            if (ar.failed()) {
+                // Without portfolio service, the batch is lost
+                failed += count;
+                return;
+            }
+            JsonObject results = ar.result().getJsonObject("results");
+            for (String account : results.fieldNames()) {
+                int trader = Integer.parseInt(account.substring("trader-".length())) - first;
+                JsonArray placed = orders.getJsonArray(account);
+                JsonArray outcomes = results.getJsonArray(account);
+                for (int i = 0; i < outcomes.size(); i++) {
+                    if (outcomes.getJsonObject(i).getBoolean("succeeded")) {
+                        JsonObject order = placed.getJsonObject(i);
+                        int amount = order.getInteger("amount");
+                        positions[trader] += "BUY".equals(order.getString("action")) ? amount : -amount;
+                        filled++;
+                    } else {
+                        rejected++;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the binary proxy of the service of the reference, created once per service address
+     */
+    private PortfolioService binaryProxy(ServiceReference reference) {
+        return binaryProxies.computeIfAbsent(reference.record().getLocation().getString(Record.ENDPOINT),
+                address -> new PortfolioServiceBinaryProxy(vertx, address));
+    }
+}
@@ -1,13 +1,9 @@
 package com.pluralsight.dockerproductionaws.trader;
 
-import com.pluralsight.dockerproductionaws.portfolio.PortfolioService;
-import io.vertx.core.json.JsonObject;
-
-import java.util.Map;
 import java.util.Random;
 
 /**
- * A small utility class to initialize the compulsive traders and implement the stupid trading logic.
+ * A small utility class to initialize the simulated traders.
  */
 public class TraderUtils {
 
@@ -25,47 +21,7 @@ public class TraderUtils {
         }
     }
 
-    public static boolean timeToSell() {
-        return RANDOM.nextBoolean();
-    }
-
     public static int pickANumber() {
         return RANDOM.nextInt(6) + 1;
     }
-
-    public static void dumbTradingLogic(String company, int numberOfShares, PortfolioService portfolio, JsonObject quote) {
-        if (quote.getString("name").equals(company)) {
-            if (TraderUtils.timeToSell()) {
-                portfolio.sell(numberOfShares, quote, p -> {
-                    if (p.succeeded()) {
-                        System.out.println("Sold " + numberOfShares + " of " + company + "!");
-                    } else {
-                        System.out.println("D'oh, failed to sell " + numberOfShares + " of " + company + " : " + p.cause());
-                    }
-                });
-            } else {
-                portfolio.buy(numberOfShares, quote, p -> {
-                    if (p.succeeded()) {
-                        System.out.println("Bought " + numberOfShares + " of " + company + " !");
-                    } else {
-                        System.out.println("D'oh, failed to buy " + numberOfShares + " of " + company + " : " + p.cause());
-                    }
-                });
-            }
-        }
-    }
-
-    /**
-     * Version called from Groovy where json are maps.
-     *
-     * @param company        the company
-     * @param numberOfShares the number of share to buy or sell
-     * @param portfolio      the portfolio service
-     * @param quote          the quote
-     */
-    public static void dumbTradingLogic(String company, int numberOfShares,
-                                        PortfolioService portfolio, Map<String, Object> quote) {
-        JsonObject json = new JsonObject(quote);
-        dumbTradingLogic(company, numberOfShares, portfolio, json);
-    }
 }
@@ -0,0 +1,107 @@
+package com.pluralsight.dockerproductionaws.trader;
+
+import java.util.Random;
+
+import static com.pluralsight.dockerproductionaws.trader.TradingStrategy.Action.BUY;
+import static com.pluralsight.dockerproductionaws.trader.TradingStrategy.Action.HOLD;
+import static com.pluralsight.dockerproductionaws.trader.TradingStrategy.Action.SELL;
+
+/**
+ * The built-in trading strategies, and the factory of the strategies by name.
+ * <p>
+ * The parameters of the built-in strategies are picked at random within a range, so that a population of traders
+ * does not act as one. All of them wait for the indicators to be {@link Indicators#ready()}, except `random`.
+ */
+public final class TradingStrategies {
+
+    private TradingStrategies() {
+    }
+
+    /**
+     * Creates a strategy.
+     *
+     * @param name   `momentum`, `mean-reversion`, `crossover`, `random`, or the name of a class implementing
+     *               {@link TradingStrategy} with a public no-argument constructor
+     * @param random the source of the parameters of the strategy
+     * @return the strategy
+     * @throws IllegalArgumentException if the strategy is unknown
+     */
+    public static TradingStrategy create(String name, Random random) {
+        switch (name) {
+            case "momentum":
+                return momentum(0.005 + random.nextDouble() * 0.015);
+            case "mean-reversion":
+                return meanReversion(1.0 + random.nextDouble() * 1.5);
+            case "crossover":
+                return crossover();
+            case "random":
+                return random(random);
+            default:
+                try {
+                    return (TradingStrategy) Class.forName(name).newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("Unknown trading strategy: " + name, e);
+                }
+        }
+    }
+
+    /**
+     * Follows the trend: buys when the price rose by more than `threshold` over the long window, sells when it fell by
+     * more.
+     *
+     * @param threshold the relative change of the price
+     * @return the strategy
+     */
+    public static TradingStrategy momentum(double threshold) {
+        return (indicators, position) -> {
+            if (!indicators.ready() || indicators.oldest() <= 0) {
+                return HOLD;
+            }
+            double change = indicators.last() / indicators.oldest() - 1;
+            return change > threshold ? BUY : change < -threshold && position > 0 ? SELL : HOLD;
+        };
+    }
+
+    /**
+     * Bets on the return to the mean: buys when the price is more than `deviations` standard deviations below its
+     * volume weighted average, sells when it is as far above.
+     *
+     * @param deviations the distance to the average, in standard deviations
+     * @return the strategy
+     */
+    public static TradingStrategy meanReversion(double deviations) {
+        return (indicators, position) -> {
+            double deviation = indicators.deviation();
+            if (!indicators.ready() || deviation == 0) {
+                return HOLD;
+            }
+            double score = (indicators.last() - indicators.vwap()) / deviation;
+            return score < -deviations ? BUY : score > deviations && position > 0 ? SELL : HOLD;
+        };
+    }
+
+    /**
+     * Buys when the short EMA crosses above the long EMA, sells when it crosses below.
+     *
+     * @return the strategy
+     */
+    public static TradingStrategy crossover() {
+        return (indicators, position) -> {
+            if (!indicators.ready()) {
+                return HOLD;
+            }
+            int crossover = indicators.crossover();
+            return crossover > 0 ? BUY : crossover < 0 && position > 0 ? SELL : HOLD;
+        };
+    }
+
+    /**
+     * Buys or sells at random, whatever the market and the position.
+     *
+     * @param random the source of the decisions
+     * @return the strategy
+     */
+    public static TradingStrategy random(Random random) {
+        return (indicators, position) -> random.nextBoolean() ? SELL : BUY;
+    }
+}
@@ -0,0 +1,28 @@
+package com.pluralsight.dockerproductionaws.trader;
+
+/**
+ * The decision logic of a trader, called on each quote of the company it trades.
+ * <p>
+ * A strategy decides from the indicators of the company, which are shared by all the traders of the company (see
+ * {@link Indicators}), and from the position of the trader. Strategies therefore hold their parameters only, and
+ * deciding must be cheap: a quote may be handed to thousands of strategies. Implementations are created by
+ * {@link TradingStrategies#create(String, java.util.Random)}, from their name or class name.
+ */
+public interface TradingStrategy {
+
+    /**
+     * The decision of a strategy.
+     */
+    enum Action {
+        BUY,
+        SELL,
+        HOLD
+    }
+
+    /**
+     * @param indicators the indicators of the company
+     * @param position   the number of shares of the company held by the trader
+     * @return what to do on the last quote
+     */
+    Action decide(Indicators indicators, int position);
+}
@@ -115,6 +115,200 @@ var PortfolioService = function(j_val) {
     } else throw new TypeError('function invoked with invalid arguments');
   };
 
+  /**
+   Gets the portfolio of an account, opening the account if needed.
+
+   @public
+   @param account {string} the account 
+   @param resultHandler {function} the result handler called when the portfolio has been retrieved 
+   */
+  this.getAccount = function(account, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 2 && typeof __args[0] === 'string' && typeof __args[1] === 'function') {
+      j_portfolioService["getAccount(java.lang.String,io.vertx.core.Handler)"](account, function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(utils.convReturnDataObject(ar.result()), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
+  /**
+   Buy `amount` shares of the given shares (quote) for an account.
+
+   @public
+   @param account {string} the account 
+   @param amount {number} the amount 
+   @param quote {Object} the last quote 
+   @param resultHandler {function} the result handler with the updated portfolio of the account 
+   */
+  this.buyFor = function(account, amount, quote, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 4 && typeof __args[0] === 'string' && typeof __args[1] ==='number' && (typeof __args[2] === 'object' && __args[2] != null) && typeof __args[3] === 'function') {
+      j_portfolioService["buyFor(java.lang.String,int,io.vertx.core.json.JsonObject,io.vertx.core.Handler)"](account, amount, utils.convParamJsonObject(quote), function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(utils.convReturnDataObject(ar.result()), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
+  /**
+   Sell `amount` shares of the given shares (quote) for an account.
+
+   @public
+   @param account {string} the account 
+   @param amount {number} the amount 
+   @param quote {Object} the last quote 
+   @param resultHandler {function} the result handler with the updated portfolio of the account 
+   */
+  this.sellFor = function(account, amount, quote, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 4 && typeof __args[0] === 'string' && typeof __args[1] ==='number' && (typeof __args[2] === 'object' && __args[2] != null) && typeof __args[3] === 'function') {
+      j_portfolioService["sellFor(java.lang.String,int,io.vertx.core.json.JsonObject,io.vertx.core.Handler)"](account, amount, utils.convParamJsonObject(quote), function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(utils.convReturnDataObject(ar.result()), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
+  /**
+   Evaluates the current value of the portfolio of an account.
+
+   @public
+   @param account {string} the account 
+   @param resultHandler {function} the result handler with the valuation 
+   */
+  this.evaluateAccount = function(account, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 2 && typeof __args[0] === 'string' && typeof __args[1] === 'function') {
+      j_portfolioService["evaluateAccount(java.lang.String,io.vertx.core.Handler)"](account, function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(ar.result(), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
+  /**
+   Values the portfolio of an account at the last known prices, reporting the age of each price.
+
+   @public
+   @param account {string} the account 
+   @param resultHandler {function} the result handler with the <code>account</code>, its <code>cash</code>, the <code>value</code> of its shares, and its <code>positions</code>: per company, the <code>amount</code> held and the <code>price</code>, <code>value</code> and <code>age</code> (ms) of the last known price 
+   */
+  this.getValuation = function(account, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 2 && typeof __args[0] === 'string' && typeof __args[1] === 'function') {
+      j_portfolioService["getValuation(java.lang.String,io.vertx.core.Handler)"](account, function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(utils.convReturnJson(ar.result()), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
+  /**
+   Applies a batch of orders to the portfolio of an account, in a single call. The orders are applied in turn, the
+   order book of each company being retrieved once for the whole batch. A failed order does not prevent the next
+   ones from being applied.
+
+   @public
+   @param account {string} the account 
+   @param orders {Array.<Object>} the orders: <code>{"action": "BUY"|"SELL", "amount": n, "quote": {...}}</code> 
+   @param resultHandler {function} the result handler with the <code>results</code> of the orders, in order (<code>{"succeeded": true}</code> or <code>{"succeeded": false, "message": "..."}</code>), and the resulting <code>portfolio</code> 
+   */
+  this.trade = function(account, orders, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 3 && typeof __args[0] === 'string' && typeof __args[1] === 'object' && __args[1] instanceof Array && typeof __args[2] === 'function') {
+      j_portfolioService["trade(java.lang.String,java.util.List,io.vertx.core.Handler)"](account, utils.convParamListJsonObject(orders), function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(utils.convReturnJson(ar.result()), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
+  /**
+   Applies a batch of orders of several accounts, in a single call. The batch is split by shard, and the orders of
+   each account are applied as with the single account batches.
+
+   @public
+   @param orders {Object} the orders of each account: <code>{"account": [{"action": "BUY"|"SELL", "amount": n, "quote": {...}}, ...], ...}</code> 
+   @param resultHandler {function} the result handler with the <code>results</code> of the orders of each account, in order: <code>{"results": {"account": [{"succeeded": true}, ...], ...}}</code> 
+   */
+  this.tradeAccounts = function(orders, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 2 && (typeof __args[0] === 'object' && __args[0] != null) && typeof __args[1] === 'function') {
+      j_portfolioService["tradeAccounts(io.vertx.core.json.JsonObject,io.vertx.core.Handler)"](utils.convParamJsonObject(orders), function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(utils.convReturnJson(ar.result()), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
+  /**
+   Places a resting order, executed against the order book of the company once the market reaches its price. A
+   <code>LIMIT</code> order buys when the ask falls to its price, or sells when the bid rises to it, and is only filled at its
+   price or better. A <code>STOP</code> order buys when the ask rises to its price, or sells when the bid falls to it. A
+   <code>TAKE_PROFIT</code> order sells when the bid rises to its price. Once triggered, the outcome of the order is published
+   on the order address.
+
+   @public
+   @param account {string} the account 
+   @param order {Object} the order: <code>{"action": "BUY"|"SELL", "type": "LIMIT"|"STOP"|"TAKE_PROFIT", "amount": n, "price": p, "quote": {...}}</code> 
+   @param resultHandler {function} the result handler with the resting order and its <code>id</code> 
+   */
+  this.placeOrder = function(account, order, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 3 && typeof __args[0] === 'string' && (typeof __args[1] === 'object' && __args[1] != null) && typeof __args[2] === 'function') {
+      j_portfolioService["placeOrder(java.lang.String,io.vertx.core.json.JsonObject,io.vertx.core.Handler)"](account, utils.convParamJsonObject(order), function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(utils.convReturnJson(ar.result()), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
+  /**
+   Cancels a resting order.
+
+   @public
+   @param account {string} the account 
+   @param id {number} the ID of the order 
+   @param resultHandler {function} the result handler, with <code>true</code> if the order was cancelled, <code>false</code> if it was already executed or cancelled 
+   */
+  this.cancelOrder = function(account, id, resultHandler) {
+    var __args = arguments;
+    if (__args.length === 3 && typeof __args[0] === 'string' && typeof __args[1] ==='number' && typeof __args[2] === 'function') {
+      j_portfolioService["cancelOrder(java.lang.String,long,io.vertx.core.Handler)"](account, id, function(ar) {
+      if (ar.succeeded()) {
+        resultHandler(ar.result(), null);
+      } else {
+        resultHandler(null, ar.cause());
+      }
+    });
+    } else throw new TypeError('function invoked with invalid arguments');
+  };
+
   // A reference to the underlying Java delegate
   // NOTE! This is an internal API and must not be used in user code.
   // If you rely on this property your code is likely to break if we change it / remove it without warning.
@@ -0,0 +1,66 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The market data the portfolio tests trade on: the quotes and the order book of MacroHard (`MCH`).
+ */
+public final class MarketFixtures {
+
+    private MarketFixtures() {
+    }
+
+    /**
+     * @return a quote of MacroHard, at 3328 bid and 3329 ask
+     */
+    public static JsonObject quote() {
+        return quote(3328.0, 3329.0);
+    }
+
+    /**
+     * @param bid the bid
+     * @param ask the ask
+     * @return a quote of MacroHard at the given prices
+     */
+    public static JsonObject quote(double bid, double ask) {
+        return new JsonObject()
+                .put("exchange", "vert.x stock exchange")
+                .put("symbol", "MCH")
+                .put("name", "MacroHard")
+                .put("bid", bid)
+                .put("ask", ask)
+                .put("volume", 3)
+                .put("open", 600.0)
+                .put("shares", 3);
+    }
+
+    /**
+     * @param price the price of the level
+     * @param size  the number of shares of the level
+     * @return a side of an order book with a single level
+     */
+    public static JsonArray level(double price, int size) {
+        return new JsonArray().add(new JsonObject().put("price", price).put("size", size));
+    }
+
+    /**
+     * @param bids the bid levels
+     * @param asks the ask levels
+     * @return an order book depth snapshot, as answered by the quote generator
+     */
+    public static JsonObject book(JsonArray bids, JsonArray asks) {
+        return new JsonObject().put("bids", bids).put("asks", asks);
+    }
+
+    /**
+     * Answers the order book requests of MacroHard with the given book.
+     *
+     * @param vertx the vert.x instance
+     * @param book  the order book
+     */
+    public static void serveBook(Vertx vertx, JsonObject book) {
+        vertx.eventBus().consumer("market.book.MCH", message -> message.reply(book));
+    }
+}
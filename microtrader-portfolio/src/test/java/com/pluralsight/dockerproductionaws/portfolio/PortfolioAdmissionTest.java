@@ -0,0 +1,176 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class PortfolioAdmissionTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp(TestContext context) {
+        vertx = Vertx.vertx();
+        // Fail the tests on the assertions made in the event bus handlers
+        vertx.exceptionHandler(context.exceptionHandler());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testCallsAreQueuedThenShed(TestContext context) {
+        Async async = context.async();
+        List<Message<Object>> held = new ArrayList<>();
+        PortfolioAdmission admission = new PortfolioAdmission(vertx, 2, 1, 30000, held::add);
+        vertx.eventBus().consumer("admission", admission);
+        List<Integer> answers = new ArrayList<>();
+        for (int call = 0; call < 4; call++) {
+            int n = call;
+            vertx.eventBus().send("admission", n, reply -> {
+                if (reply.succeeded() || n == 2) {
+                    answers.add(n);
+                    return;
+                }
+                // Shed at once, while the other calls are still in flight
+                assertThat(n).isEqualTo(3);
+                assertThat(((ReplyException) reply.cause()).failureCode()).isEqualTo(PortfolioAdmission.OVERLOADED);
+                assertThat(held).hasSize(2);
+                assertThat(admission.inFlight()).isEqualTo(2);
+                assertThat(admission.waiting()).isEqualTo(1);
+                assertThat(admission.shed()).isEqualTo(1);
+                // Answering a call admits the queued one
+                held.get(0).reply("done");
+                assertThat(held).hasSize(3);
+                assertThat(held.get(2).body()).isEqualTo(2);
+                held.get(1).reply("done");
+                held.get(2).fail(500, "failed");
+                assertThat(admission.inFlight()).isEqualTo(0);
+                assertThat(admission.admitted()).isEqualTo(3);
+                assertThat(admission.queued()).isEqualTo(1);
+                vertx.setTimer(100, timer -> {
+                    assertThat(answers).containsExactly(0, 1, 2);
+                    async.complete();
+                });
+            });
+        }
+    }
+
+    @Test
+    public void testQueueIsDrainedWithoutRecursion(TestContext context) {
+        Async async = context.async();
+        List<Message<Object>> held = new ArrayList<>();
+        // Once the first call is answered, the queued ones are answered as they are admitted
+        PortfolioAdmission admission = new PortfolioAdmission(vertx, 1, 100000, 30000, message -> {
+            if (held.isEmpty()) {
+                held.add(message);
+            } else {
+                message.reply(message.body());
+            }
+        });
+        vertx.eventBus().consumer("admission", admission);
+        int calls = 50000;
+        int[] answered = {0};
+        for (int call = 0; call < calls; call++) {
+            vertx.eventBus().send("admission", call, context.asyncAssertSuccess(reply -> {
+                if (++answered[0] == calls) {
+                    assertThat(admission.admitted()).isEqualTo(calls);
+                    assertThat(admission.shed()).isEqualTo(0);
+                    async.complete();
+                }
+            }));
+        }
+        vertx.setPeriodic(10, timer -> {
+            if (admission.waiting() == calls - 1) {
+                vertx.cancelTimer(timer);
+                held.get(0).reply("done");
+            }
+        });
+    }
+
+    @Test
+    public void testUnansweredCallsExpire(TestContext context) {
+        Async async = context.async();
+        // The first call never gets an answer, the second one throws
+        PortfolioAdmission admission = new PortfolioAdmission(vertx, 1, 1, 200, message -> {
+            if ("throw".equals(message.body())) {
+                throw new IllegalArgumentException("invalid call");
+            } else if ("answer".equals(message.body())) {
+                message.reply("done");
+            }
+        });
+        vertx.eventBus().consumer("admission", admission);
+        vertx.eventBus().send("admission", "ignore", new DeliveryOptions().setSendTimeout(200),
+                context.asyncAssertFailure(ignored -> sendThrowing(context, admission, async)));
+    }
+
+    /**
+     * Sent once its caller gave up on the first call, so that it is still in time when that call expires.
+     */
+    private void sendThrowing(TestContext context, PortfolioAdmission admission, Async async) {
+        vertx.eventBus().send("admission", "throw", context.asyncAssertFailure(thrown -> {
+            // Admitted once the first call has expired, and failed as soon as it threw
+            assertThat(((ReplyException) thrown).failureCode()).isEqualTo(500);
+            assertThat(admission.expired()).isEqualTo(1);
+            assertThat(admission.inFlight()).isEqualTo(0);
+            vertx.eventBus().send("admission", "answer", context.asyncAssertSuccess(reply -> {
+                assertThat(admission.admitted()).isEqualTo(3);
+                assertThat(admission.shed()).isEqualTo(0);
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test
+    public void testQueuedCallsExpire(TestContext context) {
+        Async async = context.async();
+        List<Message<Object>> held = new ArrayList<>();
+        // Everything runs on the event loop of the admission, so that its sweep cannot run while the test waits
+        vertx.getOrCreateContext().runOnContext(v -> {
+            PortfolioAdmission admission = new PortfolioAdmission(vertx, 1, 10, 500, held::add);
+            vertx.eventBus().consumer("admission", admission);
+            vertx.eventBus().send("admission", "held", context.asyncAssertSuccess());
+            vertx.eventBus().send("admission", "queued", context.asyncAssertFailure(failure -> {
+                // Failed once its timeout passed in the queue, without being handled
+                assertThat(((ReplyException) failure).failureCode()).isEqualTo(PortfolioAdmission.OVERLOADED);
+                assertThat(held).hasSize(1);
+                assertThat(admission.admitted()).isEqualTo(1);
+                assertThat(admission.expired()).isEqualTo(1);
+                assertThat(admission.waiting()).isEqualTo(0);
+                async.complete();
+            }));
+            vertx.setPeriodic(10, timer -> {
+                if (admission.waiting() == 1) {
+                    vertx.cancelTimer(timer);
+                    sleep(600);
+                    // The call in flight is answered after the timeout of the queued one
+                    held.get(0).reply("late");
+                }
+            });
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
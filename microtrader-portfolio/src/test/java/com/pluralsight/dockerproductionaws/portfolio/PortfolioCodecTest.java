@@ -0,0 +1,63 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PortfolioCodecTest {
+
+    @Test
+    public void testPortfolioRoundTrip() {
+        Portfolio portfolio = new Portfolio(new JsonObject()
+                .put("cash", 1234.5678)
+                .put("shares", new JsonObject().put("MacroHard", 3).put("Black Coat", 2).put("Divinator", 0)));
+        Buffer buffer = Buffer.buffer().appendByte((byte) 7);
+        new PortfolioCodec().encodeToWire(buffer, portfolio);
+        Portfolio decoded = new PortfolioCodec().decodeFromWire(1, buffer);
+        assertThat(decoded.cashUnits()).isEqualTo(portfolio.cashUnits());
+        assertThat(decoded.toJson()).isEqualTo(portfolio.toJson());
+        // Empty portfolios only carry their cash and count
+        Buffer empty = Buffer.buffer();
+        new PortfolioCodec().encodeToWire(empty, new Portfolio());
+        assertThat(empty.length()).isEqualTo(12);
+    }
+
+    @Test
+    public void testCallRoundTrip() {
+        JsonObject quote = new JsonObject()
+                .put("symbol", "MCH")
+                .put("name", "MacroHard")
+                .put("bid", 3328.0)
+                .put("ask", 3329.0)
+                .put("volume", 3)
+                .put("open", 600.0)
+                .put("shares", 3)
+                .put("extra", "passed through");
+        Buffer buffer = Buffer.buffer();
+        new PortfolioCallCodec().encodeToWire(buffer, new PortfolioCall("buyFor", "alice", 5, quote));
+        PortfolioCall call = new PortfolioCallCodec().decodeFromWire(0, buffer);
+        assertThat(call.getAction()).isEqualTo("buyFor");
+        assertThat(call.getAccount()).isEqualTo("alice");
+        assertThat(call.getAmount()).isEqualTo(5);
+        assertThat(call.getQuote()).isEqualTo(quote);
+        assertThat(call.getOrders()).isNull();
+
+        buffer = Buffer.buffer();
+        new PortfolioCallCodec().encodeToWire(buffer, new PortfolioCall("getAccount", "bob", 0, null));
+        call = new PortfolioCallCodec().decodeFromWire(0, buffer);
+        assertThat(call.getAccount()).isEqualTo("bob");
+        assertThat(call.getQuote()).isNull();
+
+        JsonObject orders = new JsonObject().put("carol", new JsonArray()
+                .add(new JsonObject().put("action", "BUY").put("amount", 1).put("quote", quote)));
+        buffer = Buffer.buffer();
+        new PortfolioCallCodec().encodeToWire(buffer, new PortfolioCall(orders));
+        call = new PortfolioCallCodec().decodeFromWire(0, buffer);
+        assertThat(call.getAction()).isEqualTo("tradeAccounts");
+        assertThat(call.getAccount()).isNull();
+        assertThat(call.getOrders()).isEqualTo(orders);
+    }
+}
@@ -3,12 +3,11 @@ package com.pluralsight.dockerproductionaws.portfolio;
 import com.pluralsight.dockerproductionaws.portfolio.PortfolioService;
 import com.pluralsight.dockerproductionaws.portfolio.impl.PortfolioServiceImpl;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
-import io.vertx.servicediscovery.ServiceDiscovery;
-import io.vertx.servicediscovery.ServiceDiscoveryOptions;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,7 +21,6 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class PortfolioServiceBuyTest {
     private Portfolio portfolio;
     private Vertx vertx;
-    private ServiceDiscovery discovery;
     private JsonObject getQuote() {
         return new JsonObject()
                 .put("exchange", "vert.x stock exchange")
@@ -39,15 +37,12 @@ public class PortfolioServiceBuyTest {
     @Before
     public void testSetup(TestContext context) {
         vertx = Vertx.vertx();
-        discovery = ServiceDiscovery
-                .create(vertx, new ServiceDiscoveryOptions()
-                .setBackendConfiguration(vertx.getOrCreateContext().config()));
     }
 
     @Test
     public void testBuy(TestContext context) {
         Async async = context.async();
-        PortfolioService svc = new PortfolioServiceImpl(vertx, discovery, 10000);
+        PortfolioService svc = new PortfolioServiceImpl(vertx, 10000);
         svc.getPortfolio(ar -> {
             portfolio = ar.result();
             svc.buy(3, getQuote(), result -> {
@@ -62,7 +57,7 @@ public class PortfolioServiceBuyTest {
     @Test
     public void testBuyNotEnoughCash(TestContext context) {
         Async async = context.async();
-        PortfolioService svc = new PortfolioServiceImpl(vertx, discovery, 9000);
+        PortfolioService svc = new PortfolioServiceImpl(vertx, 9000);
         svc.getPortfolio(ar -> {
             portfolio = ar.result();
             svc.buy(3, getQuote(), result -> {
@@ -76,7 +71,7 @@ public class PortfolioServiceBuyTest {
     @Test
     public void testBuyNotEnoughStocks(TestContext context) {
         Async async = context.async();
-        PortfolioService svc = new PortfolioServiceImpl(vertx, discovery, 15000);
+        PortfolioService svc = new PortfolioServiceImpl(vertx, 15000);
         svc.getPortfolio(ar -> {
             portfolio = ar.result();
             svc.buy(4, getQuote(), result -> {
@@ -90,7 +85,7 @@ public class PortfolioServiceBuyTest {
     @Test
     public void testBuyNegativeStocks(TestContext context) {
         Async async = context.async();
-        PortfolioService svc = new PortfolioServiceImpl(vertx, discovery, 15000);
+        PortfolioService svc = new PortfolioServiceImpl(vertx, 15000);
         svc.getPortfolio(ar -> {
             portfolio = ar.result();
             svc.buy(-1, getQuote(), result -> {
@@ -100,4 +95,43 @@ public class PortfolioServiceBuyTest {
             });
         });
     }
+
+    private void orderBook(JsonArray asks) {
+        vertx.eventBus().consumer("market.book.MCH", message -> message.reply(new JsonObject()
+                .put("bids", new JsonArray())
+                .put("asks", asks)));
+    }
+
+    @Test
+    public void testBuyAgainstOrderBook(TestContext context) {
+        Async async = context.async();
+        orderBook(new JsonArray()
+                .add(new JsonObject().put("price", 1000.0).put("size", 3))
+                .add(new JsonObject().put("price", 1001.0).put("size", 10)));
+        PortfolioService svc = new PortfolioServiceImpl(vertx, 10000);
+        svc.getPortfolio(ar -> {
+            portfolio = ar.result();
+            // More than the quoted shares, but the book has enough liquidity
+            svc.buy(5, getQuote(), result -> {
+                assertThat(result.succeeded()).isTrue();
+                assertThat(portfolio.getCash()).isEqualTo(10000 - 3 * 1000.0 - 2 * 1001.0);
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testBuyNotEnoughLiquidity(TestContext context) {
+        Async async = context.async();
+        orderBook(new JsonArray().add(new JsonObject().put("price", 1000.0).put("size", 2)));
+        PortfolioService svc = new PortfolioServiceImpl(vertx, 10000);
+        svc.getPortfolio(ar -> {
+            portfolio = ar.result();
+            svc.buy(3, getQuote(), result -> {
+                assertThat(result.succeeded()).isFalse();
+                assertThat(portfolio.getCash()).isEqualTo(10000);
+                async.complete();
+            });
+        });
+    }
 }
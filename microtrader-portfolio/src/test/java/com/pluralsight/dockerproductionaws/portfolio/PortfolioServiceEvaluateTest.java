@@ -0,0 +1,135 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.portfolio.impl.PortfolioServiceImpl;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.book;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.level;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.quote;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.serveBook;
+import static org.junit.Assert.assertEquals;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class PortfolioServiceEvaluateTest {
+    private Vertx vertx;
+    private PortfolioService svc;
+
+    @Before
+    public void testSetup(TestContext context) {
+        vertx = Vertx.vertx();
+        serveBook(vertx, book(level(1000.0, 100), level(1000.0, 100)));
+        svc = new PortfolioServiceImpl(vertx, 10000);
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testEvaluateAtTradePrice(TestContext context) {
+        Async async = context.async();
+        svc.buy(3, quote(), context.asyncAssertSuccess(portfolio ->
+                svc.evaluate(context.asyncAssertSuccess(value -> {
+                    assertThat(value).isEqualTo(3 * 3328.0);
+                    async.complete();
+                }))));
+    }
+
+    @Test
+    public void testEvaluateFollowsTheMarket(TestContext context) {
+        Async bought = context.async();
+        svc.buy(3, quote(), context.asyncAssertSuccess(portfolio -> bought.complete()));
+        bought.awaitSuccess(5000);
+
+        vertx.eventBus().publish("market.MCH", new Quote("MCH", "MacroHard", 3400.0, 3401.0, 3, 600.0, 3));
+        // The quote reaches the service asynchronously, evaluate on the event loop until it is taken into account
+        Async async = context.async();
+        AtomicBoolean followed = new AtomicBoolean();
+        vertx.setPeriodic(10, timer -> svc.evaluate(context.asyncAssertSuccess(value -> {
+            if (Math.abs(value - 3 * 3400.0) > 0.001 || !followed.compareAndSet(false, true)) {
+                return;
+            }
+            vertx.cancelTimer(timer);
+            svc.getValuation(PortfolioService.DEFAULT_ACCOUNT, context.asyncAssertSuccess(valuation -> {
+                JsonObject position = valuation.getJsonObject("positions").getJsonObject("MacroHard");
+                assertEquals(3 * 3400.0, valuation.getDouble("value"), 0.001);
+                assertEquals(7000.0, valuation.getDouble("cash"), 0.001);
+                assertThat(position.getInteger("amount")).isEqualTo(3);
+                assertEquals(3400.0, position.getDouble("price"), 0.001);
+                assertThat(position.getLong("age")).isBetween(0L, 5000L);
+                async.complete();
+            }));
+        })));
+    }
+
+    @Test
+    public void testHoldingsWithoutSymbolFollowTheMarket(TestContext context) {
+        List<JsonObject> pushed = new CopyOnWriteArrayList<>();
+        vertx.eventBus().<JsonObject>consumer(PortfolioService.VALUATION_ADDRESS + ".default",
+                message -> pushed.add(message.body()));
+
+        Async bought = context.async();
+        svc.buy(3, quote().put("symbol", (String) null), context.asyncAssertSuccess(portfolio -> bought.complete()));
+        bought.awaitSuccess(5000);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> pushed.size() == 1);
+
+        // The symbol is learnt from the quotes of the whole market, then the company is followed on its own address
+        vertx.eventBus().publish("market", new Quote("MCH", "MacroHard", 3400.0, 3401.0, 3, 600.0, 3));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> pushed.size() == 2);
+        assertEquals(3 * 3400.0, pushed.get(1).getDouble("value"), 0.001);
+        vertx.eventBus().publish("market.MCH", new Quote("MCH", "MacroHard", 3500.0, 3501.0, 3, 600.0, 3));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> pushed.size() == 3);
+        assertEquals(3 * 3500.0, pushed.get(2).getDouble("value"), 0.001);
+    }
+
+    @Test
+    public void testSoldPositionsAreNotValued(TestContext context) {
+        Async async = context.async();
+        svc.buy(3, quote(), context.asyncAssertSuccess(bought ->
+                svc.sell(3, quote(), context.asyncAssertSuccess(sold ->
+                        svc.getValuation(PortfolioService.DEFAULT_ACCOUNT, context.asyncAssertSuccess(valuation -> {
+                            assertThat(valuation.getDouble("value")).isEqualTo(0.0);
+                            assertThat(valuation.getJsonObject("positions")).isEmpty();
+                            async.complete();
+                        }))))));
+    }
+
+    @Test
+    public void testValuationIsPushed(TestContext context) {
+        List<JsonObject> pushed = new CopyOnWriteArrayList<>();
+        vertx.eventBus().<JsonObject>consumer(PortfolioService.VALUATION_ADDRESS + ".default",
+                message -> pushed.add(message.body()));
+
+        Async bought = context.async();
+        svc.buy(3, quote(), context.asyncAssertSuccess(portfolio -> bought.complete()));
+        bought.awaitSuccess(5000);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> pushed.size() == 1);
+        assertThat(pushed.get(0).getDouble("cash")).isEqualTo(7000.0);
+        assertThat(pushed.get(0).getDouble("value")).isEqualTo(3 * 3328.0);
+
+        // Only the changes are pushed
+        vertx.eventBus().publish("market.MCH", new Quote("MCH", "MacroHard", 3328.0, 3330.0, 3, 600.0, 3));
+        vertx.eventBus().publish("market.MCH", new Quote("MCH", "MacroHard", 3400.0, 3401.0, 3, 600.0, 3));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> pushed.size() == 2);
+        assertThat(pushed.get(1).getDouble("value")).isEqualTo(3 * 3400.0);
+        assertThat(pushed.get(1).getJsonObject("positions").getJsonObject("MacroHard").getInteger("amount"))
+                .isEqualTo(3);
+    }
+}
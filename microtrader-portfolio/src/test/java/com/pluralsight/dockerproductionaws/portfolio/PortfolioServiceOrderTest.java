@@ -0,0 +1,201 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.portfolio.impl.PortfolioServiceImpl;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.book;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.level;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class PortfolioServiceOrderTest {
+    private Vertx vertx;
+    private PortfolioService svc;
+    private List<JsonObject> outcomes = new CopyOnWriteArrayList<>();
+    private AtomicInteger bookRequests = new AtomicInteger();
+    private volatile boolean holdBooks;
+    private List<Message<Object>> heldBooks = new CopyOnWriteArrayList<>();
+
+    private JsonObject order(String action, String type, int amount, double price) {
+        return new JsonObject()
+                .put("action", action)
+                .put("type", type)
+                .put("amount", amount)
+                .put("price", price)
+                .put("quote", quote(1000.0, 1001.0));
+    }
+
+    private void tick(double bid, double ask) {
+        vertx.eventBus().publish("market.MCH", new Quote("MCH", "MacroHard", bid, ask, 3, 600.0, 3));
+    }
+
+    @Before
+    public void testSetup() {
+        vertx = Vertx.vertx();
+        JsonObject book = book(level(1000.0, 100), level(1000.0, 100));
+        vertx.eventBus().consumer("market.book.MCH", message -> {
+            bookRequests.incrementAndGet();
+            if (holdBooks) {
+                heldBooks.add(message);
+            } else {
+                message.reply(book);
+            }
+        });
+        vertx.eventBus().<JsonObject>consumer(PortfolioService.ORDER_ADDRESS + ".alice",
+                message -> outcomes.add(message.body()));
+        svc = new PortfolioServiceImpl(vertx, 10000);
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testStopLossTriggersOnTheBid(TestContext context) {
+        Async placed = context.async();
+        svc.buyFor("alice", 5, quote(1000.0, 1001.0), context.asyncAssertSuccess(bought ->
+                svc.placeOrder("alice", order("SELL", "STOP", 5, 950.0), context.asyncAssertSuccess(order -> {
+                    assertThat(order.getLong("id")).isPositive();
+                    placed.complete();
+                }))));
+        placed.awaitSuccess(5000);
+
+        // Above the stop: nothing happens
+        tick(960.0, 961.0);
+        tick(950.0, 951.0);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> outcomes.size() == 1);
+        assertThat(outcomes.get(0).getString("status")).isEqualTo("FILLED");
+
+        Async async = context.async();
+        svc.getAccount("alice", context.asyncAssertSuccess(portfolio -> {
+            assertThat(portfolio.getAmount("MacroHard")).isEqualTo(0);
+            assertThat(portfolio.getCash()).isEqualTo(10000.0);
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testLimitIsOnlyFilledAtItsPrice(TestContext context) {
+        Async placed = context.async(2);
+        svc.placeOrder("alice", order("BUY", "LIMIT", 2, 1000.0), context.asyncAssertSuccess(o -> placed.countDown()));
+        // The book offers 1000 only
+        svc.placeOrder("alice", order("BUY", "LIMIT", 2, 990.0), context.asyncAssertSuccess(o -> placed.countDown()));
+        placed.awaitSuccess(5000);
+
+        tick(989.0, 990.0);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> outcomes.size() == 1);
+        assertThat(outcomes.get(0).getLong("id")).isEqualTo(1L);
+        assertThat(outcomes.get(0).getString("status")).isEqualTo("FILLED");
+
+        // The second order is still resting
+        Async async = context.async();
+        svc.getAccount("alice", context.asyncAssertSuccess(portfolio -> {
+            assertThat(portfolio.getAmount("MacroHard")).isEqualTo(2);
+            svc.cancelOrder("alice", 2, context.asyncAssertSuccess(cancelled -> {
+                assertThat(cancelled).isTrue();
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test
+    public void testUnfilledLimitWaitsForThePriceToMove(TestContext context) throws Exception {
+        Async placed = context.async();
+        // The book offers 1000 only
+        svc.placeOrder("alice", order("BUY", "LIMIT", 2, 990.0), context.asyncAssertSuccess(o -> placed.complete()));
+        placed.awaitSuccess(5000);
+
+        tick(989.0, 990.0);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> bookRequests.get() == 1);
+        // The same price does not trigger the order again
+        tick(989.0, 990.0);
+        tick(989.0, 990.0);
+        Thread.sleep(200);
+        assertThat(bookRequests.get()).isEqualTo(1);
+        // A new price does
+        tick(988.0, 989.0);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> bookRequests.get() == 2);
+        assertThat(outcomes).isEmpty();
+    }
+
+    @Test
+    public void testCancelWhileTriggered(TestContext context) {
+        Async placed = context.async();
+        svc.placeOrder("alice", order("BUY", "STOP", 1, 1100.0), context.asyncAssertSuccess(o -> placed.complete()));
+        placed.awaitSuccess(5000);
+
+        // The order triggers, and waits for the book
+        holdBooks = true;
+        tick(1100.0, 1101.0);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> heldBooks.size() == 1);
+        Async cancelled = context.async();
+        svc.cancelOrder("alice", 1, context.asyncAssertSuccess(result -> {
+            assertThat(result).isTrue();
+            cancelled.complete();
+        }));
+        cancelled.awaitSuccess(5000);
+
+        // It is dropped once the book is known
+        JsonArray levels = new JsonArray().add(new JsonObject().put("price", 1000.0).put("size", 100));
+        heldBooks.get(0).reply(new JsonObject().put("bids", levels).put("asks", levels));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> outcomes.size() == 1);
+        assertThat(outcomes.get(0).getString("status")).isEqualTo("CANCELLED");
+        Async async = context.async();
+        svc.getAccount("alice", context.asyncAssertSuccess(portfolio -> {
+            assertThat(portfolio.getAmount("MacroHard")).isEqualTo(0);
+            svc.cancelOrder("alice", 1, context.asyncAssertSuccess(again -> {
+                assertThat(again).isFalse();
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test
+    public void testCancelOrder(TestContext context) {
+        Async async = context.async();
+        svc.placeOrder("alice", order("BUY", "STOP", 1, 1100.0), context.asyncAssertSuccess(order -> {
+            long id = order.getLong("id");
+            svc.cancelOrder("bob", id, context.asyncAssertSuccess(other -> {
+                assertThat(other).isFalse();
+                svc.cancelOrder("alice", id, context.asyncAssertSuccess(cancelled -> {
+                    assertThat(cancelled).isTrue();
+                    svc.cancelOrder("alice", id, context.asyncAssertSuccess(again -> {
+                        assertThat(again).isFalse();
+                        async.complete();
+                    }));
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void testInvalidOrdersAreRejected(TestContext context) {
+        Async async = context.async(3);
+        svc.placeOrder("alice", order("BUY", "TAKE_PROFIT", 1, 1100.0), context.asyncAssertFailure(t ->
+                async.countDown()));
+        svc.placeOrder("alice", order("SELL", "LIMIT", 1, 1100.0), context.asyncAssertFailure(t -> {
+            assertThat(t.getMessage()).contains("not enough stocks");
+            async.countDown();
+        }));
+        svc.placeOrder("alice", order("BUY", "LIMIT", 1, 0), context.asyncAssertFailure(t -> async.countDown()));
+    }
+}
@@ -10,8 +10,6 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
-import io.vertx.servicediscovery.ServiceDiscovery;
-import io.vertx.servicediscovery.ServiceDiscoveryOptions;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -26,7 +24,6 @@ public class PortfolioServiceSellTest {
     private Config config = ConfigFactory.load();
     private Portfolio portfolio;
     private Vertx vertx;
-    private ServiceDiscovery discovery;
     private PortfolioService svc;
     private JsonObject getQuote() {
         return new JsonObject()
@@ -45,10 +42,7 @@ public class PortfolioServiceSellTest {
     public void testSetup(TestContext context) {
         Async async = context.async();
         vertx = Vertx.vertx();
-        discovery = ServiceDiscovery
-                .create(vertx, new ServiceDiscoveryOptions()
-                        .setBackendConfiguration(vertx.getOrCreateContext().config()));
-        svc = new PortfolioServiceImpl(vertx, discovery, 10000);
+        svc = new PortfolioServiceImpl(vertx, 10000);
         svc.getPortfolio(ar -> {
             portfolio = ar.result();
             svc.buy(3, getQuote(), result -> {
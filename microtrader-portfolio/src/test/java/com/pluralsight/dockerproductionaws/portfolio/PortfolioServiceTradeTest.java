@@ -0,0 +1,147 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import com.pluralsight.dockerproductionaws.portfolio.impl.PortfolioServiceImpl;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.serviceproxy.ProxyHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.book;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.level;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class PortfolioServiceTradeTest {
+    private Vertx vertx;
+    private PortfolioService svc;
+    private AtomicInteger bookRequests = new AtomicInteger();
+
+    private static JsonObject order(String action, int amount, JsonObject quote) {
+        return new JsonObject().put("action", action).put("amount", amount).put("quote", quote);
+    }
+
+    @Before
+    public void testSetup(TestContext context) {
+        vertx = Vertx.vertx();
+        vertx.eventBus().consumer("market.book.MCH", message -> {
+            bookRequests.incrementAndGet();
+            message.reply(book(level(999.0, 5), level(1000.0, 3).addAll(level(1001.0, 10))));
+        });
+        // Go through the generated proxy and handler
+        ProxyHelper.registerService(PortfolioService.class, vertx, new PortfolioServiceImpl(vertx, 10000),
+                "service.portfolio.test");
+        svc = ProxyHelper.createProxy(PortfolioService.class, vertx, "service.portfolio.test");
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testOrdersConsumeTheBook(TestContext context) {
+        Async async = context.async();
+        svc.trade("alice", Arrays.asList(
+                order("BUY", 3, quote()),
+                order("BUY", 5, quote()),
+                order("SELL", 2, quote())), context.asyncAssertSuccess(result -> {
+            JsonArray results = result.getJsonArray("results");
+            assertThat(results.size()).isEqualTo(3);
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.getJsonObject(i).getBoolean("succeeded")).isTrue();
+            }
+            // The second buy only sees what the first one left at the best price
+            Portfolio portfolio = new Portfolio(result.getJsonObject("portfolio"));
+            assertThat(portfolio.getCash()).isEqualTo(10000 - 3 * 1000.0 - 5 * 1001.0 + 2 * 999.0);
+            assertThat(portfolio.getAmount("MacroHard")).isEqualTo(6);
+            // The book is retrieved once for the whole batch
+            assertThat(bookRequests.get()).isEqualTo(1);
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testFailedOrdersDoNotStopTheBatch(TestContext context) {
+        Async async = context.async();
+        svc.trade("bob", Arrays.asList(
+                order("SELL", 1, quote()),
+                order("BUY", 0, quote()),
+                order("HOLD", 1, quote()),
+                order("BUY", 20, quote()),
+                order("BUY", 2, quote())), context.asyncAssertSuccess(result -> {
+            JsonArray results = result.getJsonArray("results");
+            assertThat(results.size()).isEqualTo(5);
+            for (int i = 0; i < 4; i++) {
+                assertThat(results.getJsonObject(i).getBoolean("succeeded")).isFalse();
+                assertThat(results.getJsonObject(i).getString("message")).isNotEmpty();
+            }
+            assertThat(results.getJsonObject(4).getBoolean("succeeded")).isTrue();
+            Portfolio portfolio = new Portfolio(result.getJsonObject("portfolio"));
+            assertThat(portfolio.getCash()).isEqualTo(8000.0);
+            assertThat(portfolio.getAmount("MacroHard")).isEqualTo(2);
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testRejectedOrdersLeaveTheBook(TestContext context) {
+        Async async = context.async();
+        svc.trade("carol", Arrays.asList(
+                order("BUY", 12, quote()),
+                order("BUY", 3, quote())), context.asyncAssertSuccess(result -> {
+            JsonArray results = result.getJsonArray("results");
+            assertThat(results.getJsonObject(0).getString("message")).contains("not enough money");
+            assertThat(results.getJsonObject(1).getBoolean("succeeded")).isTrue();
+            // The rejected buy took nothing from the best price
+            Portfolio portfolio = new Portfolio(result.getJsonObject("portfolio"));
+            assertThat(portfolio.getCash()).isEqualTo(10000 - 3 * 1000.0);
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testMalformedOrdersFailOnTheirOwn(TestContext context) {
+        Async async = context.async();
+        svc.trade("dave", Arrays.asList(
+                new JsonObject().put("action", "BUY").put("amount", "x").put("quote", quote()),
+                order("BUY", 1, quote().put("name", 42)),
+                order("BUY", 1, quote())), context.asyncAssertSuccess(result -> {
+            JsonArray results = result.getJsonArray("results");
+            assertThat(results.getJsonObject(0).getString("message")).startsWith("Invalid order");
+            assertThat(results.getJsonObject(1).getString("message")).startsWith("Invalid order");
+            assertThat(results.getJsonObject(2).getBoolean("succeeded")).isTrue();
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testTheAccountIsRequired(TestContext context) {
+        svc.trade(null, Arrays.asList(order("BUY", 1, quote())), context.asyncAssertFailure());
+    }
+
+    @Test
+    public void testOversizedAccountsAreRejected(TestContext context) {
+        Async async = context.async();
+        String account = String.join("", Collections.nCopies(300, "a"));
+        svc.buyFor(account, 1, quote(), context.asyncAssertFailure(cause -> {
+            assertThat(cause.getMessage()).contains("at most 256 bytes");
+            JsonObject orders = new JsonObject().put(account, new JsonArray().add(order("BUY", 1, quote())));
+            svc.tradeAccounts(orders, context.asyncAssertFailure(rejected -> {
+                assertThat(rejected.getMessage()).contains("at most 256 bytes");
+                async.complete();
+            }));
+        }));
+    }
+}
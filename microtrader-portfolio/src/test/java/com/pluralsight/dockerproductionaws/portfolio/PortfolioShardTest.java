@@ -0,0 +1,180 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.serviceproxy.ProxyHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.book;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.level;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.quote;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.serveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class PortfolioShardTest {
+    private static final int SHARDS = 3;
+
+    private Vertx vertx;
+    private PortfolioService svc;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void testSetup(TestContext context) {
+        vertx = Vertx.vertx();
+        serveBook(vertx, book(new JsonArray(), level(1000.0, 100)));
+        for (int shard = 0; shard < SHARDS; shard++) {
+            vertx.deployVerticle(PortfolioShardVerticle.class.getName(), new DeploymentOptions().setConfig(
+                    new JsonObject().put("shard", shard).put("shards", SHARDS).put("money", 10000.0)),
+                    context.asyncAssertSuccess());
+        }
+        svc = ProxyHelper.createProxy(PortfolioService.class, vertx, PortfolioService.ADDRESS);
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testShards() {
+        assertThat(PortfolioShards.shard("trader-1", SHARDS)).isEqualTo(PortfolioShards.shard("trader-1", SHARDS));
+        for (int n = 0; n < 100; n++) {
+            assertThat(PortfolioShards.shard("trader-" + n, SHARDS)).isBetween(0, SHARDS - 1);
+        }
+        assertThat(PortfolioShards.account(new JsonObject())).isEqualTo(PortfolioService.DEFAULT_ACCOUNT);
+    }
+
+    @Test
+    public void testInvalidShardCountsAreRefused(TestContext context) {
+        vertx.deployVerticle(PortfolioShardVerticle.class.getName(), new DeploymentOptions().setConfig(
+                new JsonObject().put("shard", 0).put("shards", 0)), context.asyncAssertFailure(cause ->
+                assertThat(cause.getMessage()).contains("at least one shard")));
+        vertx.deployVerticle(PortfolioShardVerticle.class.getName(), new DeploymentOptions().setConfig(
+                new JsonObject().put("shard", 2).put("shards", 2)), context.asyncAssertFailure());
+    }
+
+    @Test
+    public void testJournalsOfAnotherShardCountAreRefused(TestContext context) throws Exception {
+        File directory = folder.newFolder();
+        JsonObject config = new JsonObject().put("shard", 0).put("shards", 2).put("journal", directory.getPath());
+        vertx.deployVerticle(PortfolioShardVerticle.class.getName(), new DeploymentOptions().setConfig(config),
+                context.asyncAssertSuccess(id -> vertx.undeploy(id, context.asyncAssertSuccess(undeployed ->
+                        vertx.deployVerticle(PortfolioShardVerticle.class.getName(),
+                                new DeploymentOptions().setConfig(config.copy().put("shards", 4)),
+                                context.asyncAssertFailure(cause ->
+                                        assertThat(cause.getMessage()).contains("written for 2 shards, not 4")))))));
+    }
+
+    @Test
+    public void testAccountsAreRoutedToTheirShard(TestContext context) {
+        Async async = context.async();
+        String account = "alice";
+        String other = "bob";
+        int owner = PortfolioShards.shard(account, SHARDS);
+        svc.buyFor(account, 3, quote(), context.asyncAssertSuccess(bought -> {
+            assertThat(bought.getCash()).isEqualTo(7000);
+            // The owning shard holds the account
+            PortfolioService shard = ProxyHelper.createProxy(PortfolioService.class, vertx,
+                    PortfolioShards.address(owner));
+            shard.getAccount(account, context.asyncAssertSuccess(portfolio -> {
+                assertThat(portfolio.getAmount("MacroHard")).isEqualTo(3);
+                // Accounts are independent
+                svc.getAccount(other, context.asyncAssertSuccess(untouched -> {
+                    assertThat(untouched.getCash()).isEqualTo(10000);
+                    assertThat(untouched.getShares()).isEmpty();
+                    async.complete();
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void testFailuresAreForwarded(TestContext context) {
+        Async async = context.async();
+        svc.sellFor("carol", 1, quote(), result -> {
+            assertThat(result.succeeded()).isFalse();
+            assertThat(result.cause().getMessage()).contains("not enough stocks");
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testBatchesAreSplitByShard(TestContext context) {
+        Async async = context.async();
+        JsonObject orders = new JsonObject();
+        for (int n = 0; n < 10; n++) {
+            orders.put("trader-" + n, new JsonArray()
+                    .add(new JsonObject().put("action", "BUY").put("amount", 1).put("quote", quote()))
+                    .add(new JsonObject().put("action", "SELL").put("amount", 2).put("quote", quote())));
+        }
+        svc.tradeAccounts(orders, context.asyncAssertSuccess(result -> {
+            JsonObject results = result.getJsonObject("results");
+            assertThat(results.size()).isEqualTo(10);
+            for (int n = 0; n < 10; n++) {
+                JsonArray account = results.getJsonArray("trader-" + n);
+                assertThat(account.getJsonObject(0).getBoolean("succeeded")).isTrue();
+                assertThat(account.getJsonObject(1).getBoolean("succeeded")).isFalse();
+            }
+            // Each account is held by its shard
+            String account = "trader-7";
+            PortfolioService shard = ProxyHelper.createProxy(PortfolioService.class, vertx,
+                    PortfolioShards.address(PortfolioShards.shard(account, SHARDS)));
+            shard.getAccount(account, context.asyncAssertSuccess(portfolio -> {
+                assertThat(portfolio.getAmount("MacroHard")).isEqualTo(1);
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test
+    public void testBinaryProxy(TestContext context) {
+        Async async = context.async();
+        PortfolioService binary = new PortfolioServiceBinaryProxy(vertx, PortfolioService.ADDRESS);
+        binary.buyFor("dave", 3, quote(), context.asyncAssertSuccess(bought -> {
+            assertThat(bought.getCash()).isEqualTo(7000);
+            assertThat(bought.getAmount("MacroHard")).isEqualTo(3);
+            // The JSON clients see the same account
+            svc.getAccount("dave", context.asyncAssertSuccess(portfolio -> {
+                assertThat(portfolio.toJson()).isEqualTo(bought.toJson());
+                binary.sellFor("dave", 4, quote(), result -> {
+                    assertThat(result.succeeded()).isFalse();
+                    assertThat(result.cause().getMessage()).contains("not enough stocks");
+                    // The batches are split across the shards in binary form too
+                    JsonObject orders = new JsonObject();
+                    for (int n = 0; n < 10; n++) {
+                        orders.put("trader-" + n, new JsonArray().add(new JsonObject().put("action", "BUY")
+                                .put("amount", 1).put("quote", quote())));
+                    }
+                    orders.put("dave", new JsonArray().add(new JsonObject().put("action", "SELL").put("amount", 1)
+                            .put("quote", quote().put("symbol", (String) null))));
+                    binary.tradeAccounts(orders, context.asyncAssertSuccess(traded -> {
+                        JsonObject results = traded.getJsonObject("results");
+                        assertThat(results.size()).isEqualTo(11);
+                        for (String account : results.fieldNames()) {
+                            assertThat(results.getJsonArray(account).getJsonObject(0).getBoolean("succeeded")).isTrue();
+                        }
+                        binary.getAccount("dave", context.asyncAssertSuccess(sold -> {
+                            assertThat(sold.getAmount("MacroHard")).isEqualTo(2);
+                            async.complete();
+                        }));
+                    }));
+                });
+            }));
+        }));
+    }
+}
@@ -0,0 +1,77 @@
+package com.pluralsight.dockerproductionaws.portfolio;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PortfolioTest {
+
+    @Test
+    public void testJsonIsUnchanged() {
+        JsonObject json = new JsonObject()
+                .put("cash", 1234.5)
+                .put("shares", new JsonObject().put("MacroHard", 3).put("Black Coat", 2));
+        Portfolio portfolio = new Portfolio(json);
+        assertThat(portfolio.getCash()).isEqualTo(1234.5);
+        assertThat(portfolio.getAmount("MacroHard")).isEqualTo(3);
+        assertThat(portfolio.getAmount("Divinator")).isEqualTo(0);
+        // Shares are written in the order of the names, as with the former TreeMap
+        assertThat(portfolio.toJson().encode())
+                .isEqualTo("{\"cash\":1234.5,\"shares\":{\"Black Coat\":2,\"MacroHard\":3}}");
+        assertThat(new Portfolio(portfolio).toJson()).isEqualTo(portfolio.toJson());
+    }
+
+    @Test
+    public void testSharesView() {
+        Portfolio portfolio = new Portfolio();
+        portfolio.getShares().put("MacroHard", 3);
+        portfolio.setAmount(Portfolio.company("Divinator"), 5);
+        assertThat(portfolio.getShares()).containsOnlyKeys("Divinator", "MacroHard").containsEntry("Divinator", 5);
+        assertThat(portfolio.getShares().remove("MacroHard")).isEqualTo(3);
+        portfolio.setAmount(Portfolio.company("Divinator"), 0);
+        assertThat(portfolio.getShares()).isEmpty();
+        assertThat(portfolio.toJson().getJsonObject("shares")).isEmpty();
+    }
+
+    @Test
+    public void testHoldingsAreSparse() {
+        int first = Portfolio.company("Sparse 0");
+        for (int i = 1; i < 1000; i++) {
+            Portfolio.company("Sparse " + i);
+        }
+        int last = Portfolio.company("Sparse 999");
+        Portfolio portfolio = new Portfolio();
+        portfolio.setAmount(last, 2);
+        portfolio.setAmount(first, 1);
+        portfolio.setAmount(Portfolio.company("Sparse 500"), 3);
+        // Only the companies held are stored, in the order of their IDs
+        assertThat(portfolio.holdings()).isEqualTo(3);
+        assertThat(portfolio.heldCompany(0)).isEqualTo(first);
+        assertThat(portfolio.heldCompany(2)).isEqualTo(last);
+        assertThat(portfolio.heldAmount(2)).isEqualTo(2);
+        portfolio.setAmount(Portfolio.company("Sparse 500"), 0);
+        portfolio.setAmount(Portfolio.company("Sparse 501"), 0);
+        assertThat(portfolio.holdings()).isEqualTo(2);
+        assertThat(portfolio.getAmount(last)).isEqualTo(2);
+        assertThat(portfolio.getAmount("Sparse 500")).isEqualTo(0);
+        assertThat(portfolio.getShares()).containsOnlyKeys("Sparse 0", "Sparse 999");
+    }
+
+    @Test
+    public void testCashIsFixedPoint() {
+        Portfolio portfolio = new Portfolio().setCash(0);
+        for (int i = 0; i < 10; i++) {
+            portfolio.deposit(Portfolio.units(0.1));
+        }
+        assertThat(portfolio.getCash()).isEqualTo(1.0);
+        assertThat(portfolio.cashUnits()).isEqualTo(Portfolio.CASH_SCALE);
+    }
+
+    @Test
+    public void testCompaniesAreInterned() {
+        int company = Portfolio.company("Black Coat");
+        assertThat(Portfolio.company("Black Coat")).isEqualTo(company);
+        assertThat(Portfolio.companyName(company)).isEqualTo("Black Coat");
+    }
+}
@@ -0,0 +1,163 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import com.pluralsight.dockerproductionaws.portfolio.Portfolio;
+import com.pluralsight.dockerproductionaws.portfolio.PortfolioService;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.book;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.level;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.quote;
+import static com.pluralsight.dockerproductionaws.portfolio.MarketFixtures.serveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class PortfolioJournalTest {
+    private Vertx vertx;
+    private Path directory;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void testSetup() {
+        vertx = Vertx.vertx();
+        directory = folder.getRoot().toPath();
+        serveBook(vertx, book(level(1000.0, 100), level(1000.0, 100)));
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testAccountsAreRecovered(TestContext context) throws Exception {
+        PortfolioJournal journal = new PortfolioJournal(vertx, directory, "shard", 1000, 256);
+        PortfolioServiceImpl service = new PortfolioServiceImpl(vertx, 10000, journal);
+        Async traded = context.async();
+        service.recover(context.asyncAssertSuccess(v ->
+                service.buyFor("alice", 3, quote(), context.asyncAssertSuccess(bought ->
+                        service.sellFor("alice", 1, quote(), context.asyncAssertSuccess(sold ->
+                                service.buyFor("bob", 5, quote(), context.asyncAssertSuccess(other ->
+                                        traded.complete()))))))));
+        traded.awaitSuccess(5000);
+        journal.close();
+
+        PortfolioServiceImpl recovered = new PortfolioServiceImpl(vertx, 10000,
+                new PortfolioJournal(vertx, directory, "shard", 1000, 256));
+        Async started = context.async();
+        recovered.recover(context.asyncAssertSuccess(v -> started.complete()));
+        started.awaitSuccess(5000);
+        Async async = context.async();
+        recovered.getAccount("alice", context.asyncAssertSuccess(alice -> {
+            assertThat(alice.getCash()).isEqualTo(8000.0);
+            assertThat(alice.getAmount("MacroHard")).isEqualTo(2);
+            recovered.getAccount("bob", context.asyncAssertSuccess(bob -> {
+                assertThat(bob.getCash()).isEqualTo(5000.0);
+                // The holdings are valued at the last known price until the market data comes in
+                recovered.evaluateAccount("bob", context.asyncAssertSuccess(value -> {
+                    assertThat(value).isEqualTo(5 * 3328.0);
+                    async.complete();
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void testJournalFailuresHaltTheService(TestContext context) throws Exception {
+        PortfolioJournal journal = new PortfolioJournal(vertx, directory, "shard", 1000, 4096) {
+            @Override
+            void commit(Handler<AsyncResult<Void>> handler) {
+                handler.handle(Future.failedFuture("disk full"));
+            }
+        };
+        List<JsonObject> audited = new CopyOnWriteArrayList<>();
+        vertx.eventBus().<JsonObject>consumer(PortfolioService.EVENT_ADDRESS, message -> audited.add(message.body()));
+        AtomicReference<Throwable> fatal = new AtomicReference<>();
+        PortfolioServiceImpl service = new PortfolioServiceImpl(vertx, 10000, journal).fatalHandler(fatal::set);
+        Async async = context.async();
+        service.recover(context.asyncAssertSuccess(v ->
+                service.buyFor("alice", 3, quote(), context.asyncAssertFailure(failure -> {
+                    assertThat(fatal.get()).hasMessage("disk full");
+                    service.buyFor("bob", 1, quote(), context.asyncAssertFailure(halted -> {
+                        assertThat(halted.getMessage()).contains("halted");
+                        async.complete();
+                    }));
+                }))));
+        async.awaitSuccess(5000);
+        // Nothing was sent to the audit for the trades that were not written
+        Thread.sleep(200);
+        assertThat(audited).isEmpty();
+    }
+
+    @Test
+    public void testSnapshotsCompactTheJournal() throws Exception {
+        Map<String, Portfolio> accounts = new HashMap<>();
+        PortfolioJournal journal = new PortfolioJournal(vertx, directory, "shard", 100, 4096);
+        journal.recover(accounts, new HashMap<>(), new HashMap<>());
+        int company = Portfolio.company("MacroHard");
+        for (int n = 0; n < 1000; n++) {
+            Portfolio portfolio = accounts.computeIfAbsent("trader-" + n % 10, a -> new Portfolio().setCash(10000));
+            portfolio.deposit(-Portfolio.units(10.5));
+            portfolio.setAmount(company, portfolio.getAmount(company) + 1);
+            journal.append("trader-" + n % 10, portfolio, company, quote(), portfolio.getAmount(company) * 1000L);
+            if (journal.snapshotDue()) {
+                journal.snapshot(accounts, c -> quote(), (account, c) -> accounts.get(account).getAmount(c) * 1000L);
+                // Let the snapshot complete, so that the next one is taken on time
+                await().atMost(5, TimeUnit.SECONDS).until(() -> !journal.snapshotDue() && Files.exists(
+                        directory.resolve("shard.snapshot")));
+            }
+        }
+        journal.close();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> Files.list(directory)
+                .filter(file -> file.toString().endsWith(".journal")).count() == 1);
+
+        Map<String, Portfolio> recovered = new HashMap<>();
+        Map<String, JsonObject> quotes = new HashMap<>();
+        Map<String, Map<String, Long>> bases = new HashMap<>();
+        new PortfolioJournal(vertx, directory, "shard", 100, 4096).recover(recovered, quotes, bases);
+        assertThat(recovered).hasSize(10);
+        for (int n = 0; n < 10; n++) {
+            Portfolio portfolio = recovered.get("trader-" + n);
+            assertThat(portfolio.getAmount("MacroHard")).isEqualTo(100);
+            assertThat(portfolio.getCash()).isEqualTo(10000 - 100 * 10.5);
+            assertThat(bases.get("trader-" + n)).containsEntry("MacroHard", 100 * 1000L);
+        }
+        assertThat(quotes.get("MacroHard").getString("symbol")).isEqualTo("MCH");
+    }
+
+    @Test
+    public void testCommitsAreGrouped(TestContext context) throws Exception {
+        PortfolioJournal journal = new PortfolioJournal(vertx, directory, "shard", 100000, 4096);
+        journal.recover(new HashMap<>(), new HashMap<>(), new HashMap<>());
+        Portfolio portfolio = new Portfolio().setCash(10000);
+        Async async = context.async(100);
+        for (int n = 0; n < 100; n++) {
+            journal.append("alice", portfolio, Portfolio.company("MacroHard"), quote(), 0);
+            journal.commit(context.asyncAssertSuccess(v -> async.countDown()));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import com.pluralsight.dockerproductionaws.portfolio.Portfolio;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PreTradeRiskTest {
+    private final int company = Portfolio.company("MacroHard");
+
+    @Test
+    public void testOrderNotionalIsCapped() {
+        PreTradeRisk risk = new PreTradeRisk(1000, 100, 100000, 100000, 100);
+        assertThat(risk.check("alice", company, 0, 1, Portfolio.units(1000), true)).isNull();
+        assertThat(risk.check("alice", company, 0, 2, Portfolio.units(2000), true)).contains("order notional");
+        assertThat(risk.check("alice", company, 10, 2, Portfolio.units(2000), false)).contains("order notional");
+    }
+
+    @Test
+    public void testPositionIsCapped() {
+        PreTradeRisk risk = new PreTradeRisk(100000, 10, 100000, 100000, 100);
+        assertThat(risk.check("alice", company, 8, 2, Portfolio.units(20), true)).isNull();
+        assertThat(risk.check("alice", company, 8, 3, Portfolio.units(30), true)).contains("position");
+        // Selling reduces the risk
+        assertThat(risk.check("alice", company, 12, 3, Portfolio.units(30), false)).isNull();
+    }
+
+    @Test
+    public void testExposureFollowsTheFills() {
+        PreTradeRisk risk = new PreTradeRisk(100000, 1000, 1000, 1500, 100);
+        risk.filled("alice", company, 0, 10, Portfolio.units(800), true);
+        assertThat(risk.exposure("alice")).isEqualTo(800.0);
+        assertThat(risk.check("alice", company, 10, 3, Portfolio.units(300), true)).contains("account exposure");
+
+        // Half the position sold: half of its cost is released, whatever the price of the sale
+        risk.filled("alice", company, 10, 5, Portfolio.units(900), false);
+        assertThat(risk.exposure("alice")).isEqualTo(400.0);
+        assertThat(risk.check("alice", company, 5, 3, Portfolio.units(300), true)).isNull();
+
+        // The exposure on the company is shared by the accounts of the shard
+        risk.filled("bob", company, 0, 10, Portfolio.units(1000), true);
+        assertThat(risk.companyExposure(company)).isEqualTo(1400.0);
+        assertThat(risk.check("carol", company, 0, 2, Portfolio.units(200), true)).contains("exposure on the company");
+    }
+
+    @Test
+    public void testOrderRateIsLimited() {
+        PreTradeRisk risk = new PreTradeRisk(100000, 1000, 100000, 100000, 3);
+        for (int n = 0; n < 3; n++) {
+            assertThat(risk.check("alice", company, 0, 1, Portfolio.units(10), true)).isNull();
+        }
+        assertThat(risk.check("alice", company, 0, 1, Portfolio.units(10), true)).contains("rate");
+        // Per account
+        assertThat(risk.check("bob", company, 0, 1, Portfolio.units(10), true)).isNull();
+    }
+}
@@ -0,0 +1,56 @@
+package com.pluralsight.dockerproductionaws.portfolio.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TriggerIndexTest {
+
+    private static List<Integer> trigger(TriggerIndex index, long price) {
+        List<Integer> triggered = new ArrayList<>();
+        index.trigger(price, triggered::add);
+        return triggered;
+    }
+
+    @Test
+    public void testRisingOrdersTriggerFromTheLowestPrice() {
+        TriggerIndex index = new TriggerIndex(true);
+        index.add(300, 0);
+        index.add(100, 1);
+        index.add(200, 2);
+        index.add(100, 3);
+        assertThat(trigger(index, 50)).isEmpty();
+        // Same price: first in, first triggered
+        assertThat(trigger(index, 200)).containsExactly(1, 3, 2);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(trigger(index, 1000)).containsExactly(0);
+    }
+
+    @Test
+    public void testFallingOrdersTriggerFromTheHighestPrice() {
+        TriggerIndex index = new TriggerIndex(false);
+        index.add(100, 0);
+        index.add(300, 1);
+        index.add(200, 2);
+        assertThat(trigger(index, 250)).containsExactly(1);
+        assertThat(trigger(index, 100)).containsExactly(2, 0);
+        assertThat(index.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRemove() {
+        TriggerIndex index = new TriggerIndex(true);
+        for (int slot = 0; slot < 1000; slot++) {
+            index.add(slot % 10, slot);
+        }
+        assertThat(index.remove(5, 15)).isTrue();
+        assertThat(index.remove(5, 15)).isFalse();
+        assertThat(index.remove(4, 15)).isFalse();
+        assertThat(index.size()).isEqualTo(999);
+        List<Integer> triggered = trigger(index, 5);
+        assertThat(triggered).hasSize(599).doesNotContain(15);
+    }
+}
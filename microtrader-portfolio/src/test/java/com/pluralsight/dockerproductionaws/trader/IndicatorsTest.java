@@ -0,0 +1,78 @@
+package com.pluralsight.dockerproductionaws.trader;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class IndicatorsTest {
+
+    @Test
+    public void testRollingWindow() {
+        RollingWindow window = new RollingWindow(4);
+        assertThat(window.mean()).isEqualTo(0.0);
+        for (int n = 1; n <= 3; n++) {
+            window.add(n);
+        }
+        assertThat(window.full()).isFalse();
+        assertThat(window.oldest()).isEqualTo(1.0);
+        assertThat(window.mean()).isEqualTo(2.0);
+        // 1 to 3 evicted, keeping 4 to 7
+        for (int n = 4; n <= 7; n++) {
+            window.add(n);
+        }
+        assertThat(window.full()).isTrue();
+        assertThat(window.count()).isEqualTo(4);
+        assertThat(window.oldest()).isEqualTo(4.0);
+        assertThat(window.sum()).isEqualTo(22.0);
+        assertThat(window.variance()).isCloseTo(1.25, within(1e-9));
+    }
+
+    @Test
+    public void testRollingWindowDoesNotDrift() {
+        RollingWindow window = new RollingWindow(10);
+        for (int n = 0; n < 1_000_000; n++) {
+            window.add(1000.0 + (n % 7) * 0.1);
+        }
+        double mean = 0;
+        for (int n = 1_000_000 - 10; n < 1_000_000; n++) {
+            mean += 1000.0 + (n % 7) * 0.1;
+        }
+        assertThat(window.mean()).isCloseTo(mean / 10, within(1e-9));
+    }
+
+    @Test
+    public void testAverages() {
+        Indicators indicators = new Indicators(2, 4);
+        double[] prices = {10, 12, 14, 16, 18};
+        int[] volumes = {1, 1, 1, 1, 3};
+        for (int n = 0; n < prices.length; n++) {
+            indicators.update(prices[n], volumes[n]);
+        }
+        assertThat(indicators.ready()).isTrue();
+        assertThat(indicators.last()).isEqualTo(18.0);
+        assertThat(indicators.oldest()).isEqualTo(12.0);
+        assertThat(indicators.shortAverage()).isEqualTo(17.0);
+        assertThat(indicators.longAverage()).isEqualTo(15.0);
+        assertThat(indicators.variance()).isCloseTo(5.0, within(1e-9));
+        assertThat(indicators.vwap()).isCloseTo((12 + 14 + 16 + 3 * 18) / 6.0, within(1e-9));
+        // Rising prices: the short EMA leads
+        assertThat(indicators.shortEma()).isGreaterThan(indicators.longEma());
+        assertThat(indicators.longEma()).isLessThan(18.0);
+    }
+
+    @Test
+    public void testCrossover() {
+        Indicators indicators = new Indicators(2, 4);
+        for (double price : new double[]{10, 9, 8, 7}) {
+            indicators.update(price, 1);
+        }
+        assertThat(indicators.shortEma()).isLessThan(indicators.longEma());
+        indicators.update(12, 1);
+        assertThat(indicators.crossover()).isEqualTo(1);
+        indicators.update(13, 1);
+        assertThat(indicators.crossover()).isEqualTo(0);
+        indicators.update(5, 1);
+        assertThat(indicators.crossover()).isEqualTo(-1);
+    }
+}
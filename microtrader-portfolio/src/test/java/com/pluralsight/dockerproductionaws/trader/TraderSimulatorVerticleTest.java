@@ -0,0 +1,90 @@
+package com.pluralsight.dockerproductionaws.trader;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.portfolio.PortfolioService;
+import com.pluralsight.dockerproductionaws.portfolio.PortfolioShardVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.serviceproxy.ProxyHelper;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.types.EventBusService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jayway.awaitility.Awaitility.await;
+
+@RunWith(VertxUnitRunner.class)
+public class TraderSimulatorVerticleTest {
+    private static final int POPULATION = 300;
+
+    private Vertx vertx;
+    private ServiceDiscovery discovery;
+
+    @Before
+    public void testSetup(TestContext context) {
+        vertx = Vertx.vertx();
+        JsonArray levels = new JsonArray().add(new JsonObject().put("price", 10.0).put("size", 100000));
+        for (String symbol : new String[]{"MCH", "DVN", "BCT"}) {
+            vertx.eventBus().consumer("market.book." + symbol, message -> message.reply(new JsonObject()
+                    .put("bids", levels.copy())
+                    .put("asks", levels.copy())));
+        }
+        for (int shard = 0; shard < 2; shard++) {
+            vertx.deployVerticle(PortfolioShardVerticle.class.getName(), new DeploymentOptions().setConfig(
+                    new JsonObject().put("shard", shard).put("shards", 2).put("money", 10000.0)),
+                    context.asyncAssertSuccess());
+        }
+        discovery = ServiceDiscovery.create(vertx);
+        discovery.publish(EventBusService.createRecord("portfolio", PortfolioService.ADDRESS, PortfolioService.class),
+                context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        discovery.close();
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testTradersTradeInBatches(TestContext context) {
+        vertx.deployVerticle(TraderSimulatorVerticle.class.getName(), new DeploymentOptions().setConfig(new JsonObject()
+                .put("population", POPULATION)
+                .put("first", 1000)
+                .put("batch", 50)
+                .put("strategies", "random")
+                .put("report", 0)), context.asyncAssertSuccess(id -> {
+            for (String[] company : new String[][]{{"MCH", "MacroHard"}, {"DVN", "Divinator"}, {"BCT", "Black Coat"}}) {
+                vertx.eventBus().publish("market", new Quote(company[0], company[1], 10.0, 10.0, 3, 10.0, 100000));
+            }
+        }));
+
+        // Every trader trades once: the buyers hold shares, the sellers had none to sell
+        PortfolioService svc = ProxyHelper.createProxy(PortfolioService.class, vertx, PortfolioService.ADDRESS);
+        AtomicInteger traded = new AtomicInteger();
+        AtomicInteger checked = new AtomicInteger();
+        await().atMost(10, TimeUnit.SECONDS).until(() -> {
+            traded.set(0);
+            checked.set(0);
+            for (int n = 1000; n < 1000 + POPULATION; n++) {
+                svc.getAccount("trader-" + n, ar -> {
+                    if (ar.succeeded() && ar.result().getCash() < 10000.0) {
+                        traded.incrementAndGet();
+                    }
+                    checked.incrementAndGet();
+                });
+            }
+            await().atMost(5, TimeUnit.SECONDS).until(() -> checked.get() == POPULATION);
+            // About half of the traders buy
+            return traded.get() > POPULATION / 4;
+        });
+    }
+}
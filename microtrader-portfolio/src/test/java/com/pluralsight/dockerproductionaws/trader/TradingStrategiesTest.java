@@ -0,0 +1,74 @@
+package com.pluralsight.dockerproductionaws.trader;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.pluralsight.dockerproductionaws.trader.TradingStrategy.Action.BUY;
+import static com.pluralsight.dockerproductionaws.trader.TradingStrategy.Action.HOLD;
+import static com.pluralsight.dockerproductionaws.trader.TradingStrategy.Action.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TradingStrategiesTest {
+
+    private static Indicators indicators(double... prices) {
+        Indicators indicators = new Indicators(2, 4);
+        for (double price : prices) {
+            indicators.update(price, 1);
+        }
+        return indicators;
+    }
+
+    @Test
+    public void testStrategiesWaitForTheIndicators() {
+        Indicators indicators = indicators(10, 20);
+        assertThat(TradingStrategies.momentum(0.01).decide(indicators, 10)).isEqualTo(HOLD);
+        assertThat(TradingStrategies.meanReversion(1).decide(indicators, 10)).isEqualTo(HOLD);
+        assertThat(TradingStrategies.crossover().decide(indicators, 10)).isEqualTo(HOLD);
+    }
+
+    @Test
+    public void testMomentum() {
+        TradingStrategy strategy = TradingStrategies.momentum(0.05);
+        assertThat(strategy.decide(indicators(100, 101, 103, 110), 0)).isEqualTo(BUY);
+        assertThat(strategy.decide(indicators(100, 101, 102, 103), 0)).isEqualTo(HOLD);
+        assertThat(strategy.decide(indicators(100, 97, 95, 90), 5)).isEqualTo(SELL);
+        // Nothing to sell
+        assertThat(strategy.decide(indicators(100, 97, 95, 90), 0)).isEqualTo(HOLD);
+    }
+
+    @Test
+    public void testMeanReversion() {
+        TradingStrategy strategy = TradingStrategies.meanReversion(1.0);
+        assertThat(strategy.decide(indicators(100, 100, 100, 80), 0)).isEqualTo(BUY);
+        assertThat(strategy.decide(indicators(100, 100, 100, 120), 5)).isEqualTo(SELL);
+        assertThat(strategy.decide(indicators(100, 101, 99, 100), 5)).isEqualTo(HOLD);
+    }
+
+    @Test
+    public void testCrossover() {
+        TradingStrategy strategy = TradingStrategies.crossover();
+        assertThat(strategy.decide(indicators(10, 9, 8, 7, 12), 0)).isEqualTo(BUY);
+        assertThat(strategy.decide(indicators(10, 9, 8, 7, 12, 13), 0)).isEqualTo(HOLD);
+        assertThat(strategy.decide(indicators(10, 9, 8, 7, 12, 13, 5), 5)).isEqualTo(SELL);
+    }
+
+    @Test
+    public void testStrategiesByName() {
+        Random random = new Random(42);
+        for (String name : new String[]{"momentum", "mean-reversion", "crossover", "random"}) {
+            assertThat(TradingStrategies.create(name, random)).isNotNull();
+        }
+        assertThat(TradingStrategies.create(Hold.class.getName(), random)).isInstanceOf(Hold.class);
+        assertThatThrownBy(() -> TradingStrategies.create("martingale", random))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    public static class Hold implements TradingStrategy {
+        @Override
+        public Action decide(Indicators indicators, int position) {
+            return HOLD;
+        }
+    }
+}
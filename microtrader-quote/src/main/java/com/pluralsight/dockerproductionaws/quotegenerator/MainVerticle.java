@@ -1,9 +1,13 @@
 package com.pluralsight.dockerproductionaws.quotegenerator;
 
 import com.pluralsight.dockerproductionaws.common.MicroserviceVerticle;
+import com.pluralsight.dockerproductionaws.common.market.MarketAddresses;
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteDelta;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import io.vertx.core.DeploymentOptions;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
@@ -18,24 +22,51 @@ public class MainVerticle extends MicroserviceVerticle {
     public void start() {
         super.start();
 
-        // Deploy Market Data Verticles
-        JsonArray quotes = new JsonArray(config.getAnyRefList("companies"));
-        for (Object q : quotes) {
-            JsonObject company = (JsonObject) q;
-            company.put("period", config.getInt("market.period"));
-            vertx.deployVerticle(MarketDataVerticle.class.getName(), new DeploymentOptions().setConfig(company));
+        JsonArray companies = new JsonArray(config.getAnyRefList("companies"));
+        generateCompanies(companies, config.getInt("market.generated"));
+
+        // Replay a recorded session, or generate the market data (recording it if asked)
+        String mode = config.getString("market.mode");
+        JsonObject journal = new JsonObject()
+                .put("journal", config.getString("market.journal"))
+                .put("speed", config.getDouble("market.replay.speed"));
+        if ("replay".equals(mode)) {
+            vertx.deployVerticle(MarketDataReplayVerticle.class.getName(), new DeploymentOptions().setConfig(journal));
+        } else {
+            if ("record".equals(mode)) {
+                vertx.deployVerticle(MarketDataRecorderVerticle.class.getName(),
+                        new DeploymentOptions().setConfig(journal));
+            }
+            deployMarketData(companies);
         }
 
-        // Deploy REST Quote API Verticle
-        vertx.deployVerticle(RestQuoteAPIVerticle.class.getName(), new DeploymentOptions().setConfig(config()));
+        // Deploy REST Quote API Verticle, one instance per event loop by default
+        int httpInstances = config.getInt("http.instances") > 0 ? config.getInt("http.instances") :
+                VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE;
+        vertx.deployVerticle(RestQuoteAPIVerticle.class.getName(),
+                new DeploymentOptions().setConfig(config()).setInstances(httpInstances));
 
         // Publish the services in the discovery infrastructure.
-        publishMessageSource("market-data", config.getString("market.address"), rec -> {
+        // Replayed sessions are published as full quotes
+        boolean delta = config.getBoolean("market.delta.enabled") && !"replay".equals(mode);
+        Class<?> messageType = delta ? QuoteDelta.class : Quote.class;
+        publishMessageSource("market-data", config.getString("market.address"), messageType, rec -> {
             if (!rec.succeeded()) {
                 rec.cause().printStackTrace();
             }
             System.out.println("Market data service published : " + rec.succeeded());
         });
+        for (int i = 0; i < companies.size(); i++) {
+            JsonObject company = companies.getJsonObject(i);
+            String symbol = company.getString("symbol", company.getString("name"));
+            JsonObject metadata = new JsonObject().put("symbol", symbol).put("company", company.getString("name"));
+            publishMessageSource("market-data-" + symbol, MarketAddresses.of(config.getString("market.address"), symbol),
+                    messageType, metadata, rec -> {
+                        if (!rec.succeeded()) {
+                            rec.cause().printStackTrace();
+                        }
+                    });
+        }
 
         publishHttpEndpoint("quotes", config.getString("http.host"), config.getInt("http.public.port"), config.getString("http.root"), ar -> {
             if (ar.failed()) {
@@ -45,4 +76,44 @@ public class MainVerticle extends MicroserviceVerticle {
             }
         });
     }
+
+    /**
+     * Deploys the Market Data Verticles, spreading the companies across the event loops.
+     *
+     * @param quotes the companies
+     */
+    private void deployMarketData(JsonArray quotes) {
+        int instances = config.getInt("market.instances") > 0 ? config.getInt("market.instances") :
+                VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE;
+        JsonArray[] partitions = new JsonArray[Math.max(1, Math.min(instances, quotes.size()))];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new JsonArray();
+        }
+        for (int i = 0; i < quotes.size(); i++) {
+            JsonObject company = quotes.getJsonObject(i).copy();
+            company.put("period", config.getInt("market.period"));
+            partitions[i % partitions.length].add(company);
+        }
+        for (JsonArray partition : partitions) {
+            vertx.deployVerticle(MarketDataVerticle.class.getName(),
+                    new DeploymentOptions().setConfig(new JsonObject().put("companies", partition)));
+        }
+    }
+
+    /**
+     * Adds `count` simulated companies to the configured ones, to run the market with a large number of symbols.
+     *
+     * @param companies the companies
+     * @param count     the number of companies to generate
+     */
+    private static void generateCompanies(JsonArray companies, int count) {
+        for (int i = 0; i < count; i++) {
+            companies.add(new JsonObject()
+                    .put("name", String.format("Simulated %05d", i))
+                    .put("symbol", String.format("S%05d", i))
+                    .put("volume", 100000)
+                    .put("price", 100 + (i * 37) % 900)
+                    .put("variation", 20 + (i * 13) % 130));
+        }
+    }
 }
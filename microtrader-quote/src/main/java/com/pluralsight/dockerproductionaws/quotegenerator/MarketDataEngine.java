@@ -0,0 +1,278 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteDelta;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Simulates the market for a set of companies. The state of every company is kept in primitive arrays indexed by
+ * the company slot, so advancing the whole set is a simple loop without per-company objects.
+ * <p>
+ * The engine is driven by a single timer firing every {@link #resolution()} ms: each company keeps its own
+ * `period` and only moves when it is due. Instances are not thread safe, each one is owned by one event loop.
+ * <p>
+ * Each company has its own {@link OrderBook}: the generated prices move the book, and the published bid and ask are
+ * its best prices.
+ */
+public class MarketDataEngine {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Random random = new Random();
+    private final int depth;
+    private final double tick;
+
+    private int size;
+
+    String[] names = new String[INITIAL_CAPACITY];
+    String[] symbols = new String[INITIAL_CAPACITY];
+    int[] variation = new int[INITIAL_CAPACITY];
+    long[] period = new long[INITIAL_CAPACITY];
+    int[] stocks = new int[INITIAL_CAPACITY];
+    double[] price = new double[INITIAL_CAPACITY];
+
+    double[] value = new double[INITIAL_CAPACITY];
+    double[] bid = new double[INITIAL_CAPACITY];
+    double[] ask = new double[INITIAL_CAPACITY];
+    int[] share = new int[INITIAL_CAPACITY];
+    OrderBook[] books = new OrderBook[INITIAL_CAPACITY];
+
+    private long[] nextTick = new long[INITIAL_CAPACITY];
+    private long clock;
+
+    // Last values published in delta mode
+    private long[] sequence = new long[INITIAL_CAPACITY];
+    private double[] sentBid = new double[INITIAL_CAPACITY];
+    private double[] sentAsk = new double[INITIAL_CAPACITY];
+    private int[] sentShare = new int[INITIAL_CAPACITY];
+    private int[] sentBidSize = new int[INITIAL_CAPACITY];
+    private int[] sentAskSize = new int[INITIAL_CAPACITY];
+
+    public MarketDataEngine() {
+        this(10, 1.0);
+    }
+
+    /**
+     * @param depth the number of price levels of each side of the order books
+     * @param tick  the price increment of the order books
+     */
+    public MarketDataEngine(int depth, double tick) {
+        this.depth = depth;
+        this.tick = tick;
+    }
+
+    /**
+     * Adds a company to the engine and sets its initial values.
+     *
+     * @param config the company configuration
+     * @return the slot of the company
+     */
+    public int add(JsonObject config) {
+        if (size == names.length) {
+            grow();
+        }
+        int i = size++;
+        names[i] = Objects.requireNonNull(config.getString("name"));
+        symbols[i] = config.getString("symbol", names[i]);
+        period[i] = config.getLong("period", 3000L);
+        variation[i] = config.getInteger("variation", 100);
+        stocks[i] = config.getInteger("volume", 10000);
+        price[i] = config.getDouble("price", 100.0);
+
+        value[i] = price[i];
+        ask[i] = price[i] + random.nextInt(variation[i] / 2);
+        bid[i] = price[i] + random.nextInt(variation[i] / 2);
+        share[i] = stocks[i] / 2;
+        books[i] = new OrderBook(depth, tick, stocks[i] / (depth * 20));
+        move(i);
+
+        nextTick[i] = clock + period[i];
+        return i;
+    }
+
+    /**
+     * @return the number of companies handled by this engine
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the timer period (ms) driving the engine: the greatest common divisor of the company periods, so every
+     * company is computed exactly on its own period.
+     */
+    public long resolution() {
+        long resolution = 0;
+        for (int i = 0; i < size; i++) {
+            resolution = gcd(resolution, period[i]);
+        }
+        return resolution == 0 ? 3000L : resolution;
+    }
+
+    /**
+     * Moves the engine clock forward and computes every company that is due.
+     *
+     * @param elapsed   the elapsed time (ms) since the last call, usually {@link #resolution()}
+     * @param publisher called with the slot of each computed company
+     */
+    public void advance(long elapsed, IntConsumer publisher) {
+        clock += elapsed;
+        for (int i = 0; i < size; i++) {
+            if (nextTick[i] <= clock) {
+                nextTick[i] += period[i];
+                compute(i);
+                publisher.accept(i);
+            }
+        }
+    }
+
+    /**
+     * Compute the new evaluation of the given company...
+     *
+     * @param i the company slot
+     */
+    void compute(int i) {
+        int variation = this.variation[i];
+        double value = this.value[i];
+        double ask;
+        double bid;
+
+        if (random.nextBoolean()) {
+            value = value + random.nextInt(variation);
+            ask = value + random.nextInt(variation / 2);
+            bid = value + random.nextInt(variation / 2);
+        } else {
+            value = value - random.nextInt(variation);
+            ask = value - random.nextInt(variation / 2);
+            bid = value - random.nextInt(variation / 2);
+        }
+
+        if (value <= 0) {
+            value = 1.0;
+        }
+        if (ask <= 0) {
+            ask = 1.0;
+        }
+        if (bid <= 0) {
+            bid = 1.0;
+        }
+
+        this.value[i] = value;
+        this.ask[i] = ask;
+        this.bid[i] = bid;
+        move(i);
+
+        if (random.nextBoolean()) {
+            // Adjust share
+            int shareVariation = random.nextInt(100);
+            if (shareVariation > 0 && share[i] + shareVariation < stocks[i]) {
+                share[i] += shareVariation;
+            } else if (shareVariation < 0 && share[i] + shareVariation > 0) {
+                share[i] += shareVariation;
+            }
+        }
+    }
+
+    /**
+     * Moves the order book of the company to the computed prices, the bid and ask becoming its best prices.
+     */
+    private void move(int i) {
+        OrderBook book = books[i];
+        book.update(bid[i], ask[i], random);
+        bid[i] = book.bestBid();
+        ask[i] = book.bestAsk();
+    }
+
+    /**
+     * @param i the company slot
+     * @return the current market data (quote) of the company
+     */
+    Quote quote(int i) {
+        return new Quote(symbols[i], names[i], bid[i], ask[i], stocks[i], price[i], share[i],
+                books[i].bidSize(), books[i].askSize());
+    }
+
+    /**
+     * @param i the company slot
+     * @return the depth snapshot of the order book of the company
+     */
+    JsonObject depth(int i) {
+        return books[i].depth().put("symbol", symbols[i]).put("name", names[i]);
+    }
+
+    /**
+     * Builds the next delta message of the company: a snapshot on the first message and then every `keyframe`
+     * messages, otherwise only the fields that changed since the previous message.
+     *
+     * @param i        the company slot
+     * @param keyframe the number of messages between two snapshots
+     * @return the delta message
+     */
+    QuoteDelta delta(int i, int keyframe) {
+        long seq = ++sequence[i];
+        int fields;
+        if ((seq - 1) % keyframe == 0) {
+            fields = QuoteDelta.ALL;
+        } else {
+            fields = 0;
+            if (bid[i] != sentBid[i]) {
+                fields |= QuoteDelta.BID;
+            }
+            if (ask[i] != sentAsk[i]) {
+                fields |= QuoteDelta.ASK;
+            }
+            if (share[i] != sentShare[i]) {
+                fields |= QuoteDelta.SHARES;
+            }
+            if (books[i].bidSize() != sentBidSize[i]) {
+                fields |= QuoteDelta.BID_SIZE;
+            }
+            if (books[i].askSize() != sentAskSize[i]) {
+                fields |= QuoteDelta.ASK_SIZE;
+            }
+        }
+        sentBid[i] = bid[i];
+        sentAsk[i] = ask[i];
+        sentShare[i] = share[i];
+        sentBidSize[i] = books[i].bidSize();
+        sentAskSize[i] = books[i].askSize();
+        return new QuoteDelta(symbols[i], seq, fields, names[i], bid[i], ask[i], stocks[i], price[i], share[i],
+                books[i].bidSize(), books[i].askSize());
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        symbols = Arrays.copyOf(symbols, capacity);
+        variation = Arrays.copyOf(variation, capacity);
+        period = Arrays.copyOf(period, capacity);
+        stocks = Arrays.copyOf(stocks, capacity);
+        price = Arrays.copyOf(price, capacity);
+        value = Arrays.copyOf(value, capacity);
+        bid = Arrays.copyOf(bid, capacity);
+        ask = Arrays.copyOf(ask, capacity);
+        share = Arrays.copyOf(share, capacity);
+        books = Arrays.copyOf(books, capacity);
+        nextTick = Arrays.copyOf(nextTick, capacity);
+        sequence = Arrays.copyOf(sequence, capacity);
+        sentBid = Arrays.copyOf(sentBid, capacity);
+        sentAsk = Arrays.copyOf(sentAsk, capacity);
+        sentShare = Arrays.copyOf(sentShare, capacity);
+        sentBidSize = Arrays.copyOf(sentBidSize, capacity);
+        sentAskSize = Arrays.copyOf(sentAskSize, capacity);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,31 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.QuoteAssembler;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.typesafe.config.ConfigFactory;
+import io.vertx.core.AbstractVerticle;
+
+import java.nio.file.Paths;
+
+/**
+ * Records every tick published on the market data address into a {@link TickJournal}, so the session can later be
+ * replayed by the {@link MarketDataReplayVerticle}.
+ */
+public class MarketDataRecorderVerticle extends AbstractVerticle {
+
+    private TickJournal journal;
+
+    @Override
+    public void start() throws Exception {
+        String address = ConfigFactory.load().getString("market.address");
+        journal = new TickJournal(Paths.get(config().getString("journal")));
+        QuoteCodec.register(vertx.eventBus());
+        vertx.eventBus().consumer(address, new QuoteAssembler(quote ->
+                journal.append(System.currentTimeMillis(), quote)));
+    }
+
+    @Override
+    public void stop() throws Exception {
+        journal.close();
+    }
+}
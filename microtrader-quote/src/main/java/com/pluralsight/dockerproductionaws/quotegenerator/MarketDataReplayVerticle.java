@@ -0,0 +1,73 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.MarketAddresses;
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.typesafe.config.ConfigFactory;
+import io.vertx.core.AbstractVerticle;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Publishes the ticks of a {@link TickJournal} on the market data address instead of generating them.
+ * <p>
+ * The `speed` of the replay is a multiple of the recorded pace: 1 replays the session in real time, 10 ten times
+ * faster, and 0 as fast as possible. Ticks are published in batches, yielding the event loop between two batches.
+ */
+public class MarketDataReplayVerticle extends AbstractVerticle {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private String address;
+    private final Map<String, String> symbolAddresses = new HashMap<>();
+    private double speed;
+    private TickJournal.Reader reader;
+    private long origin;
+    private long started;
+    private long count;
+
+    @Override
+    public void start() throws Exception {
+        address = ConfigFactory.load().getString("market.address");
+        speed = config().getDouble("speed", 1.0);
+        reader = new TickJournal.Reader(Paths.get(config().getString("journal")));
+        QuoteCodec.register(vertx.eventBus());
+
+        if (reader.next()) {
+            origin = reader.time();
+            started = System.currentTimeMillis();
+            pump();
+        } else {
+            System.out.println("Market data journal is empty");
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        reader.close();
+    }
+
+    private void pump() {
+        long clock = speed > 0 ? origin + (long) ((System.currentTimeMillis() - started) * speed) : Long.MAX_VALUE;
+        for (int n = 0; n < BATCH_SIZE; n++) {
+            if (reader.time() > clock) {
+                // Wait for the next tick to be due
+                long delay = Math.max(1, (long) ((reader.time() - clock) / speed));
+                vertx.setTimer(delay, l -> pump());
+                return;
+            }
+            Quote quote = reader.quote();
+            vertx.eventBus().publish(address, quote);
+            vertx.eventBus().publish(symbolAddresses.computeIfAbsent(quote.getSymbol(),
+                    symbol -> MarketAddresses.of(address, symbol)), quote);
+            count++;
+            if (!reader.next()) {
+                System.out.println("Market data replay completed: " + count + " ticks");
+                return;
+            }
+        }
+        vertx.runOnContext(v -> pump());
+    }
+}
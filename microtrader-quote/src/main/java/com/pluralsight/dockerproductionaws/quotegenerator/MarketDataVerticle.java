@@ -1,32 +1,31 @@
 package com.pluralsight.dockerproductionaws.quotegenerator;
 
+import com.pluralsight.dockerproductionaws.common.market.MarketAddresses;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
-import java.util.Objects;
-import java.util.Random;
-
 /**
- * Created by jmenga on 13/09/16.
+ * Generates the market data of a set of companies. One instance is deployed per event loop, each one owning a
+ * partition of the companies and driving them from a single timer.
+ * <p>
+ * In delta mode (`market.delta.enabled`), the market data is published as
+ * {@link com.pluralsight.dockerproductionaws.common.market.QuoteDelta} messages carrying only the fields that changed,
+ * with a full snapshot every `market.delta.keyframe` messages of a company.
+ * <p>
+ * The market data of each company is published on the market data address and on the address of the company (see
+ * {@link MarketAddresses}). The depth snapshot of the order book of a company is answered on its book address.
  */
 public class MarketDataVerticle extends AbstractVerticle {
 
     String address;
-    String name;
-    int variation;
-    long period;
-    String symbol;
-    int stocks;
-    double price;
-
-    double bid;
-    double ask;
-
-    int share;
-    private double value;
-
-    private final Random random = new Random();
+    boolean delta;
+    int keyframe;
+    MarketDataEngine engine;
+    String[] symbolAddresses;
 
     /**
      * Method called when the verticle is deployed.
@@ -34,93 +33,41 @@ public class MarketDataVerticle extends AbstractVerticle {
     @Override
     public void start() {
         // Retrieve the configuration, and initialize the verticle.
-        address = ConfigFactory.load().getString("market.address");
+        Config config = ConfigFactory.load();
+        address = config.getString("market.address");
+        delta = config.getBoolean("market.delta.enabled");
+        keyframe = Math.max(1, config.getInt("market.delta.keyframe"));
+        engine = new MarketDataEngine(Math.max(1, config.getInt("market.book.depth")),
+                config.getDouble("market.book.tick"));
         init(config());
+        QuoteCodec.register(vertx.eventBus());
 
-        // Every `period` ms, the given Handler is called.
-        vertx.setPeriodic(period, l -> {
-            compute();
-            send();
-        });
+        // Every `resolution` ms, the companies that are due are computed and sent.
+        long resolution = engine.resolution();
+        vertx.setPeriodic(resolution, l -> engine.advance(resolution, this::send));
     }
 
     /**
      * Read the configuration and set the initial values.
-     * @param config the configuration
+     * @param config the configuration, holding the `companies` array
      */
     void init(JsonObject config) {
-        period = config.getLong("period", 3000L);
-        variation = config.getInteger("variation", 100);
-        name = config.getString("name");
-        Objects.requireNonNull(name);
-        symbol = config.getString("symbol", name);
-        stocks = config.getInteger("volume", 10000);
-        price = config.getDouble("price", 100.0);
-
-        value = price;
-        ask = price + random.nextInt(variation / 2);
-        bid = price + random.nextInt(variation / 2);
-
-        share = stocks / 2;
-    }
-
-    /**
-     * Sends the market data on the event bus.
-     */
-    private void send() {
-        vertx.eventBus().publish(address, toJson());
-    }
-
-    /**
-     * Compute the new evaluation...
-     */
-    void compute() {
-
-        if (random.nextBoolean()) {
-            value = value + random.nextInt(variation);
-            ask = value + random.nextInt(variation / 2);
-            bid = value + random.nextInt(variation / 2);
-        } else {
-            value = value - random.nextInt(variation);
-            ask = value - random.nextInt(variation / 2);
-            bid = value - random.nextInt(variation / 2);
-        }
-
-        if (value <= 0) {
-            value = 1.0;
-        }
-        if (ask <= 0) {
-            ask = 1.0;
-        }
-        if (bid <= 0) {
-            bid = 1.0;
-        }
-
-        if (random.nextBoolean()) {
-            // Adjust share
-            int shareVariation = random.nextInt(100);
-            if (shareVariation > 0 && share + shareVariation < stocks) {
-                share += shareVariation;
-            } else if (shareVariation < 0 && share + shareVariation > 0) {
-                share += shareVariation;
-            }
+        JsonArray companies = config.getJsonArray("companies", new JsonArray());
+        symbolAddresses = new String[companies.size()];
+        for (int i = 0; i < companies.size(); i++) {
+            int slot = engine.add(companies.getJsonObject(i));
+            symbolAddresses[slot] = MarketAddresses.of(address, engine.symbols[slot]);
+            vertx.eventBus().consumer(MarketAddresses.book(address, engine.symbols[slot]),
+                    message -> message.reply(engine.depth(slot)));
         }
     }
 
     /**
-     * @return a json representation of the market data (quote). The structure is close to
-     * <a href="https://en.wikipedia.org/wiki/Market_data">https://en.wikipedia.org/wiki/Market_data</a>.
+     * Sends the market data on the event bus.
      */
-    private JsonObject toJson() {
-        return new JsonObject()
-                .put("exchange", "vert.x stock exchange")
-                .put("symbol", symbol)
-                .put("name", name)
-                .put("bid", bid)
-                .put("ask", ask)
-                .put("volume", stocks)
-                .put("open", price)
-                .put("shares", share);
-
+    private void send(int i) {
+        Object message = delta ? engine.delta(i, keyframe) : engine.quote(i);
+        vertx.eventBus().publish(address, message);
+        vertx.eventBus().publish(symbolAddresses[i], message);
     }
 }
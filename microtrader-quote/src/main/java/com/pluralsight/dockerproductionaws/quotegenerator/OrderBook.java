@@ -0,0 +1,127 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Random;
+
+/**
+ * A simulated limit order book: the resting size at the `depth` best price levels of each side.
+ * <p>
+ * Prices are kept in ticks and the levels in two primitive arrays indexed by their distance to the best price:
+ * `bids[k]` is the size at `bestBid - k` ticks, `asks[k]` the size at `bestAsk + k` ticks. When the market moves, the
+ * levels still in range are shifted in place and the new levels are filled with fresh orders, so updating the book
+ * does not allocate. Instances are not thread safe, each one is owned by the engine of one event loop.
+ */
+class OrderBook {
+
+    /**
+     * The number of random order additions and cancellations applied on each update.
+     */
+    private static final int ORDER_FLOW = 4;
+
+    private final int depth;
+    private final double tick;
+    private final int lot;
+    private final int[] bids;
+    private final int[] asks;
+    private long bestBid;
+    private long bestAsk;
+
+    /**
+     * @param depth the number of price levels of each side
+     * @param tick  the price increment
+     * @param lot   the typical size of an order
+     */
+    OrderBook(int depth, double tick, int lot) {
+        this.depth = depth;
+        this.tick = tick;
+        this.lot = Math.max(1, lot);
+        this.bids = new int[depth];
+        this.asks = new int[depth];
+    }
+
+    /**
+     * Moves the book to the given best prices, and applies some random order flow.
+     *
+     * @param bid    the new best bid price
+     * @param ask    the new best ask price, raised one tick above the bid if needed
+     * @param random the random generator of the engine
+     */
+    void update(double bid, double ask, Random random) {
+        long newBid = Math.max(1, Math.round(Math.min(bid, ask) / tick));
+        long newAsk = Math.max(Math.round(Math.max(bid, ask) / tick), newBid + 1);
+
+        // The bids are indexed downwards from the best bid, the asks upwards from the best ask
+        shift(bids, newBid - bestBid, random);
+        shift(asks, bestAsk - newAsk, random);
+        bestBid = newBid;
+        bestAsk = newAsk;
+
+        for (int n = 0; n < ORDER_FLOW; n++) {
+            int[] side = random.nextBoolean() ? bids : asks;
+            int level = random.nextInt(depth);
+            int size = side[level] + (random.nextBoolean() ? 1 : -1) * random.nextInt(lot);
+            side[level] = Math.max(1, size);
+        }
+    }
+
+    /**
+     * Shifts the levels of one side by `offset` levels away from (positive) or towards (negative) the best price.
+     */
+    private void shift(int[] levels, long offset, Random random) {
+        if (offset == 0) {
+            return;
+        }
+        if (Math.abs(offset) >= depth) {
+            fill(levels, 0, depth, random);
+        } else if (offset > 0) {
+            // New levels appear at the top of the book
+            int n = (int) offset;
+            System.arraycopy(levels, 0, levels, n, depth - n);
+            fill(levels, 0, n, random);
+        } else {
+            // The top levels have been consumed
+            int n = (int) -offset;
+            System.arraycopy(levels, n, levels, 0, depth - n);
+            fill(levels, depth - n, depth, random);
+        }
+    }
+
+    private void fill(int[] levels, int from, int to, Random random) {
+        for (int k = from; k < to; k++) {
+            levels[k] = 1 + random.nextInt(lot * 2);
+        }
+    }
+
+    double bestBid() {
+        return bestBid * tick;
+    }
+
+    double bestAsk() {
+        return bestAsk * tick;
+    }
+
+    int bidSize() {
+        return bids[0];
+    }
+
+    int askSize() {
+        return asks[0];
+    }
+
+    /**
+     * @return the depth snapshot of the book: the `bids` and `asks` arrays of price levels, best first
+     */
+    JsonObject depth() {
+        JsonArray bidLevels = new JsonArray();
+        JsonArray askLevels = new JsonArray();
+        for (int k = 0; k < depth; k++) {
+            if (bestBid - k > 0) {
+                bidLevels.add(new JsonObject().put("price", (bestBid - k) * tick).put("size", bids[k]));
+            }
+            askLevels.add(new JsonObject().put("price", (bestAsk + k) * tick).put("size", asks[k]));
+        }
+        return new JsonObject().put("bids", bidLevels).put("asks", askLevels);
+    }
+}
@@ -0,0 +1,40 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * An immutable, already encoded, HTTP representation of one or several quotes, tagged with the version of the market
+ * data it was built from. The same buffer is written to every response until the next tick.
+ */
+class QuoteSnapshot {
+
+    private final long version;
+    private final String etag;
+    private final Buffer body;
+
+    QuoteSnapshot(String epoch, long version, Buffer body) {
+        this.version = version;
+        this.etag = "\"" + epoch + "-" + version + "\"";
+        this.body = body;
+    }
+
+    long version() {
+        return version;
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    Buffer body() {
+        return body;
+    }
+
+    /**
+     * @param ifNoneMatch the `If-None-Match` request header, may be {@code null}
+     * @return whether the client already has this snapshot
+     */
+    boolean matches(String ifNoneMatch) {
+        return ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(etag));
+    }
+}
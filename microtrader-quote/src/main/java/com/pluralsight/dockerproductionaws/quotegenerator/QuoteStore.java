@@ -0,0 +1,192 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The latest quotes and their encoded snapshots, shared by all the {@link RestQuoteAPIVerticle} instances of a
+ * Vert.x instance.
+ * <p>
+ * The store is updated by a single market data consumer (see {@link #claimFeed()}) and read concurrently by every
+ * HTTP event loop. Reading the quotes never locks: snapshots are immutable and published through concurrent maps and
+ * atomic references.
+ * <p>
+ * The store also keeps the recent ticks and OHLC bars of every company, see {@link TickHistory}.
+ */
+class QuoteStore implements Shareable {
+
+    private static final String MAP_NAME = "quote-store";
+
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final Map<String, Quote> quotes = new ConcurrentHashMap<>();
+    private final Map<String, QuoteSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, String> symbols = new ConcurrentHashMap<>();
+    private final AtomicReference<QuoteSnapshot> all = new AtomicReference<>();
+    private final Map<String, TickHistory> histories = new ConcurrentHashMap<>();
+    private final AtomicBoolean fed = new AtomicBoolean();
+    private final int historyTicks;
+    private final int historyBars;
+    private volatile long version;
+
+    QuoteStore(int historyTicks, int historyBars) {
+        // Fail on startup rather than on the first tick of every company
+        TickHistory.checkCapacity(historyTicks, historyBars);
+        this.historyTicks = historyTicks;
+        this.historyBars = historyBars;
+    }
+
+    /**
+     * Gets the store of the given Vert.x instance, creating it on first access.
+     *
+     * @param vertx the Vert.x instance
+     * @return the store
+     */
+    static QuoteStore get(Vertx vertx) {
+        LocalMap<String, QuoteStore> map = vertx.sharedData().getLocalMap(MAP_NAME);
+        Config config = ConfigFactory.load();
+        QuoteStore store = new QuoteStore(config.getInt("history.ticks"), config.getInt("history.bars"));
+        QuoteStore existing = map.putIfAbsent(MAP_NAME, store);
+        return existing != null ? existing : store;
+    }
+
+    /**
+     * @return {@code true} for the first caller only, which becomes responsible for feeding the store with market data
+     */
+    boolean claimFeed() {
+        return fed.compareAndSet(false, true);
+    }
+
+    /**
+     * Gives up feeding the store, the next instance claiming the feed becomes responsible for it. Must only be called
+     * by the feeding consumer, once unregistered.
+     */
+    void releaseFeed() {
+        fed.set(false);
+    }
+
+    /**
+     * Records a new quote. Must only be called by the feeding consumer.
+     *
+     * @param quote the quote
+     */
+    void update(Quote quote) {
+        // Recorded first, so that the history of a quote that can be read holds its tick
+        TickHistory history = histories.get(quote.getName());
+        if (history == null) {
+            history = new TickHistory(historyTicks, historyBars);
+            histories.put(quote.getName(), history);
+        }
+        history.record(System.currentTimeMillis(), quote.getBid(), quote.getAsk(), quote.getShares());
+
+        long next = version + 1;
+        quotes.put(quote.getName(), quote);
+        symbols.put(quote.getSymbol(), quote.getName());
+        snapshots.put(quote.getName(), new QuoteSnapshot(epoch, next, Buffer.buffer(quote.toJson().encode())));
+        version = next;
+    }
+
+    /**
+     * @param key the company name or symbol
+     * @return the tick history of the company, {@code null} if unknown
+     */
+    TickHistory history(String key) {
+        TickHistory history = histories.get(key);
+        if (history == null) {
+            String name = symbols.get(key);
+            history = name == null ? null : histories.get(name);
+        }
+        return history;
+    }
+
+    /**
+     * @param name the company name
+     * @return the snapshot of the company, {@code null} if unknown
+     */
+    QuoteSnapshot get(String name) {
+        return snapshots.get(name);
+    }
+
+    /**
+     * @param key the company name or symbol
+     * @return the latest quote of the company, {@code null} if unknown
+     */
+    Quote quote(String key) {
+        Quote quote = quotes.get(key);
+        if (quote == null) {
+            String name = symbols.get(key);
+            quote = name == null ? null : quotes.get(name);
+        }
+        return quote;
+    }
+
+    /**
+     * @return the latest quote of each company
+     */
+    Collection<Quote> quotes() {
+        return quotes.values();
+    }
+
+    /**
+     * Builds the representation of several quotes from their encoded snapshots. Unknown companies are left out, and
+     * every company appears once, in the order it was first asked for.
+     *
+     * @param keys the company names or symbols
+     * @return a JSON object mapping the company names to their quote
+     */
+    Buffer select(Iterable<String> keys) {
+        // A company asked for both by name and by symbol appears once
+        Set<String> names = new LinkedHashSet<>();
+        for (String key : keys) {
+            String name = snapshots.containsKey(key) ? key : symbols.get(key);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        Buffer buffer = Buffer.buffer().appendString("{");
+        boolean first = true;
+        for (String name : names) {
+            QuoteSnapshot snapshot = snapshots.get(name);
+            if (snapshot != null) {
+                if (!first) {
+                    buffer.appendString(",");
+                }
+                buffer.appendString(Json.encode(name)).appendString(":").appendBuffer(snapshot.body());
+                first = false;
+            }
+        }
+        return buffer.appendString("}");
+    }
+
+    /**
+     * @return the snapshot of all the quotes, built on the first call following a tick
+     */
+    QuoteSnapshot all() {
+        long current = version;
+        QuoteSnapshot snapshot = all.get();
+        if (snapshot != null && snapshot.version() == current) {
+            return snapshot;
+        }
+        JsonObject content = new JsonObject();
+        quotes.forEach((name, quote) -> content.put(name, quote.toJson()));
+        QuoteSnapshot built = new QuoteSnapshot(epoch, current, Buffer.buffer(content.encode()));
+        // Never replace a snapshot built by another event loop from a more recent version
+        all.accumulateAndGet(built, (previous, next) ->
+                previous == null || previous.version() < next.version() ? next : previous);
+        return built;
+    }
+}
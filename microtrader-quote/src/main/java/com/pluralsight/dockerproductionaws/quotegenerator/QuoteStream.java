@@ -0,0 +1,134 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A client connection receiving the quotes as they are generated (server-sent events, chunked NDJSON or web socket).
+ * <p>
+ * Quotes are written as long as the connection keeps up. When its write queue is full, only the latest quote of each
+ * company is kept until the connection drains: slow readers skip stale ticks instead of making the server buffer
+ * every tick. The memory used by a connection is thus bounded by the number of companies.
+ */
+class QuoteStream {
+
+    private final WriteStream<?> stream;
+    private final Handler<Frame> sender;
+    private final Map<String, Frame> pending = new LinkedHashMap<>();
+    private Set<String> filter;
+    private boolean draining;
+
+    /**
+     * @param stream the client connection, used for flow control
+     * @param sender writes the quote to the connection, in the framing of the transport
+     * @param filter the company names or symbols the client is interested in, all companies if empty
+     */
+    QuoteStream(WriteStream<?> stream, Handler<Frame> sender, Set<String> filter) {
+        this.stream = stream;
+        this.sender = sender;
+        this.filter = filter;
+    }
+
+    /**
+     * Replaces the companies the client is interested in.
+     *
+     * @param filter the company names or symbols, all companies if empty
+     */
+    void filter(Set<String> filter) {
+        this.filter = filter == null ? Collections.emptySet() : filter;
+    }
+
+    boolean accepts(Quote quote) {
+        return filter.isEmpty() || filter.contains(quote.getSymbol()) || filter.contains(quote.getName());
+    }
+
+    /**
+     * Sends the quote, or keeps it until the connection drains if the client is too slow.
+     *
+     * @param quote the quote
+     * @param frame the encoded quote, shared by all the connections
+     */
+    void offer(Quote quote, Frame frame) {
+        if (!accepts(quote)) {
+            return;
+        }
+        if (pending.isEmpty() && !stream.writeQueueFull()) {
+            sender.handle(frame);
+        } else {
+            // Replaces the stale quote of the company, if any
+            pending.put(quote.getName(), frame);
+            if (!draining) {
+                draining = true;
+                stream.drainHandler(v -> flush());
+            }
+        }
+    }
+
+    private void flush() {
+        draining = false;
+        Iterator<Frame> it = pending.values().iterator();
+        while (it.hasNext() && !stream.writeQueueFull()) {
+            sender.handle(it.next());
+            it.remove();
+        }
+        if (!pending.isEmpty()) {
+            draining = true;
+            stream.drainHandler(v -> flush());
+        }
+    }
+
+    /**
+     * A quote encoded once per tick, in the framings of the different transports.
+     */
+    static class Frame {
+        private static final Buffer SSE_PREFIX = Buffer.buffer("data: ");
+        private static final Buffer SSE_SUFFIX = Buffer.buffer("\n\n");
+        private static final Buffer NEW_LINE = Buffer.buffer("\n");
+
+        private final String json;
+        private Buffer sse;
+        private Buffer ndjson;
+
+        Frame(Quote quote) {
+            this.json = quote.toJson().encode();
+        }
+
+        /**
+         * @return the quote as JSON text (web socket)
+         */
+        String text() {
+            return json;
+        }
+
+        /**
+         * @return the quote as a server-sent event
+         */
+        Buffer sse() {
+            if (sse == null) {
+                sse = Buffer.buffer(json.length() + 8)
+                        .appendBuffer(SSE_PREFIX)
+                        .appendString(json)
+                        .appendBuffer(SSE_SUFFIX);
+            }
+            return sse;
+        }
+
+        /**
+         * @return the quote as a new line delimited JSON entry
+         */
+        Buffer ndjson() {
+            if (ndjson == null) {
+                ndjson = Buffer.buffer(json.length() + 1).appendString(json).appendBuffer(NEW_LINE);
+            }
+            return ndjson;
+        }
+    }
+}
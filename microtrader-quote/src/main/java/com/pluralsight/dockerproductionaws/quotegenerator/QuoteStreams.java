@@ -0,0 +1,139 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteAssembler;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The streaming connections served by one {@link RestQuoteAPIVerticle} instance.
+ * <p>
+ * The instance only listens to the market data while it has connections. Each tick is encoded once per transport and
+ * handed over to every connection, see {@link QuoteStream}.
+ */
+class QuoteStreams {
+
+    private final Vertx vertx;
+    private final String address;
+    private final QuoteStore store;
+    private final Set<QuoteStream> streams = new HashSet<>();
+    private MessageConsumer<Object> consumer;
+
+    QuoteStreams(Vertx vertx, String address, QuoteStore store) {
+        this.vertx = vertx;
+        this.address = address;
+        this.store = store;
+    }
+
+    /**
+     * @param request the HTTP request
+     * @return whether the request asks for a stream of quotes
+     */
+    static boolean isStreamRequest(HttpServerRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return request.params().contains("stream") ||
+                (accept != null && (accept.contains("text/event-stream") || accept.contains("application/x-ndjson")));
+    }
+
+    /**
+     * Streams the quotes as server-sent events, or as new line delimited JSON (`stream=ndjson`).
+     *
+     * @param request the HTTP request
+     */
+    void serve(HttpServerRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        boolean ndjson = "ndjson".equals(request.getParam("stream")) ||
+                (accept != null && accept.contains("application/x-ndjson"));
+        Set<String> filter = filter(request.getParam("names"), request.getParam("symbols"));
+        HttpServerResponse response = request.response()
+                .setChunked(true)
+                .putHeader(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .putHeader(HttpHeaders.CONTENT_TYPE, ndjson ? "application/x-ndjson" : "text/event-stream");
+        QuoteStream stream = ndjson ?
+                new QuoteStream(response, frame -> response.write(frame.ndjson()), filter) :
+                new QuoteStream(response, frame -> response.write(frame.sse()), filter);
+        response.closeHandler(v -> remove(stream));
+        add(stream);
+    }
+
+    /**
+     * Streams the quotes as web socket text messages. The client can change its filter by sending a JSON array of
+     * company names or symbols.
+     *
+     * @param socket the web socket
+     */
+    void serve(ServerWebSocket socket) {
+        Map<String, List<String>> params = new QueryStringDecoder(socket.uri()).parameters();
+        Set<String> filter = filter(first(params.get("names")), first(params.get("symbols")));
+        QuoteStream stream = new QuoteStream(socket, frame -> socket.writeTextMessage(frame.text()), filter);
+        socket.textMessageHandler(message -> {
+            try {
+                Set<String> keys = new HashSet<>();
+                new JsonArray(message).forEach(key -> keys.add(String.valueOf(key)));
+                stream.filter(keys);
+            } catch (DecodeException e) {
+                socket.writeTextMessage("{\"error\":\"Expected a JSON array of company names or symbols\"}");
+            }
+        });
+        socket.closeHandler(v -> remove(stream));
+        add(stream);
+    }
+
+    private void add(QuoteStream stream) {
+        if (consumer == null) {
+            consumer = vertx.eventBus().consumer(address, new QuoteAssembler(this::dispatch));
+        }
+        streams.add(stream);
+
+        // Start with the latest known quotes
+        for (Quote quote : store.quotes()) {
+            if (stream.accepts(quote)) {
+                stream.offer(quote, new QuoteStream.Frame(quote));
+            }
+        }
+    }
+
+    private void remove(QuoteStream stream) {
+        streams.remove(stream);
+        if (streams.isEmpty() && consumer != null) {
+            consumer.unregister();
+            consumer = null;
+        }
+    }
+
+    private void dispatch(Quote quote) {
+        QuoteStream.Frame frame = null;
+        for (QuoteStream stream : streams) {
+            if (stream.accepts(quote)) {
+                if (frame == null) {
+                    frame = new QuoteStream.Frame(quote);
+                }
+                stream.offer(quote, frame);
+            }
+        }
+    }
+
+    private static Set<String> filter(String names, String symbols) {
+        Set<String> filter = new LinkedHashSet<>();
+        filter.addAll(RestQuoteAPIVerticle.split(names));
+        filter.addAll(RestQuoteAPIVerticle.split(symbols));
+        return filter;
+    }
+
+    private static String first(List<String> values) {
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
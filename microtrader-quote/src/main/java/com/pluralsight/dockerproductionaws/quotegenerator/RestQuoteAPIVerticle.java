@@ -1,45 +1,98 @@
 package com.pluralsight.dockerproductionaws.quotegenerator;
 
+import com.pluralsight.dockerproductionaws.common.market.MarketAddresses;
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteAssembler;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import io.vertx.core.AbstractVerticle;
-import io.vertx.core.http.HttpServerResponse;
-import io.vertx.core.json.Json;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * Created by jmenga on 13/09/16.
+ * <p>
+ * Quotes only change once per market period, so the HTTP representations are encoded when a tick arrives (or, for
+ * the full map, on the first request after a tick) and written as is to every response. Each representation carries
+ * an `ETag`, clients sending it back in `If-None-Match` get a `304 Not Modified`.
+ * <p>
+ * The verticle is deployed with one instance per event loop. All the instances serve the same {@link QuoteStore},
+ * fed by a single market data consumer. The instance owning the consumer releases the feed when it stops, so that the
+ * instances deployed next feed the store again. In delta mode, the gaps the consumer detects in the market data are
+ * reported every `market.delta.report` ms.
+ * <p>
+ * Several quotes can be retrieved in one request, either with the comma separated `names` or `symbols` query
+ * parameters, or by posting a JSON array of names or symbols.
+ * <p>
+ * Quotes can also be pushed to clients as they are generated, see {@link QuoteStreams}: server-sent events
+ * (`Accept: text/event-stream` or `stream=sse`), new line delimited JSON (`Accept: application/x-ndjson` or
+ * `stream=ndjson`) or web socket. Streams can be restricted with the `names` and `symbols` parameters.
+ * <p>
+ * The recent history of a company (`name` being its name or symbol) is served as a JSON array, oldest first: its
+ * ticks with the `ticks` parameter, or its OHLC bars with the `bars` parameter (`1s`, `1m` or `5m`). Both can be
+ * limited to the most recent entries with the `limit` parameter.
+ * <p>
+ * The depth snapshot of the order book of a company is served with the `depth` parameter. It is requested from the
+ * market data verticle simulating the company.
  */
 public class RestQuoteAPIVerticle extends AbstractVerticle {
+    private static final DeliveryOptions BOOK_DELIVERY = new DeliveryOptions().setSendTimeout(2000);
     private Config config = ConfigFactory.load();
-    private Map<String, JsonObject> quotes = new HashMap<>();
+    private QuoteStore store;
+    private QuoteStreams streams;
+    private MessageConsumer<Object> feed;
 
     @Override
     public void start() throws Exception {
-        // Update quotes with market data
-        vertx.eventBus().<JsonObject>consumer(config.getString("market.address"))
-                .handler(message -> {
-                    JsonObject quote = message.body();
-                    quotes.put(quote.getString("name"), quote);
-                });
+        QuoteCodec.register(vertx.eventBus());
+        store = QuoteStore.get(vertx);
+        streams = new QuoteStreams(vertx, config.getString("market.address"), store);
+
+        // Update quotes with market data, only once for all the instances
+        if (store.claimFeed()) {
+            QuoteAssembler assembler = new QuoteAssembler(store::update);
+            feed = vertx.eventBus().consumer(config.getString("market.address"), assembler);
+            long report = config.getLong("market.delta.report");
+            if (report > 0 && config.getBoolean("market.delta.enabled")) {
+                vertx.setPeriodic(report, timer -> System.out.println("Quote store: " + assembler.gaps() +
+                        " gaps in the market data deltas"));
+            }
+        }
 
         vertx.createHttpServer()
+                .websocketHandler(streams::serve)
                 .requestHandler(request -> {
-                    HttpServerResponse response = request.response().putHeader("Content-Type", "application/json");
                     String company = request.getParam("name");
-                    if (company == null) {
-                        String content = Json.encodePrettily(quotes);
-                        response.end(content);
+                    if (QuoteStreams.isStreamRequest(request)) {
+                        streams.serve(request);
+                    } else if (request.params().contains("depth")) {
+                        depth(request, company);
+                    } else if (request.params().contains("ticks") || request.params().contains("bars")) {
+                        history(request, company);
+                    } else if (request.method() == HttpMethod.POST) {
+                        request.bodyHandler(body -> select(request, body));
+                    } else if (request.params().contains("names") || request.params().contains("symbols")) {
+                        Set<String> keys = new LinkedHashSet<>();
+                        keys.addAll(split(request.getParam("names")));
+                        keys.addAll(split(request.getParam("symbols")));
+                        respond(request, store.select(keys));
+                    } else if (company == null) {
+                        respond(request, store.all());
                     } else {
-                        JsonObject quote = quotes.get(company);
-                        if (quote == null) {
-                            response.setStatusCode(404).end();
-                        } else {
-                            response.end(quote.encodePrettily());
-                        }
+                        respond(request, store.get(company));
                     }
                 })
                 .listen(config.getInt("http.port"), ar -> {
@@ -50,4 +103,100 @@ public class RestQuoteAPIVerticle extends AbstractVerticle {
                     }
                 });
     }
+
+    @Override
+    public void stop() throws Exception {
+        if (feed != null) {
+            feed.unregister();
+            store.releaseFeed();
+        }
+    }
+
+    private void select(HttpServerRequest request, Buffer body) {
+        Set<String> keys = new LinkedHashSet<>();
+        try {
+            for (Object key : new JsonArray(body.toString())) {
+                keys.add(String.valueOf(key));
+            }
+        } catch (DecodeException e) {
+            request.response().setStatusCode(400).end("Expected a JSON array of company names or symbols");
+            return;
+        }
+        respond(request, store.select(keys));
+    }
+
+    private void depth(HttpServerRequest request, String company) {
+        Quote quote = company == null ? null : store.quote(company);
+        if (quote == null) {
+            request.response().setStatusCode(404).end();
+            return;
+        }
+        String address = MarketAddresses.book(config.getString("market.address"), quote.getSymbol());
+        vertx.eventBus().<JsonObject>send(address, null, BOOK_DELIVERY, reply -> {
+            if (reply.succeeded()) {
+                respond(request, Buffer.buffer(reply.result().body().encode()));
+            } else {
+                request.response().setStatusCode(503).end("No order book available for " + quote.getName());
+            }
+        });
+    }
+
+    private void history(HttpServerRequest request, String company) {
+        TickHistory history = company == null ? null : store.history(company);
+        if (history == null) {
+            request.response().setStatusCode(404).end();
+            return;
+        }
+        int limit;
+        try {
+            String param = request.getParam("limit");
+            limit = param == null ? Integer.MAX_VALUE : Integer.parseInt(param);
+        } catch (NumberFormatException e) {
+            limit = -1;
+        }
+        if (limit < 0) {
+            request.response().setStatusCode(400).end("Expected a positive limit");
+            return;
+        }
+        String bars = request.getParam("bars");
+        if (bars == null) {
+            respond(request, history.ticks(limit));
+            return;
+        }
+        int resolution = TickHistory.resolution(bars);
+        if (resolution < 0) {
+            request.response().setStatusCode(400).end("Expected a bar resolution of 1s, 1m or 5m");
+            return;
+        }
+        respond(request, history.bars(resolution, limit));
+    }
+
+    static Set<String> split(String param) {
+        if (param == null || param.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new LinkedHashSet<>(Arrays.asList(param.split(",")));
+    }
+
+    private void respond(HttpServerRequest request, Buffer content) {
+        request.response()
+                .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                .end(content);
+    }
+
+    private void respond(HttpServerRequest request, QuoteSnapshot snapshot) {
+        if (snapshot == null) {
+            request.response().setStatusCode(404).end();
+        } else if (snapshot.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            request.response()
+                    .putHeader(HttpHeaders.ETAG, snapshot.etag())
+                    .setStatusCode(304)
+                    .end();
+        } else {
+            request.response()
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                    .putHeader(HttpHeaders.ETAG, snapshot.etag())
+                    .end(snapshot.body());
+        }
+    }
 }
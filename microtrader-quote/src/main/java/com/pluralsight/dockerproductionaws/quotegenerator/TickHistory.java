@@ -0,0 +1,217 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * The recent ticks of one company, with the OHLC bars built from them at the {@link #RESOLUTIONS}.
+ * <p>
+ * Ticks and bars are kept in fixed size primitive ring buffers, so memory is bounded and recording a tick does not
+ * allocate: the oldest entries are overwritten. Bars are maintained incrementally from the mid price of each tick.
+ * <p>
+ * The history is written by the single consumer feeding the {@link QuoteStore} and read by every HTTP event loop.
+ * Reads are optimistic: a query only reads the entries it returns and is retried under the read lock if a tick was
+ * recorded meanwhile. Such a retry makes the feed wait for the time of one query, the only case where reads and writes
+ * block each other.
+ */
+class TickHistory {
+
+    /**
+     * The bar resolutions (ms): 1 second, 1 minute and 5 minutes.
+     */
+    static final long[] RESOLUTIONS = {1000L, 60_000L, 300_000L};
+    static final String[] RESOLUTION_NAMES = {"1s", "1m", "5m"};
+
+    private final StampedLock lock = new StampedLock();
+    private final int capacity;
+    private final long[] time;
+    private final double[] bid;
+    private final double[] ask;
+    private final int[] shares;
+    private final Bars[] bars = new Bars[RESOLUTIONS.length];
+    private long count;
+
+    /**
+     * @param ticks the number of ticks kept
+     * @param bars  the number of bars kept for each resolution
+     * @throws IllegalArgumentException if less than one tick or one bar is kept
+     */
+    TickHistory(int ticks, int bars) {
+        checkCapacity(ticks, bars);
+        this.capacity = ticks;
+        this.time = new long[ticks];
+        this.bid = new double[ticks];
+        this.ask = new double[ticks];
+        this.shares = new int[ticks];
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            this.bars[i] = new Bars(RESOLUTIONS[i], bars);
+        }
+    }
+
+    /**
+     * @param ticks the number of ticks kept
+     * @param bars  the number of bars kept for each resolution
+     * @throws IllegalArgumentException if less than one tick or one bar is kept
+     */
+    static void checkCapacity(int ticks, int bars) {
+        if (ticks < 1 || bars < 1) {
+            throw new IllegalArgumentException("The history must keep at least one tick and one bar, not " + ticks +
+                    " ticks and " + bars + " bars");
+        }
+    }
+
+    /**
+     * Records a tick and updates the bars. Must only be called by the feeding consumer.
+     *
+     * @param now    the time of the tick (ms)
+     * @param bid    the bid price
+     * @param ask    the ask price
+     * @param shares the available shares
+     */
+    void record(long now, double bid, double ask, int shares) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = (int) (count % capacity);
+            this.time[slot] = now;
+            this.bid[slot] = bid;
+            this.ask[slot] = ask;
+            this.shares[slot] = shares;
+            count++;
+            double price = (bid + ask) / 2;
+            for (Bars series : bars) {
+                series.update(now, price);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param name the name of the bar resolution, such as `1m`
+     * @return the index of the resolution in {@link #RESOLUTIONS}, -1 if not maintained
+     */
+    static int resolution(String name) {
+        for (int i = 0; i < RESOLUTION_NAMES.length; i++) {
+            if (RESOLUTION_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param limit the maximum number of ticks
+     * @return the most recent ticks, oldest first, as a JSON array
+     */
+    Buffer ticks(int limit) {
+        return read(() -> {
+            long end = count;
+            long first = Math.max(0, end - Math.min(limit, capacity));
+            StringBuilder json = new StringBuilder(64 * (int) (end - first) + 2).append('[');
+            for (long n = first; n < end; n++) {
+                int slot = (int) (n % capacity);
+                if (n > first) {
+                    json.append(',');
+                }
+                json.append("{\"time\":").append(time[slot])
+                        .append(",\"bid\":").append(bid[slot])
+                        .append(",\"ask\":").append(ask[slot])
+                        .append(",\"shares\":").append(shares[slot])
+                        .append('}');
+            }
+            return Buffer.buffer(json.append(']').toString());
+        });
+    }
+
+    /**
+     * @param resolution the index of the resolution in {@link #RESOLUTIONS}
+     * @param limit      the maximum number of bars
+     * @return the most recent bars, oldest first, as a JSON array. The last bar is still open.
+     */
+    Buffer bars(int resolution, int limit) {
+        Bars series = bars[resolution];
+        return read(() -> series.encode(limit));
+    }
+
+    private Buffer read(Supplier<Buffer> reader) {
+        long stamp = lock.tryOptimisticRead();
+        Buffer result = reader.get();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = reader.get();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The OHLC bars of one resolution, the last one being updated in place until a tick falls in the next period.
+     */
+    private static class Bars {
+        private final long resolution;
+        private final int capacity;
+        private final long[] start;
+        private final double[] open;
+        private final double[] high;
+        private final double[] low;
+        private final double[] close;
+        private final int[] ticks;
+        private long count;
+
+        Bars(long resolution, int capacity) {
+            this.resolution = resolution;
+            this.capacity = capacity;
+            this.start = new long[capacity];
+            this.open = new double[capacity];
+            this.high = new double[capacity];
+            this.low = new double[capacity];
+            this.close = new double[capacity];
+            this.ticks = new int[capacity];
+        }
+
+        void update(long now, double price) {
+            long period = now - now % resolution;
+            int last = (int) ((count - 1) % capacity);
+            if (count > 0 && start[last] >= period) {
+                high[last] = Math.max(high[last], price);
+                low[last] = Math.min(low[last], price);
+                close[last] = price;
+                ticks[last]++;
+            } else {
+                int slot = (int) (count % capacity);
+                start[slot] = period;
+                open[slot] = price;
+                high[slot] = price;
+                low[slot] = price;
+                close[slot] = price;
+                ticks[slot] = 1;
+                count++;
+            }
+        }
+
+        Buffer encode(int limit) {
+            long end = count;
+            long first = Math.max(0, end - Math.min(limit, capacity));
+            StringBuilder json = new StringBuilder(96 * (int) (end - first) + 2).append('[');
+            for (long n = first; n < end; n++) {
+                int slot = (int) (n % capacity);
+                if (n > first) {
+                    json.append(',');
+                }
+                json.append("{\"time\":").append(start[slot])
+                        .append(",\"open\":").append(open[slot])
+                        .append(",\"high\":").append(high[slot])
+                        .append(",\"low\":").append(low[slot])
+                        .append(",\"close\":").append(close[slot])
+                        .append(",\"ticks\":").append(ticks[slot])
+                        .append('}');
+            }
+            return Buffer.buffer(json.append(']').toString());
+        }
+    }
+}
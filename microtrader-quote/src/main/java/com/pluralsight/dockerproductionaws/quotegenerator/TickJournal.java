@@ -0,0 +1,195 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only journal of the published ticks, written to a memory-mapped file so that a market session can be
+ * replayed deterministically (see {@link MarketDataReplayVerticle}).
+ * <p>
+ * The file is mapped in segments of {@link #SEGMENT_SIZE} bytes, records never span two segments. Each record is
+ * length-prefixed:
+ * <pre>
+ *   length (int) | time (long) | bid (double) | ask (double) | open (double) | volume (int) | shares (int) |
+ *   bid size (int) | ask size (int) | symbol (short + utf8) | name (short + utf8)
+ * </pre>
+ * A length of -1 moves to the next segment, a length of 0 (or the end of the file) ends the journal. Instances are not
+ * thread safe.
+ */
+class TickJournal implements Closeable {
+
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int NEXT_SEGMENT = -1;
+    private static final int FIXED_LENGTH = 8 + 3 * 8 + 4 * 4 + 2 * 2;
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+
+    /**
+     * Creates the journal, replacing the existing file if any.
+     *
+     * @param path the journal file
+     * @throws IOException if the file cannot be created or mapped
+     */
+    TickJournal(Path path) throws IOException {
+        this(path, SEGMENT_SIZE);
+    }
+
+    TickJournal(Path path, int segmentSize) throws IOException {
+        this.segmentSize = segmentSize;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    /**
+     * Appends a tick to the journal.
+     *
+     * @param time  the time of the tick (ms)
+     * @param quote the quote
+     */
+    void append(long time, Quote quote) {
+        byte[] symbol = quote.getSymbol().getBytes(StandardCharsets.UTF_8);
+        byte[] name = quote.getName().getBytes(StandardCharsets.UTF_8);
+        int length = FIXED_LENGTH + symbol.length + name.length;
+        // Always keep room for the marker following the record
+        if (segment.remaining() < 4 + length + 4) {
+            segment.putInt(NEXT_SEGMENT);
+            segmentStart += segmentSize;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        segment.putInt(length)
+                .putLong(time)
+                .putDouble(quote.getBid())
+                .putDouble(quote.getAsk())
+                .putDouble(quote.getOpen())
+                .putInt(quote.getVolume())
+                .putInt(quote.getShares())
+                .putInt(quote.getBidSize())
+                .putInt(quote.getAskSize())
+                .putShort((short) symbol.length)
+                .put(symbol)
+                .putShort((short) name.length)
+                .put(name);
+    }
+
+    /**
+     * Flushes the journal to disk and trims the file to its content.
+     */
+    @Override
+    public void close() throws IOException {
+        segment.force();
+        channel.truncate(segmentStart + segment.position());
+        channel.close();
+    }
+
+    /**
+     * Reads a journal back, one record at a time. The current record is exposed through {@link #time()} and
+     * {@link #quote()}.
+     */
+    static class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final int segmentSize;
+        private final long size;
+        private final byte[] scratch = new byte[0xFFFF];
+        private MappedByteBuffer segment;
+        private long segmentStart;
+        private long time;
+        private Quote quote;
+
+        /**
+         * @param path the journal file
+         * @throws IOException if the file cannot be opened or mapped
+         */
+        Reader(Path path) throws IOException {
+            this(path, SEGMENT_SIZE);
+        }
+
+        Reader(Path path, int segmentSize) throws IOException {
+            this.segmentSize = segmentSize;
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(segmentSize, size));
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return {@code false} at the end of the journal
+         */
+        boolean next() {
+            int length = segment.remaining() < 4 ? 0 : segment.getInt();
+            if (length == NEXT_SEGMENT) {
+                segmentStart += segmentSize;
+                if (segmentStart >= size) {
+                    quote = null;
+                    return false;
+                }
+                try {
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart,
+                            Math.min(segmentSize, size - segmentStart));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                length = segment.remaining() < 4 ? 0 : segment.getInt();
+            }
+            if (length <= 0) {
+                quote = null;
+                return false;
+            }
+            time = segment.getLong();
+            double bid = segment.getDouble();
+            double ask = segment.getDouble();
+            double open = segment.getDouble();
+            int volume = segment.getInt();
+            int shares = segment.getInt();
+            int bidSize = segment.getInt();
+            int askSize = segment.getInt();
+            String symbol = string();
+            String name = string();
+            quote = new Quote(symbol, name, bid, ask, volume, open, shares, bidSize, askSize);
+            return true;
+        }
+
+        /**
+         * @return the time of the current record (ms)
+         */
+        long time() {
+            return time;
+        }
+
+        /**
+         * @return the quote of the current record
+         */
+        Quote quote() {
+            return quote;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private String string() {
+            int length = segment.getShort() & 0xFFFF;
+            segment.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package com.pluralsight.dockerproductionaws.quotegenerator;
 
+import com.pluralsight.dockerproductionaws.common.market.MarketAddresses;
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteAssembler;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.pluralsight.dockerproductionaws.common.market.QuoteDelta;
+import com.pluralsight.dockerproductionaws.common.market.QuoteDeltaCodec;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import org.junit.After;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,6 +32,17 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 public class MarketDataVerticleTest {
     private Config config = ConfigFactory.load();
+    private Vertx vertx;
+
+    @After
+    public void tearDown() {
+        // Closed even when the test fails, so that the servers of the next tests can bind their ports
+        if (vertx != null) {
+            AtomicBoolean closed = new AtomicBoolean();
+            vertx.close(ar -> closed.set(true));
+            await().untilTrue(closed);
+        }
+    }
 
     @Test
     public void testComputation() {
@@ -25,39 +50,59 @@ public class MarketDataVerticleTest {
                 .put("name", "test")
                 .put("symbol", "TT");
 
-        MarketDataVerticle verticle = new MarketDataVerticle();
-        verticle.init(json);
+        MarketDataEngine engine = new MarketDataEngine();
+        int i = engine.add(json);
+
+        int volume = engine.stocks[i];
 
-        int volume = verticle.stocks;
+        assertThat(engine.ask[i]).isGreaterThan(0.0);
+        assertThat(engine.bid[i]).isGreaterThan(0.0);
+        assertThat(engine.share[i]).isGreaterThanOrEqualTo(0).isLessThanOrEqualTo(volume);
+
+        for (int n = 0; n < 1000000; n++) {
+            engine.compute(i);
+            assertThat(engine.ask[i]).isGreaterThan(0.0);
+            assertThat(engine.bid[i]).isGreaterThan(0.0);
+            assertThat(engine.share[i]).isGreaterThanOrEqualTo(0).isLessThanOrEqualTo(volume);
+        }
+    }
 
-        assertThat(verticle.ask).isGreaterThan(0.0);
-        assertThat(verticle.bid).isGreaterThan(0.0);
-        assertThat(verticle.share).isGreaterThanOrEqualTo(0).isLessThanOrEqualTo(volume);
+    @Test
+    public void testPeriods() {
+        MarketDataEngine engine = new MarketDataEngine();
+        engine.add(new JsonObject().put("name", "fast").put("period", 200L));
+        engine.add(new JsonObject().put("name", "slow").put("period", 300L));
+        for (int n = 0; n < 1000; n++) {
+            engine.add(new JsonObject().put("name", "company-" + n).put("period", 600L));
+        }
+        assertThat(engine.resolution()).isEqualTo(100L);
 
-        for (int i = 0; i < 1000000; i++) {
-            verticle.compute();
-            assertThat(verticle.ask).isGreaterThan(0.0);
-            assertThat(verticle.bid).isGreaterThan(0.0);
-            assertThat(verticle.share).isGreaterThanOrEqualTo(0).isLessThanOrEqualTo(volume);
+        Map<String, Integer> ticks = new HashMap<>();
+        for (int n = 0; n < 60; n++) {
+            engine.advance(engine.resolution(), i -> ticks.merge(engine.names[i], 1, Integer::sum));
         }
+        assertThat(ticks.get("fast")).isEqualTo(30);
+        assertThat(ticks.get("slow")).isEqualTo(20);
+        assertThat(ticks.get("company-999")).isEqualTo(10);
+        assertThat(ticks).hasSize(1002);
     }
 
     @Test
     public void testMarketData() {
-        Vertx vertx = Vertx.vertx();
-
-        List<JsonObject> mch = new ArrayList<>();
-        List<JsonObject> dvn = new ArrayList<>();
-        List<JsonObject> bct = new ArrayList<>();
-
-        vertx.eventBus().consumer(config.getString("market.address"), message -> {
-            JsonObject quote = (JsonObject) message.body();
-            System.out.println(quote.encodePrettily());
-            assertThat(quote.getDouble("bid")).isGreaterThan(0);
-            assertThat(quote.getDouble("ask")).isGreaterThan(0);
-            assertThat(quote.getInteger("volume")).isGreaterThan(0);
-            assertThat(quote.getInteger("shares")).isGreaterThan(0);
-            switch (quote.getString("symbol")) {
+        vertx = Vertx.vertx();
+
+        List<Quote> mch = new ArrayList<>();
+        List<Quote> dvn = new ArrayList<>();
+        List<Quote> bct = new ArrayList<>();
+
+        vertx.eventBus().<Quote>consumer(config.getString("market.address"), message -> {
+            Quote quote = message.body();
+            System.out.println(quote);
+            assertThat(quote.getBid()).isGreaterThan(0);
+            assertThat(quote.getAsk()).isGreaterThan(0);
+            assertThat(quote.getVolume()).isGreaterThan(0);
+            assertThat(quote.getShares()).isGreaterThan(0);
+            switch (quote.getSymbol()) {
                 case "MCH":
                     mch.add(quote);
                     break;
@@ -76,4 +121,64 @@ public class MarketDataVerticleTest {
         await().until(() -> dvn.size() > 10);
         await().until(() -> bct.size() > 10);
     }
+
+    @Test
+    public void testQuoteCodec() {
+        Quote quote = new Quote("BCT", "Black Coat", 549.5, 551.0, 90000, 550.0, 45000);
+        QuoteCodec codec = new QuoteCodec();
+        Buffer buffer = Buffer.buffer().appendInt(42);
+        codec.encodeToWire(buffer, quote);
+
+        Quote decoded = codec.decodeFromWire(4, buffer);
+        assertThat(decoded.toJson()).isEqualTo(quote.toJson());
+        assertThat(codec.transform(quote)).isSameAs(quote);
+    }
+
+    @Test
+    public void testDeltas() {
+        MarketDataEngine engine = new MarketDataEngine();
+        int i = engine.add(new JsonObject().put("name", "Black Coat").put("symbol", "BCT"));
+        QuoteDeltaCodec codec = new QuoteDeltaCodec();
+        QuoteAssembler assembler = new QuoteAssembler(quote -> { });
+
+        for (int n = 0; n < 12; n++) {
+            engine.compute(i);
+            QuoteDelta delta = engine.delta(i, 5);
+            assertThat(delta.getSequence()).isEqualTo(n + 1);
+            assertThat(delta.isSnapshot()).isEqualTo(n % 5 == 0);
+            assertThat(delta.has(QuoteDelta.NAME)).isEqualTo(n % 5 == 0);
+
+            Buffer buffer = Buffer.buffer().appendInt(42);
+            codec.encodeToWire(buffer, delta);
+            Quote quote = assembler.apply(codec.decodeFromWire(4, buffer));
+            assertThat(quote.toJson()).isEqualTo(engine.quote(i).toJson());
+        }
+
+        // A lost message makes the symbol stale until the next snapshot
+        engine.compute(i);
+        engine.delta(i, 5);
+        for (int n = 14; n <= 15; n++) {
+            engine.compute(i);
+            assertThat(assembler.apply(engine.delta(i, 5))).isNull();
+        }
+        assertThat(assembler.gaps()).isEqualTo(1);
+        engine.compute(i);
+        assertThat(assembler.apply(engine.delta(i, 5)).toJson()).isEqualTo(engine.quote(i).toJson());
+    }
+
+    @Test
+    public void testSymbolAddresses() {
+        vertx = Vertx.vertx();
+        List<Quote> quotes = Collections.synchronizedList(new ArrayList<>());
+        vertx.eventBus().<Quote>consumer(MarketAddresses.of(config.getString("market.address"), "MCH"), message -> quotes.add(message.body()));
+
+        JsonArray companies = new JsonArray()
+                .add(new JsonObject().put("name", "MacroHard").put("symbol", "MCH").put("period", 100L))
+                .add(new JsonObject().put("name", "Divinator").put("symbol", "DVN").put("period", 100L));
+        vertx.deployVerticle(MarketDataVerticle.class.getName(),
+                new DeploymentOptions().setConfig(new JsonObject().put("companies", companies)));
+
+        await().until(() -> quotes.size() > 5);
+        assertThat(new ArrayList<>(quotes)).extracting(Quote::getSymbol).containsOnly("MCH");
+    }
 }
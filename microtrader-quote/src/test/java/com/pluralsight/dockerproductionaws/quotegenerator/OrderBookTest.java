@@ -0,0 +1,75 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderBookTest {
+
+    /**
+     * Only touches the last bid level with the order flow.
+     */
+    private static final class LastBidFlow extends Random {
+        private static final long serialVersionUID = 1L;
+
+        LastBidFlow() {
+            super(42);
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            return true;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return bound == 10 ? 9 : 1;
+        }
+    }
+
+    private static int size(JsonArray levels, double price) {
+        for (int k = 0; k < levels.size(); k++) {
+            JsonObject level = levels.getJsonObject(k);
+            if (level.getDouble("price") == price) {
+                return level.getInteger("size");
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testLevelsFollowThePrices() {
+        Random random = new Random(42);
+        OrderBook book = new OrderBook(10, 1.0, 100);
+        book.update(600, 602, random);
+        assertThat(book.bestBid()).isEqualTo(600.0);
+        assertThat(book.bestAsk()).isEqualTo(602.0);
+        JsonObject before = book.depth();
+        assertThat(before.getJsonArray("bids").size()).isEqualTo(10);
+        assertThat(before.getJsonArray("asks").size()).isEqualTo(10);
+
+        // Moving the book keeps the levels still in range at their price
+        book.update(603, 604, new LastBidFlow());
+        JsonObject after = book.depth();
+        assertThat(size(after.getJsonArray("bids"), 598.0)).isEqualTo(size(before.getJsonArray("bids"), 598.0));
+        assertThat(size(after.getJsonArray("asks"), 606.0)).isEqualTo(size(before.getJsonArray("asks"), 606.0));
+    }
+
+    @Test
+    public void testNeverCrossed() {
+        Random random = new Random();
+        OrderBook book = new OrderBook(5, 0.5, 10);
+        for (int n = 0; n < 100000; n++) {
+            double value = 1 + random.nextInt(1000);
+            book.update(value + random.nextInt(20) - 10, value + random.nextInt(20) - 10, random);
+            assertThat(book.bestAsk()).isGreaterThan(book.bestBid());
+            assertThat(book.bestBid()).isGreaterThan(0.0);
+            assertThat(book.bidSize()).isGreaterThan(0);
+            assertThat(book.askSize()).isGreaterThan(0);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(VertxUnitRunner.class)
+public class RestQuoteAPIVerticleTest {
+    private Config config = ConfigFactory.load();
+    private Vertx vertx;
+    private HttpClient client;
+
+    private Quote quote(double bid) {
+        return new Quote("MCH", "MacroHard", bid, bid + 2, 95000, 600.0, 47500);
+    }
+
+    /**
+     * Calls the handler once the store holds the quote of the company at the given bid, as the market data is consumed
+     * asynchronously.
+     */
+    private void awaitQuote(String name, double bid, Handler<Void> handler) {
+        vertx.setPeriodic(10, timer -> {
+            Quote quote = QuoteStore.get(vertx).quote(name);
+            if (quote != null && quote.getBid() == bid) {
+                vertx.cancelTimer(timer);
+                handler.handle(null);
+            }
+        });
+    }
+
+    @Before
+    public void testSetup(TestContext context) {
+        Async async = context.async();
+        vertx = Vertx.vertx();
+        QuoteCodec.register(vertx.eventBus());
+        client = vertx.createHttpClient(new HttpClientOptions()
+                .setDefaultHost(config.getString("http.host"))
+                .setDefaultPort(config.getInt("http.port")));
+        vertx.deployVerticle(RestQuoteAPIVerticle.class.getName(), new DeploymentOptions().setInstances(4), ar -> {
+            context.assertTrue(ar.succeeded());
+            vertx.eventBus().publish(config.getString("market.address"), quote(600.0));
+            vertx.eventBus().publish(config.getString("market.address"),
+                    new Quote("DVN", "Divinator", 650.0, 652.0, 98000, 650.0, 49000));
+            awaitQuote("Divinator", 650.0, done -> async.complete());
+        });
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testQuote(TestContext context) {
+        Async async = context.async();
+        client.get("/?name=MacroHard", response -> {
+            context.assertEquals(response.statusCode(), 200);
+            context.assertNotNull(response.getHeader(HttpHeaders.ETAG));
+            response.bodyHandler(buffer -> {
+                context.assertEquals(buffer.toJsonObject().getDouble("bid"), 600.0);
+                async.complete();
+            });
+        }).end();
+    }
+
+    @Test
+    public void testUnknownQuote(TestContext context) {
+        Async async = context.async();
+        client.get("/?name=Unknown", response -> {
+            context.assertEquals(response.statusCode(), 404);
+            async.complete();
+        }).end();
+    }
+
+    @Test
+    public void testBulkQuery(TestContext context) {
+        Async async = context.async();
+        client.get("/?names=MacroHard,Unknown&symbols=DVN", response -> {
+            context.assertEquals(response.statusCode(), 200);
+            response.bodyHandler(buffer -> {
+                JsonObject quotes = buffer.toJsonObject();
+                context.assertEquals(quotes.size(), 2);
+                context.assertEquals(quotes.getJsonObject("MacroHard").getDouble("bid"), 600.0);
+                context.assertEquals(quotes.getJsonObject("Divinator").getDouble("bid"), 650.0);
+                async.complete();
+            });
+        }).end();
+    }
+
+    @Test
+    public void testBulkQueryListsEachCompanyOnce(TestContext context) {
+        Async async = context.async();
+        client.get("/?names=MacroHard,Divinator&symbols=MCH,DVN,MCH", response -> {
+            context.assertEquals(response.statusCode(), 200);
+            response.bodyHandler(buffer -> {
+                String body = buffer.toString();
+                context.assertEquals(body.indexOf("\"MacroHard\":"), body.lastIndexOf("\"MacroHard\":"));
+                context.assertEquals(body.indexOf("\"Divinator\":"), body.lastIndexOf("\"Divinator\":"));
+                context.assertEquals(buffer.toJsonObject().size(), 2);
+                async.complete();
+            });
+        }).end();
+    }
+
+    @Test
+    public void testBulkPost(TestContext context) {
+        Async async = context.async();
+        client.post("/", response -> {
+            context.assertEquals(response.statusCode(), 200);
+            response.bodyHandler(buffer -> {
+                JsonObject quotes = buffer.toJsonObject();
+                context.assertEquals(quotes.fieldNames().size(), 2);
+                context.assertTrue(quotes.containsKey("MacroHard"));
+                context.assertTrue(quotes.containsKey("Divinator"));
+                async.complete();
+            });
+        }).end(new JsonArray().add("MCH").add("Divinator").add("Black Coat").encode());
+    }
+
+    @Test
+    public void testBulkPostInvalidBody(TestContext context) {
+        Async async = context.async();
+        client.post("/", response -> {
+            context.assertEquals(response.statusCode(), 400);
+            async.complete();
+        }).end("MacroHard");
+    }
+
+    @Test
+    public void testNotModifiedUntilNextTick(TestContext context) {
+        Async async = context.async();
+        client.get("/", response -> {
+            context.assertEquals(response.statusCode(), 200);
+            String etag = response.getHeader(HttpHeaders.ETAG);
+            client.get("/", notModified -> {
+                context.assertEquals(notModified.statusCode(), 304);
+                vertx.eventBus().publish(config.getString("market.address"), quote(610.0));
+                awaitQuote("MacroHard", 610.0, v -> client.get("/", modified -> {
+                    context.assertEquals(modified.statusCode(), 200);
+                    context.assertNotEquals(modified.getHeader(HttpHeaders.ETAG), etag);
+                    modified.bodyHandler(buffer -> {
+                        context.assertEquals(buffer.toJsonObject().getJsonObject("MacroHard").getDouble("bid"), 610.0);
+                        async.complete();
+                    });
+                }).putHeader(HttpHeaders.IF_NONE_MATCH, etag).end());
+            }).putHeader(HttpHeaders.IF_NONE_MATCH, etag).end();
+        }).end();
+    }
+
+    @Test
+    public void testInstancesShareTheStore(TestContext context) {
+        int requests = 20;
+        Async async = context.async(requests);
+        String etag = QuoteStore.get(vertx).get("MacroHard").etag();
+        for (int i = 0; i < requests; i++) {
+            // A client per request, so requests are spread across the server instances
+            vertx.createHttpClient().get(config.getInt("http.port"), config.getString("http.host"), "/?name=MacroHard",
+                    response -> {
+                        context.assertEquals(response.statusCode(), 200);
+                        context.assertEquals(response.getHeader(HttpHeaders.ETAG), etag);
+                        async.countDown();
+                    }).end();
+        }
+    }
+
+    @Test
+    public void testFeedIsReleasedOnUndeploy(TestContext context) {
+        Async async = context.async();
+        String deployment = vertx.deploymentIDs().iterator().next();
+        vertx.undeploy(deployment, context.asyncAssertSuccess(undeployed -> {
+            // The next instances feed the store again
+            context.assertTrue(QuoteStore.get(vertx).claimFeed());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testServerSentEvents(TestContext context) {
+        Async async = context.async();
+        client.get("/?symbols=MCH", response -> {
+            context.assertEquals(response.statusCode(), 200);
+            context.assertEquals(response.getHeader(HttpHeaders.CONTENT_TYPE), "text/event-stream");
+            List<JsonObject> events = new ArrayList<>();
+            response.handler(RecordParser.newDelimited("\n\n", event -> {
+                events.add(new JsonObject(event.toString().substring("data: ".length())));
+                // The latest quote first, then the new ticks - other companies are filtered out
+                if (events.size() == 2) {
+                    context.assertEquals(events.get(0).getDouble("bid"), 600.0);
+                    context.assertEquals(events.get(1).getDouble("bid"), 620.0);
+                    async.complete();
+                }
+            }));
+            vertx.eventBus().publish(config.getString("market.address"),
+                    new Quote("DVN", "Divinator", 651.0, 653.0, 98000, 650.0, 49000));
+            vertx.eventBus().publish(config.getString("market.address"), quote(620.0));
+        }).putHeader(HttpHeaders.ACCEPT, "text/event-stream").end();
+    }
+
+    @Test
+    public void testWebSocket(TestContext context) {
+        Async async = context.async();
+        client.websocket("/?names=Divinator", socket -> {
+            List<JsonObject> quotes = new ArrayList<>();
+            socket.textMessageHandler(message -> {
+                quotes.add(new JsonObject(message));
+                if (quotes.size() == 1) {
+                    context.assertEquals(quotes.get(0).getString("symbol"), "DVN");
+                    // Switch to MacroHard
+                    socket.writeTextMessage(new JsonArray().add("MCH").encode());
+                    vertx.setTimer(200, t -> vertx.eventBus().publish(config.getString("market.address"),
+                            quote(630.0)));
+                } else {
+                    context.assertEquals(quotes.get(1).getString("symbol"), "MCH");
+                    context.assertEquals(quotes.get(1).getDouble("bid"), 630.0);
+                    async.complete();
+                }
+            });
+        });
+    }
+
+    @Test
+    public void testHistory(TestContext context) {
+        Async async = context.async(3);
+        vertx.eventBus().publish(config.getString("market.address"), quote(610.0));
+        vertx.eventBus().publish(config.getString("market.address"), quote(590.0));
+        awaitQuote("MacroHard", 590.0, v -> {
+            client.get("/?name=MCH&ticks&limit=2", response -> {
+                context.assertEquals(response.statusCode(), 200);
+                response.bodyHandler(buffer -> {
+                    JsonArray ticks = buffer.toJsonArray();
+                    context.assertEquals(ticks.size(), 2);
+                    context.assertEquals(ticks.getJsonObject(0).getDouble("bid"), 610.0);
+                    context.assertEquals(ticks.getJsonObject(1).getDouble("bid"), 590.0);
+                    async.countDown();
+                });
+            }).end();
+            client.get("/?name=MacroHard&bars=5m", response -> {
+                context.assertEquals(response.statusCode(), 200);
+                response.bodyHandler(buffer -> {
+                    JsonArray bars = buffer.toJsonArray();
+                    double high = 0;
+                    for (int i = 0; i < bars.size(); i++) {
+                        high = Math.max(high, bars.getJsonObject(i).getDouble("high"));
+                    }
+                    context.assertEquals(high, 611.0);
+                    context.assertEquals(bars.getJsonObject(bars.size() - 1).getDouble("close"), 591.0);
+                    async.countDown();
+                });
+            }).end();
+            client.get("/?name=MacroHard&bars=2h", response -> {
+                context.assertEquals(response.statusCode(), 400);
+                async.countDown();
+            }).end();
+        });
+    }
+
+    @Test
+    public void testDepth(TestContext context) {
+        Async async = context.async(2);
+        client.get("/?name=MacroHard&depth", response -> {
+            context.assertEquals(response.statusCode(), 503);
+            vertx.eventBus().consumer("market.book.MCH", message -> message.reply(new JsonObject()
+                    .put("symbol", "MCH")
+                    .put("bids", new JsonArray().add(new JsonObject().put("price", 600.0).put("size", 7)))
+                    .put("asks", new JsonArray().add(new JsonObject().put("price", 602.0).put("size", 9)))));
+            client.get("/?name=MCH&depth", book -> {
+                context.assertEquals(book.statusCode(), 200);
+                book.bodyHandler(buffer -> {
+                    context.assertEquals(buffer.toJsonObject().getJsonArray("asks").getJsonObject(0)
+                            .getInteger("size"), 9);
+                    async.countDown();
+                });
+            }).end();
+            async.countDown();
+        }).end();
+    }
+}
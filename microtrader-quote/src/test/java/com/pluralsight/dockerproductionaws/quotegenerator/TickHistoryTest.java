@@ -0,0 +1,55 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TickHistoryTest {
+
+    @Test
+    public void testTicksWrapAround() {
+        TickHistory history = new TickHistory(4, 4);
+        for (int n = 1; n <= 10; n++) {
+            history.record(n * 100L, n, n + 2, n * 10);
+        }
+        JsonArray ticks = history.ticks(Integer.MAX_VALUE).toJsonArray();
+        assertThat(ticks.size()).isEqualTo(4);
+        assertThat(ticks.getJsonObject(0).getLong("time")).isEqualTo(700L);
+        assertThat(ticks.getJsonObject(3).getInteger("shares")).isEqualTo(100);
+        assertThat(history.ticks(1).toJsonArray().getJsonObject(0).getDouble("bid")).isEqualTo(10.0);
+        assertThat(history.ticks(0).toJsonArray().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testBars() {
+        TickHistory history = new TickHistory(16, 2);
+        // Mid prices 11, 15, 9 and 13 in the first second, 21 in the second one, 31 in the third one
+        history.record(0L, 10, 12, 0);
+        history.record(200L, 14, 16, 0);
+        history.record(400L, 8, 10, 0);
+        history.record(999L, 12, 14, 0);
+        history.record(1500L, 20, 22, 0);
+        history.record(2100L, 30, 32, 0);
+
+        JsonArray seconds = history.bars(TickHistory.resolution("1s"), Integer.MAX_VALUE).toJsonArray();
+        assertThat(seconds.size()).isEqualTo(2);
+        assertThat(seconds.getJsonObject(0).getLong("time")).isEqualTo(1000L);
+        assertThat(seconds.getJsonObject(1).getDouble("close")).isEqualTo(31.0);
+
+        JsonObject minute = history.bars(TickHistory.resolution("1m"), 10).toJsonArray().getJsonObject(0);
+        assertThat(minute.getLong("time")).isEqualTo(0L);
+        assertThat(minute.getDouble("open")).isEqualTo(11.0);
+        assertThat(minute.getDouble("high")).isEqualTo(31.0);
+        assertThat(minute.getDouble("low")).isEqualTo(9.0);
+        assertThat(minute.getDouble("close")).isEqualTo(31.0);
+        assertThat(minute.getInteger("ticks")).isEqualTo(6);
+        assertThat(TickHistory.resolution("2h")).isEqualTo(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyHistoryIsRejected() {
+        new TickHistory(0, 4);
+    }
+}
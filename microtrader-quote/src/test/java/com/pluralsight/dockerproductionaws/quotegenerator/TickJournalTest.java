@@ -0,0 +1,74 @@
+package com.pluralsight.dockerproductionaws.quotegenerator;
+
+import com.pluralsight.dockerproductionaws.common.market.Quote;
+import com.pluralsight.dockerproductionaws.common.market.QuoteCodec;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TickJournalTest {
+    private Config config = ConfigFactory.load();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Quote quote(int n) {
+        return new Quote("S" + n % 7, "Company " + n % 7, 100.0 + n, 102.0 + n, 10000, 100.0, n);
+    }
+
+    @Test
+    public void testReadBack() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("ticks");
+        // Small segments, so the records span several of them
+        try (TickJournal journal = new TickJournal(path, 256)) {
+            for (int n = 0; n < 100; n++) {
+                journal.append(1000L + n, quote(n));
+            }
+        }
+        try (TickJournal.Reader reader = new TickJournal.Reader(path, 256)) {
+            for (int n = 0; n < 100; n++) {
+                assertThat(reader.next()).isTrue();
+                assertThat(reader.time()).isEqualTo(1000L + n);
+                assertThat(reader.quote().toJson()).isEqualTo(quote(n).toJson());
+            }
+            assertThat(reader.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("ticks");
+        try (TickJournal journal = new TickJournal(path)) {
+            for (int n = 0; n < 5000; n++) {
+                journal.append(n * 1000L, quote(n));
+            }
+        }
+
+        Vertx vertx = Vertx.vertx();
+        QuoteCodec.register(vertx.eventBus());
+        List<Quote> quotes = Collections.synchronizedList(new ArrayList<>());
+        vertx.eventBus().<Quote>consumer(config.getString("market.address"), message -> quotes.add(message.body()));
+        // As fast as possible: the 5000 s session is replayed at once
+        vertx.deployVerticle(MarketDataReplayVerticle.class.getName(), new DeploymentOptions().setConfig(
+                new JsonObject().put("journal", path.toString()).put("speed", 0)));
+
+        await().until(() -> quotes.size() == 5000);
+        for (int n = 0; n < 5000; n++) {
+            assertThat(quotes.get(n).getShares()).isEqualTo(n);
+        }
+        vertx.close();
+    }
+}
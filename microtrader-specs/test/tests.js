@@ -176,7 +176,7 @@ describe('Market Events', function() {
   before (function(done) {
     eventbus = new EventBus(eventbusUrl);
     eventbus.onopen = function () {
-      eventbus.registerHandler('market', function (error, message) {
+      eventbus.registerHandler('dashboard.market', function (error, message) {
         quotes.push(message.body);
       });
       done();